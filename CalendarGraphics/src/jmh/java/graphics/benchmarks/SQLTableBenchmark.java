@@ -0,0 +1,173 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sql.Database;
+import sql.Dialect;
+import sql.Storage;
+import utils.Constants.TABLES;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SQLTableBenchmark
+ *
+ * @description Measures the table operations the screens run most, against a
+ *              fresh embedded database seeded with <users> users holding
+ *              <appointments> appointments each. <storage> picks the backend:
+ *              "h2" goes through SQLTable and JDBC to an in-process H2
+ *              database, "memory" through MemoryTable. Each combination of
+ *              parameters runs in its own JVM, so every trial starts from an
+ *              empty database.
+ *
+ */
+@ State( Scope.Benchmark )
+@ BenchmarkMode( Mode.AverageTime )
+@ OutputTimeUnit( TimeUnit.MICROSECONDS )
+@ Warmup( iterations = 3, time = 2 )
+@ Measurement( iterations = 5, time = 2 )
+@ Fork( 1 )
+public class SQLTableBenchmark
+{
+	// DAYS -> Days the seeded appointments are spread over.
+	// storage -> Backend under test ("h2" or "memory").
+	// users, appointments -> Data volume seeded before the benchmarks run.
+	// nextAppointment -> Numbers the appointments inserted by insertEntry, so none collide.
+	private final static int DAYS = 28;
+
+	@ Param( { "h2", "memory" } )
+	public String storage;
+
+	@ Param( { "1000", "10000" } )
+	public int users;
+
+	@ Param( { "10" } )
+	public int appointments;
+
+	private Storage usersTable, appointmentsTable;
+	private final AtomicInteger nextAppointment = new AtomicInteger( 0 );
+
+
+	/**
+	 * seed()
+	 *
+	 * @description Connects to an empty database and fills it in batches.
+	 *
+	 */
+	@ Setup( Level.Trial )
+	public void seed()
+	{
+		if( storage.equals( "memory" ) )
+		{
+			Database.connectToMemory();
+		}
+		else
+		{
+			Database.connectTo( Dialect.H2.url( null, "bench" + System.nanoTime() ), "sa", "" );
+		}
+		Database.init( true );
+		usersTable = TABLES.USERS.table();
+		appointmentsTable = TABLES.APPOINTMENTS.table();
+
+		String[][] userRows = new String[users][];
+		for( int i = 0; i < users; ++i )
+		{
+			userRows[i] = user( i );
+		}
+		usersTable.insertEntries( userRows );
+
+		String[][] appointmentRows = new String[users * appointments][];
+		for( int i = 0; i < users; ++i )
+		{
+			for( int j = 0; j < appointments; ++j )
+			{
+				appointmentRows[i * appointments + j] = appointment( i, ( i + 1 ) % users, j );
+			}
+		}
+		appointmentsTable.insertEntries( appointmentRows );
+	}
+
+
+	@ Benchmark
+	public boolean entryExists()
+	{
+		return usersTable.entryExists( "user_id", randomUser() );
+	}
+
+
+	@ Benchmark
+	public boolean entryExistsMissing()
+	{
+		return usersTable.entryExists( "user_id", String.valueOf( users + 1 + ThreadLocalRandom.current().nextInt( users ) ) );
+	}
+
+
+	@ Benchmark
+	public String[][] getAllEntriesFor()
+	{
+		return appointmentsTable.getAllEntriesFor( "employee_id", randomUser() );
+	}
+
+
+	@ Benchmark
+	public String[][] getAllEntriesForTitle()
+	{
+		return usersTable.getAllEntriesFor( "title", "DENTIST" );
+	}
+
+
+	@ Benchmark
+	public void insertEntry()
+	{
+		int n = nextAppointment.getAndIncrement();
+		// Appointments of employee -1 - n never collide with the seeded ones or each other.
+		appointmentsTable.insertEntry( new String[] { randomUser(), String.valueOf( -1 - n ), "Benchmark", "0800", "0900", date( 0 ) } );
+	}
+
+
+	@ Benchmark
+	public void editEntry()
+	{
+		usersTable.editEntry( new String[] { "user_id" }, new String[] { randomUser() },
+			new String[] { "phone_number" }, new String[] { String.valueOf( ThreadLocalRandom.current().nextInt( 1000000 ) ) } );
+	}
+
+
+	private String randomUser()
+	{
+		return String.valueOf( ThreadLocalRandom.current().nextInt( users ) );
+	}
+
+
+	private static String[] user( int id )
+	{
+		String title = id % 10 == 0 ? "DENTIST" : id % 10 == 1 ? "HYGIENIST" : "PATIENT";
+		return new String[] { String.valueOf( id ), "First" + id, "Last" + id, null, "user" + id + "@dental.com", "(555) 000-0000", title, "0123456789abcdef0123456789abcdef", "ENABLED" };
+	}
+
+
+	private static String[] appointment( int employee, int patient, int slot )
+	{
+		int start = 800 + ( slot % 8 ) * 100;
+		return new String[] { String.valueOf( patient ), String.valueOf( employee ), "Cleaning", String.valueOf( start ), String.valueOf( start + 100 ), date( slot / 8 ) };
+	}
+
+
+	private static String date( int day )
+	{
+		return "11/" + ( 1 + day % DAYS ) + "/2019";
+	}
+}
@@ -0,0 +1,329 @@
+package controllers;
+
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.ChoiceBox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import graphics.GraphicsMain;
+import sql.ActionScope;
+import sql.SlowQueryLog;
+import utils.Constants.*;
+import utils.Utils;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ScreenBenchmark
+ *
+ * @description Measures how long the user and admin screens take to rebuild
+ *              their nodes on a refresh. The FXML screens are loaded headlessly
+ *              (Monocle, software rendering) over the in-memory storage, seeded
+ *              with <patients> patients, <employees> dentists and hygienists,
+ *              and <booked> appointments of the logged in dentist on every day
+ *              of the current month. A benchmark call lasts from the refresh
+ *              until every query it started has come back and its nodes have
+ *              been styled and laid out, so the database work, the JavaFX
+ *              thread work and the hand-offs between them are all counted.
+ *              Run with "-prof gc" (the default of the jmh task) for the bytes
+ *              allocated per refresh.
+ *
+ */
+@ State( Scope.Benchmark )
+@ BenchmarkMode( Mode.AverageTime )
+@ OutputTimeUnit( TimeUnit.MILLISECONDS )
+@ Warmup( iterations = 3, time = 2 )
+@ Measurement( iterations = 5, time = 2 )
+@ Fork( value = 1, jvmArgsAppend = {
+	"-Dglass.platform=Monocle", "-Dmonocle.platform=Headless", "-Dprism.order=sw", "-Dprism.text=t2k",
+	"-Djava.awt.headless=true", "-Ddatabase.storage=memory" } )
+public class ScreenBenchmark
+{
+	// DENTIST -> Username of the dentist the user screen is logged in as.
+	// patients, employees, booked -> Data volume seeded before the benchmarks run.
+	private final static String DENTIST = "dentist";
+
+	@ Param( { "100", "1000" } )
+	public int patients;
+
+	@ Param( { "20", "200" } )
+	public int employees;
+
+	@ Param( { "4" } )
+	public int booked;
+
+	private SessionContext session;
+	private UserController user;
+	private AdminController admin;
+	private Parent userScreen, adminScreen;
+
+
+	/**
+	 * setup()
+	 *
+	 * @description Starts JavaFX, seeds the database, logs the dentist in and
+	 *              opens both screens with a patient and a day picked, the way
+	 *              they are after a user has started using them.
+	 *
+	 */
+	@ Setup( Level.Trial )
+	public void setup() throws Exception
+	{
+		System.setProperty( "database.storage", "memory" );
+		CountDownLatch started = new CountDownLatch( 1 );
+		Platform.startup( started::countDown );
+		started.await();
+
+		// Building a GraphicsMain connects and initializes the database, so it has to
+		// happen before the tables are seeded. Its session is the one the screens are loaded in.
+		session = act( () -> new GraphicsMain().getSession() );
+		ActionScope.setBudget( -1 );
+		ActionScope.setNPlusOne( Integer.MAX_VALUE );
+		SlowQueryLog.setThreshold( -1 );
+		seed();
+		act( () -> { session.logUserIn( DENTIST, "Bench", "Dentist", TITLES.DENTIST.name() ); return null; } );
+
+		FXMLLoader userLoader = onFx( () -> load( PAGE.USER_SCREEN ) );
+		FXMLLoader adminLoader = onFx( () -> load( PAGE.ADMIN_EMPLOYEE_ROSTER ) );
+		userScreen = userLoader.getRoot();
+		adminScreen = adminLoader.getRoot();
+		user = userLoader.getController();
+		admin = adminLoader.getController();
+		refreshUser();
+		refreshAdmin();
+		act( () ->
+			{
+				( (ChoiceBox<?>) userScreen.lookup( "#selectedEmployee" ) ).getSelectionModel().select( 0 );
+				for( Node day : ( (Parent) userScreen.lookup( "#calendarGrid" ) ).getChildrenUnmodifiable() )
+				{
+					if( day instanceof Button && ( (Button) day ).getOnAction() != null )
+					{
+						( (Button) day ).fire();
+						break;
+					}
+				}
+				return null;
+			}
+		);
+	}
+
+
+	@ TearDown( Level.Trial )
+	public void tearDown()
+	{
+		Platform.exit();
+	}
+
+
+	@ Benchmark
+	public void refreshUser() throws Exception
+	{
+		act( () -> { user.refresh(); return null; } );
+		layout( userScreen );
+	}
+
+
+	@ Benchmark
+	public void setCalendar() throws Exception
+	{
+		act( () -> { user.setCalendar( -1 ); return null; } );
+		layout( userScreen );
+	}
+
+
+	@ Benchmark
+	public void fillAppointments() throws Exception
+	{
+		act( () -> { user.fillAppointments(); return null; } );
+		layout( userScreen );
+	}
+
+
+	@ Benchmark
+	public void initChoiceBoxes() throws Exception
+	{
+		act( () -> { user.initChoiceBoxes(); return null; } );
+		layout( userScreen );
+	}
+
+
+	@ Benchmark
+	public void refreshAdmin() throws Exception
+	{
+		act( () -> { admin.refresh(); return null; } );
+		layout( adminScreen );
+	}
+
+
+	@ Benchmark
+	public void filterEmployeesToRegister() throws Exception
+	{
+		act( () -> { admin.filterEmployeesToRegister(); return null; } );
+		layout( adminScreen );
+	}
+
+
+	/**
+	 * filterPatients()
+	 *
+	 * @description The roster filtered down to every patient, which is the
+	 *              largest table fill() builds.
+	 *
+	 */
+	@ Benchmark
+	public void filterPatients() throws Exception
+	{
+		act( () -> { admin.filterEmployeesToRegister( "title", TITLES.PATIENT.name() ); return null; } );
+		layout( adminScreen );
+	}
+
+
+	/**
+	 * act(Callable)
+	 *
+	 * @description Runs <body> on the JavaFX thread as one action, and waits until
+	 *              the action and every task it started are done.
+	 *
+	 */
+	private static <T> T act( Callable<T> body ) throws Exception
+	{
+		ArrayList<ActionScope> scope = new ArrayList<>();
+		T result = onFx( () ->
+			{
+				scope.add( ActionScope.begin( "benchmark" ) );
+				try
+				{
+					return body.call();
+				}
+				finally
+				{
+					scope.get( 0 ).end();
+				}
+			}
+		);
+		scope.get( 0 ).finished().get( 1, TimeUnit.MINUTES );
+		return result;
+	}
+
+
+	/**
+	 * onFx(Callable)
+	 *
+	 * @description Runs <body> on the JavaFX thread and returns its result.
+	 *
+	 */
+	private static <T> T onFx( Callable<T> body ) throws Exception
+	{
+		CompletableFuture<T> result = new CompletableFuture<>();
+		Platform.runLater( () ->
+			{
+				try
+				{
+					result.complete( body.call() );
+				}
+				catch( Throwable e )
+				{
+					result.completeExceptionally( e );
+				}
+			}
+		);
+		return result.get( 1, TimeUnit.MINUTES );
+	}
+
+
+	/**
+	 * layout(Parent)
+	 *
+	 * @description Styles and lays out the nodes of <screen>, as the next pulse
+	 *              would before drawing them.
+	 *
+	 */
+	private static void layout( Parent screen ) throws Exception
+	{
+		onFx( () -> { screen.applyCss(); screen.layout(); return null; } );
+	}
+
+
+	private FXMLLoader load( PAGE page ) throws Exception
+	{
+		FXMLLoader loader = new FXMLLoader( ScreenBenchmark.class.getResource( page.getDir() ) );
+		loader.setControllerFactory( session.controllerFactory() );
+		new Scene( loader.load(), 1280, 800 );
+		return loader;
+	}
+
+
+	/**
+	 * seed()
+	 *
+	 * @description Fills the database. Hygienists are partnered with the dentist
+	 *              before them, and the appointments use the MM/d/yyyy dates the
+	 *              calendar buttons look up.
+	 *
+	 */
+	private void seed()
+	{
+		String dentistId = Utils.getHashCode( DENTIST );
+		ArrayList<String[]> users = new ArrayList<>();
+		users.add( user( dentistId, "Bench", "Dentist", null, TITLES.DENTIST ) );
+		for( int i = 0; i < employees; ++i )
+		{
+			boolean dentist = i % 2 == 0;
+			users.add( user( String.valueOf( 200000 + i ), "Employee" + i, "Seed", dentist ? null : String.valueOf( 200000 + i - 1 ),
+				dentist ? TITLES.DENTIST : TITLES.HYGIENIST ) );
+		}
+		for( int i = 0; i < patients; ++i )
+		{
+			users.add( user( String.valueOf( 100000 + i ), "Patient" + i, "Seed", null, TITLES.PATIENT ) );
+		}
+		TABLES.USERS.table().insertEntries( users.toArray( new String[users.size()][] ) );
+
+		Date now = new Date();
+		String mm = new SimpleDateFormat( "MM" ).format( now ), yyyy = new SimpleDateFormat( "yyyy" ).format( now );
+		int days = new GregorianCalendar().getActualMaximum( Calendar.DAY_OF_MONTH );
+		ArrayList<String[]> appointments = new ArrayList<>();
+		for( int day = 1; day <= days; ++day )
+		{
+			for( int k = 0; k < booked; ++k )
+			{
+				int start = 800 + k * 100;
+				String patient = String.valueOf( 100000 + ( day * booked + k ) % patients );
+				appointments.add( new String[] { patient, dentistId, "Cleaning and Checkup", start < 1000 ? "0" + start : "" + start,
+					start + 100 < 1000 ? "0" + ( start + 100 ) : "" + ( start + 100 ), mm + "/" + day + "/" + yyyy } );
+			}
+		}
+		TABLES.APPOINTMENTS.table().insertEntries( appointments.toArray( new String[appointments.size()][] ) );
+	}
+
+
+	private static String[] user( String id, String firstName, String lastName, String partnerId, TITLES title )
+	{
+		return new String[] { id, firstName, lastName, partnerId, firstName.toLowerCase() + "@dental.com", "(555) 000-0000",
+			title.name(), Utils.hash( id ), "ENABLED" };
+	}
+}
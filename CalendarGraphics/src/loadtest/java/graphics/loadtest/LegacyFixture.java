@@ -0,0 +1,119 @@
+package loadtest;
+
+import sql.Database;
+import utils.Constants.*;
+import utils.Utils;
+
+/**
+ * LegacyFixture
+ *
+ * @description Tables as the application created them before the columns were
+ *              typed: every column a VARCHAR, and every missing value written
+ *              by insertEntry as '' or as the text 'null'. LoadTest installs
+ *              them with --storage=legacy before Database.init, so the stages
+ *              run on tables that Database.migrate converted.
+ *
+ */
+final class LegacyFixture
+{
+	// ADMIN, PATIENT, DENTIST -> Usernames of the legacy users.
+	// DAY, START -> Date and start of the legacy appointment, as the old tables stored them.
+	private final static String ADMIN = "legacy_admin", PATIENT = "legacy_patient", DENTIST = "legacy_dentist";
+	private final static String DAY = "11/5/2019", START = "0900";
+
+
+	private LegacyFixture()
+	{
+	}
+
+
+	/**
+	 * install()
+	 *
+	 * @description Creates USERS and APPOINTMENTS with VARCHAR columns and fills
+	 *              them with rows the way the old insertEntry wrote them. The
+	 *              database has to be connected but not initialized yet.
+	 *
+	 */
+	static void install()
+	{
+		for( TABLES table : TABLES.values() )
+		{
+			String[] ddl = new String[table.fields().length];
+			for( int i = 0; i < ddl.length; ++i )
+			{
+				ddl[i] = "VARCHAR(" + table.varCharSizes()[i] + ")";
+			}
+			Database.update( "DROP TABLE IF EXISTS " + table.name() );
+			Database.update( "DROP TABLE IF EXISTS " + table.name() + "_legacy" );
+			Database.newTable( table.name(), table.fields(), ddl, table.canHoldNull() );
+		}
+		// The seeded admin and a patient, who have no partner, email or phone number.
+		insert( TABLES.USERS, id( ADMIN ), "admin", "admin", "null", "null", "null", "ADMIN", Utils.hash( ADMIN + ADMIN ), "ENABLED" );
+		insert( TABLES.USERS, id( PATIENT ), "legacy", "patient", "null", "", "", "PATIENT", Utils.hash( PATIENT + PATIENT ), "ENABLED" );
+		insert( TABLES.USERS, id( DENTIST ), "legacy", "dentist", id( ADMIN ), "dentist@dental.com", "(555) 000-0000",
+			"DENTIST", Utils.hash( DENTIST + DENTIST ), "ENABLED" );
+		insert( TABLES.APPOINTMENTS, id( PATIENT ), id( DENTIST ), "Cleaning and Checkup", START, "1000", DAY );
+	}
+
+
+	/**
+	 * verify()
+	 *
+	 * @description Throws IllegalStateException unless Database.init converted
+	 *              the tables of install(): typed columns, NULL where the old
+	 *              rows held '' or 'null', and the other values kept.
+	 *
+	 */
+	static void verify()
+	{
+		for( TABLES table : TABLES.values() )
+		{
+			for( String field : table.fields() )
+			{
+				boolean isVarChar = "VARCHAR".equalsIgnoreCase( Database.getSchema().getType( table.name(), field ) );
+				if( isVarChar != ( table.getType( field ) == SQL_TYPE.VARCHAR ) )
+				{
+					throw new IllegalStateException( table.name() + "." + field + " was not migrated." );
+				}
+			}
+		}
+		String[] admin = TABLES.USERS.table().getEntry( "user_id", id( ADMIN ) );
+		String[] patient = TABLES.USERS.table().getEntry( "user_id", id( PATIENT ) );
+		String[] dentist = TABLES.USERS.table().getEntry( "user_id", id( DENTIST ) );
+		if( admin == null || patient == null || dentist == null )
+		{
+			throw new IllegalStateException( "The legacy users were not migrated." );
+		}
+		for( String field : new String[] { "partner_id", "email", "phone_number" } )
+		{
+			int idx = TABLES.USERS.getFieldIdx( field );
+			if( admin[idx] != null || patient[idx] != null || dentist[idx] == null )
+			{
+				throw new IllegalStateException( "USERS." + field + " was not migrated to NULL: " + admin[idx] + ", " + patient[idx] + "." );
+			}
+		}
+		if( !id( ADMIN ).equals( dentist[TABLES.USERS.getFieldIdx( "partner_id" )] ) )
+		{
+			throw new IllegalStateException( "USERS.partner_id of " + DENTIST + " was not kept." );
+		}
+		if( TABLES.APPOINTMENTS.table().getEntry( new String[] { "patient_id", "MM_DD_YYYY", "block_start" },
+			new String[] { id( PATIENT ), DAY, START } ) == null )
+		{
+			throw new IllegalStateException( "The legacy appointment was not migrated." );
+		}
+		System.out.println( "The legacy tables were migrated." );
+	}
+
+
+	private static void insert( TABLES table, String ... values )
+	{
+		Database.update( "INSERT INTO " + table.name() + " (" + table.getAllFields() + ") VALUES ('" + String.join( "', '", values ) + "')" );
+	}
+
+
+	private static String id( String username )
+	{
+		return Utils.getHashCode( username );
+	}
+}
@@ -0,0 +1,334 @@
+package loadtest;
+
+import controllers.UserService;
+import sql.Database;
+import sql.Dialect;
+import sql.LatencyHistogram;
+import utils.Constants.*;
+import utils.Utils;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LoadTest
+ *
+ * @description Drives simulated sessions against a local database to size the
+ *              JPro server. For every session count in --sessions, that many
+ *              patients log in at once and loop through browsing the calendar,
+ *              booking, editing and cancelling appointments for --duration
+ *              seconds. Each stage reports the throughput and latency
+ *              percentiles of every flow, and how much the heap has grown over
+ *              the idle server, in total and per session.
+ *
+ *              Options (all optional, as --name=value):
+ *                --storage   h2 (default, embedded), memory, config to use
+ *                            database.properties and -Ddatabase.* overrides, or
+ *                            legacy for an embedded database that starts from
+ *                            the untyped tables of LegacyFixture and has to be
+ *                            migrated first.
+ *                --sessions  Session counts to run, in order (1,10,25,50,100).
+ *                --duration  Seconds each stage is measured (30).
+ *                --warmup    Seconds of unreported load before the first stage (10).
+ *                --think     Milliseconds a session pauses between flows (250).
+ *                --dentists  Dentists the sessions book with (10).
+ *                --out       CSV file the results are also written to.
+ *
+ *              The seeded users and their appointments are deleted at the end,
+ *              so a configured database is left as it was found.
+ *
+ */
+public final class LoadTest
+{
+	// Stats -> Timings of the flows of one stage.
+	static final class Stats
+	{
+		final static int OK = 0, REFUSED = 1, FAILED = 2;
+
+		final LatencyHistogram[] latencies = new LatencyHistogram[Session.FLOWS.length];
+		final LongAdder[][] outcomes = new LongAdder[Session.FLOWS.length][3];
+
+		Stats()
+		{
+			for( int i = 0; i < latencies.length; ++i )
+			{
+				latencies[i] = new LatencyHistogram();
+				for( int j = 0; j < 3; ++j )
+				{
+					outcomes[i][j] = new LongAdder();
+				}
+			}
+		}
+
+		void record( int flow, long micros, int outcome )
+		{
+			latencies[flow].record( micros );
+			outcomes[flow][outcome].increment();
+		}
+	}
+
+	// USERNAME_PREFIX -> Start of the usernames of the seeded users, which log in with their username as password.
+	private final static String USERNAME_PREFIX = "loadtest";
+
+	// options -> Command line options, by name.
+	// patients -> Usernames of the seeded patients, one per session.
+	// dentists -> "First Last" of the seeded dentists.
+	// patientIds, dentistIds -> user_id of the seeded users, deleted again at the end.
+	// dates -> Days the sessions book on, as MM/d/yyyy.
+	// lastHeap -> Heap in use (after a GC) at the end of the last stage, while its sessions were still logged in.
+	private final HashMap<String, String> options = new HashMap<>();
+	private final ArrayList<String> patients = new ArrayList<>(), dentists = new ArrayList<>();
+	private final ArrayList<String> patientIds = new ArrayList<>(), dentistIds = new ArrayList<>();
+	private String[] dates;
+	private long lastHeap;
+
+
+	private LoadTest( String[] args )
+	{
+		options.put( "storage", "h2" );
+		options.put( "sessions", "1,10,25,50,100" );
+		options.put( "duration", "30" );
+		options.put( "warmup", "10" );
+		options.put( "think", "250" );
+		options.put( "dentists", "10" );
+		for( String arg : args )
+		{
+			if( !arg.startsWith( "--" ) || !arg.contains( "=" ) )
+			{
+				throw new IllegalArgumentException( "Unknown argument " + arg + ", expected --name=value." );
+			}
+			options.put( arg.substring( 2, arg.indexOf( '=' ) ), arg.substring( arg.indexOf( '=' ) + 1 ) );
+		}
+	}
+
+
+	public static void main( String[] args )
+	{
+		LoadTest test = new LoadTest( args );
+		try
+		{
+			test.run();
+		}
+		catch( Exception e )
+		{
+			System.out.println( "The load test failed." );
+			e.printStackTrace();
+		}
+		finally
+		{
+			test.cleanUp();
+		}
+		System.exit( 0 );
+	}
+
+
+	/**
+	 * run()
+	 *
+	 * @description Connects, seeds, warms up and runs every stage.
+	 *
+	 */
+	private void run() throws Exception
+	{
+		String storage = options.get( "storage" );
+		if( storage.equals( "memory" ) )
+		{
+			Database.connectToMemory();
+		}
+		else if( storage.equals( "config" ) )
+		{
+			Database.connect();
+		}
+		else if( storage.equals( "legacy" ) )
+		{
+			Database.connectTo( Dialect.H2.url( null, "loadtest_legacy" ), "sa", "" );
+			LegacyFixture.install();
+		}
+		else
+		{
+			Database.connectTo( Dialect.H2.url( null, "loadtest" ), "sa", "" );
+		}
+		Database.init( storage.equals( "h2" ) || storage.equals( "memory" ) );
+		if( storage.equals( "legacy" ) )
+		{
+			LegacyFixture.verify();
+		}
+
+		String[] counts = options.get( "sessions" ).split( "," );
+		int most = 0;
+		for( String count : counts )
+		{
+			most = Math.max( most, Integer.parseInt( count.trim() ) );
+		}
+		seed( most, Integer.parseInt( options.get( "dentists" ) ) );
+
+		long think = Long.parseLong( options.get( "think" ) );
+		long warmup = Long.parseLong( options.get( "warmup" ) );
+		if( warmup > 0 )
+		{
+			System.out.println( "Warming up for " + warmup + " s..." );
+			stage( Math.min( most, 10 ), warmup, think );
+		}
+
+		ArrayList<String> csv = new ArrayList<>();
+		csv.add( "sessions,flow,ok,refused,failed,per_second,p50_ms,p95_ms,p99_ms,max_ms,heap_mb,heap_growth_mb,heap_per_session_kb" );
+		long duration = Long.parseLong( options.get( "duration" ) );
+		for( String count : counts )
+		{
+			long idle = usedHeapAfterGc();
+			int sessions = Integer.parseInt( count.trim() );
+			Stats stats = stage( sessions, duration, think );
+			long busy = lastHeap;
+			report( sessions, duration, stats, idle, busy, csv );
+		}
+		if( options.containsKey( "out" ) )
+		{
+			Path out = Paths.get( options.get( "out" ) );
+			if( out.getParent() != null )
+			{
+				Files.createDirectories( out.getParent() );
+			}
+			Files.write( out, csv, StandardCharsets.UTF_8 );
+			System.out.println( "Results written to " + out.toAbsolutePath() );
+		}
+	}
+
+
+	/**
+	 * stage(int, long, long)
+	 *
+	 * @description Runs <sessions> sessions for <seconds> and returns their timings.
+	 *
+	 */
+	private Stats stage( int sessions, long seconds, long thinkMs ) throws InterruptedException
+	{
+		Stats stats = new Stats();
+		String[] dentistNames = dentists.toArray( new String[dentists.size()] );
+		Session[] running = new Session[sessions];
+		Thread[] threads = new Thread[sessions];
+		for( int i = 0; i < sessions; ++i )
+		{
+			running[i] = new Session( patients.get( i ), dentistNames, dates, stats, thinkMs );
+			threads[i] = new Thread( running[i], "session-" + i );
+			threads[i].setDaemon( true );
+			threads[i].start();
+		}
+		Thread.sleep( seconds * 1000 );
+		lastHeap = usedHeapAfterGc();
+		for( Session session : running )
+		{
+			session.stop();
+		}
+		for( Thread thread : threads )
+		{
+			thread.join();
+		}
+		return stats;
+	}
+
+
+	/**
+	 * report(int, long, Stats, long, long, ArrayList)
+	 *
+	 * @description Prints the results of one stage, and adds them to <csv>.
+	 *
+	 */
+	private static void report( int sessions, long seconds, Stats stats, long idle, long busy, ArrayList<String> csv )
+	{
+		double growth = ( busy - idle ) / 1048576.0;
+		System.out.println();
+		System.out.println( "=== " + sessions + " sessions, " + seconds + " s ===" );
+		System.out.println( String.format( "%-8s %8s %8s %8s %9s %9s %9s %9s %9s", "flow", "ok", "refused", "failed", "per sec", "p50 ms", "p95 ms", "p99 ms", "max ms" ) );
+		for( int i = 0; i < Session.FLOWS.length; ++i )
+		{
+			LatencyHistogram latency = stats.latencies[i];
+			long ok = stats.outcomes[i][Stats.OK].sum(), refused = stats.outcomes[i][Stats.REFUSED].sum(), failed = stats.outcomes[i][Stats.FAILED].sum();
+			double perSecond = ( ok + refused + failed ) / (double) seconds;
+			double p50 = latency.percentile( 50 ) / 1000.0, p95 = latency.percentile( 95 ) / 1000.0;
+			double p99 = latency.percentile( 99 ) / 1000.0, max = latency.getMax() / 1000.0;
+			System.out.println( String.format( "%-8s %8d %8d %8d %9.1f %9.1f %9.1f %9.1f %9.1f", Session.FLOWS[i], ok, refused, failed, perSecond, p50, p95, p99, max ) );
+			csv.add( String.format( "%d,%s,%d,%d,%d,%.2f,%.2f,%.2f,%.2f,%.2f,%.1f,%.1f,%.1f", sessions, Session.FLOWS[i], ok, refused, failed,
+				perSecond, p50, p95, p99, max, busy / 1048576.0, growth, growth * 1024 / sessions ) );
+		}
+		System.out.println( String.format( "heap: %.1f MB in use after GC, %+.1f MB over the idle server, %.1f KB per session",
+			busy / 1048576.0, growth, growth * 1024 / sessions ) );
+	}
+
+
+	/**
+	 * seed(int, int)
+	 *
+	 * @description Adds <patientCount> patients and <dentistCount> dentists. A
+	 *              user_id is a hash of the username, so usernames whose id is
+	 *              already taken are skipped. The sessions book on the days the
+	 *              calendar shows as open, so there has to be one left this month.
+	 *
+	 */
+	private void seed( int patientCount, int dentistCount )
+	{
+		ArrayList<String> days = UserService.calendarDates();
+		if( days.isEmpty() )
+		{
+			throw new IllegalStateException( "The calendar has no open days left this month to book on." );
+		}
+		dates = days.toArray( new String[days.size()] );
+
+		HashSet<String> taken = new HashSet<>();
+		ArrayList<String[]> users = new ArrayList<>();
+		for( int k = 0; patients.size() + dentists.size() < patientCount + dentistCount; ++k )
+		{
+			String username = USERNAME_PREFIX + k;
+			String id = Utils.getHashCode( username );
+			if( !taken.add( id ) || TABLES.USERS.table().entryExists( "user_id", id ) )
+			{
+				continue;
+			}
+			boolean dentist = dentists.size() < dentistCount;
+			String first = ( dentist ? "Dentist" : "Patient" ) + k;
+			users.add( new String[] { id, first, "Loadtest", null, username + "@dental.com", "(555) 000-0000",
+				dentist ? TITLES.DENTIST.name() : TITLES.PATIENT.name(), Utils.hash( username + username ), "ENABLED" } );
+			( dentist ? dentists : patients ).add( dentist ? first + " Loadtest" : username );
+			( dentist ? dentistIds : patientIds ).add( id );
+		}
+		TABLES.USERS.table().insertEntries( users.toArray( new String[users.size()][] ) );
+	}
+
+
+	/**
+	 * cleanUp()
+	 *
+	 * @description Deletes the seeded users and every appointment they are in.
+	 *
+	 */
+	private void cleanUp()
+	{
+		if( patientIds.isEmpty() && dentistIds.isEmpty() )
+		{
+			return;
+		}
+		String[] patientArray = patientIds.toArray( new String[patientIds.size()] );
+		String[] dentistArray = dentistIds.toArray( new String[dentistIds.size()] );
+		TABLES.APPOINTMENTS.table().deleteWhereIn( "patient_id", patientArray );
+		TABLES.APPOINTMENTS.table().deleteWhereIn( "employee_id", dentistArray );
+		TABLES.USERS.table().deleteWhereIn( "user_id", patientArray );
+		TABLES.USERS.table().deleteWhereIn( "user_id", dentistArray );
+	}
+
+
+	private static long usedHeapAfterGc() throws InterruptedException
+	{
+		for( int i = 0; i < 3; ++i )
+		{
+			System.gc();
+			Thread.sleep( 100 );
+		}
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+}
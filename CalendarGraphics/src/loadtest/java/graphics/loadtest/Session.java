@@ -0,0 +1,274 @@
+package loadtest;
+
+import controllers.LoginService;
+import controllers.UserService;
+import sql.Database;
+import utils.Constants.*;
+import utils.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Session
+ *
+ * @description One simulated patient using the user screen. Each flow calls the
+ *              same LoginService and UserService methods as the handlers of the
+ *              screen it stands for, on the same Database.async workers, so the
+ *              sessions compete for the worker pool and the connections the
+ *              way browser sessions of one JPro server do. The JavaFX side of
+ *              the handlers (building the nodes) is left out; ScreenBenchmark
+ *              measures that part.
+ *
+ */
+final class Session implements Runnable
+{
+	// FLOWS -> Flows a session goes through, in order. login runs once, the others loop.
+	// LOGIN, BROWSE, BOOK, EDIT, CANCEL -> Index of each flow in FLOWS.
+	// SLOTS -> Starts of the one hour blocks of a day, as the screen lists them.
+	final static String[] FLOWS = { "login", "browse", "book", "edit", "cancel" };
+	final static int LOGIN = 0, BROWSE = 1, BOOK = 2, EDIT = 3, CANCEL = 4;
+	private final static String[] SLOTS = { "0800", "0900", "1000", "1100", "1200", "1300", "1400", "1500" };
+
+	// username, userId -> Patient the session is logged in as.
+	// dentists -> "First Last" of every dentist, as the dentist drop down lists them.
+	// dates -> Days of the month the calendar shows, as MM/d/yyyy.
+	// stats -> Where the flows are timed.
+	// thinkMs -> Pause between two flows, like a user reading the screen.
+	// lastDentist, lastDay -> Dentist and day picked last, which a refresh lists again.
+	private final String username, userId;
+	private final String[] dentists, dates;
+	private final LoadTest.Stats stats;
+	private final long thinkMs;
+	private volatile boolean running = true;
+	private String lastDentist, lastDay;
+
+
+	Session( String username, String[] dentists, String[] dates, LoadTest.Stats stats, long thinkMs )
+	{
+		this.username = username;
+		this.userId = Utils.getHashCode( username );
+		this.dentists = dentists;
+		this.dates = dates;
+		this.stats = stats;
+		this.thinkMs = thinkMs;
+	}
+
+
+	@ Override
+	public void run()
+	{
+		if( !time( LOGIN, this::login ) )
+		{
+			return;
+		}
+		while( running )
+		{
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			String dentist = dentists[random.nextInt( dentists.length )];
+			String day = dates[random.nextInt( dates.length )];
+			String start = SLOTS[random.nextInt( SLOTS.length )];
+			String moveTo = SLOTS[random.nextInt( SLOTS.length )];
+			if( !time( BROWSE, () -> browse( dentist, day ) ) || !running )
+			{
+				continue;
+			}
+			if( !time( BOOK, () -> book( dentist, day, start ) ) || !running )
+			{
+				continue;
+			}
+			// Cancel even when the edit was turned away, so the sessions do not pile up appointments.
+			String[] booked = { start };
+			time( EDIT, () -> edit( dentist, day, booked, moveTo ) );
+			time( CANCEL, () -> cancel( day, booked[0] ) );
+		}
+	}
+
+
+	void stop()
+	{
+		running = false;
+	}
+
+
+	/**
+	 * login()
+	 *
+	 * @description LoginController.signIn, then the refresh of the user screen it
+	 *              opens. Fails if the credentials are not accepted.
+	 *
+	 */
+	private boolean login() throws Exception
+	{
+		if( Database.async( () -> LoginService.authenticate( username, username ) ).get() != AUTH_MSG.VALID_CREDENTIALS )
+		{
+			return false;
+		}
+		if( Database.async( () -> LoginService.getAccount( username ) ).get() == null )
+		{
+			return false;
+		}
+		refresh();
+		return true;
+	}
+
+
+	/**
+	 * browse(String, String)
+	 *
+	 * @description Picking <dentist> and <day> on the user screen (fillAppointments).
+	 *
+	 */
+	private boolean browse( String dentist, String day ) throws Exception
+	{
+		lastDentist = dentist;
+		lastDay = day;
+		Database.async( () -> UserService.appointmentsOf( userId, dentist, day ) ).get();
+		return true;
+	}
+
+
+	/**
+	 * book(String, String, String)
+	 *
+	 * @description UserController.confirmAdd of the block at <start> on <day> with
+	 *              <dentist>. Fails when the block is taken, as it would for a
+	 *              user who was too slow.
+	 *
+	 */
+	private boolean book( String dentist, String day, String start ) throws Exception
+	{
+		String end = end( start );
+		String error = Database.async( () -> UserService.addAppointment( userId, dentist, "Cleaning and Checkup", start, end, day, true ) )
+			.thenCompose( added -> added ).get();
+		if( error != null )
+		{
+			return false;
+		}
+		fillAndCalendar( dentist, day );
+		return true;
+	}
+
+
+	/**
+	 * edit(String, String, String[], String)
+	 *
+	 * @description UserController.confirmEdit moving the appointment at booked[0]
+	 *              on <day> to <moveTo>, after picking it in the list of the day.
+	 *              booked[0] is updated when it moves.
+	 *
+	 */
+	private boolean edit( String dentist, String day, String[] booked, String moveTo ) throws Exception
+	{
+		String start = booked[0], end = end( start );
+		String[] date = day.split( "/" );
+		String month = UserService.monthName( Integer.parseInt( date[0] ) );
+		Boolean edited = Database.async( () -> UserService.editAppointment( userId, day, start, end, moveTo + " - " + end( moveTo ),
+			dentist, "Cleaning and Checkup", date[1], month ) ).get();
+		// null: the transaction failed, most likely because the new block was taken meanwhile.
+		if( !Boolean.TRUE.equals( edited ) )
+		{
+			return false;
+		}
+		booked[0] = moveTo;
+		fillAndCalendar( dentist, day );
+		return true;
+	}
+
+
+	/**
+	 * cancel(String, String)
+	 *
+	 * @description UserController.cancelEdit of the appointment at <start> on
+	 *              <day>, followed by the refresh it triggers.
+	 *
+	 */
+	private boolean cancel( String day, String start ) throws Exception
+	{
+		Boolean deleted = Database.async( () -> UserService.cancelAppointment( userId, day, start, end( start ) ) ).get();
+		if( !Boolean.TRUE.equals( deleted ) )
+		{
+			return false;
+		}
+		refresh();
+		return true;
+	}
+
+
+	/**
+	 * refresh()
+	 *
+	 * @description UserController.refresh for a patient: the booking counts of
+	 *              the calendar, the list of the day picked last, and the dentist
+	 *              drop downs. Like the screen, it starts all three at once.
+	 *
+	 */
+	private void refresh() throws Exception
+	{
+		CompletableFuture<?> calendar = calendar();
+		String dentist = lastDentist, day = lastDay;
+		CompletableFuture<?> list = day == null ? CompletableFuture.completedFuture( null )
+			: Database.async( () -> UserService.appointmentsOf( userId, dentist, day ) );
+		CompletableFuture<?> choices = Database.async( () -> UserService.getTitle( userId ) )
+			.thenCompose( title -> Database.async( () -> UserService.activeNames( TITLES.PATIENT.name().equals( title ) ? TITLES.DENTIST : TITLES.PATIENT ) ) );
+		CompletableFuture.allOf( calendar, list, choices ).get();
+	}
+
+
+	// fillAppointments() and setCalendar(-1), as confirmAdd and confirmEdit run them on success.
+	private void fillAndCalendar( String dentist, String day ) throws Exception
+	{
+		CompletableFuture.allOf( Database.async( () -> UserService.appointmentsOf( userId, dentist, day ) ), calendar() ).get();
+	}
+
+
+	// setCalendar(-1): the booking counts of the days the calendar shows as open.
+	private static CompletableFuture<String[]> calendar()
+	{
+		ArrayList<String> dates = UserService.calendarDates();
+		return Database.async( () -> UserService.calendarStyles( dates ) );
+	}
+
+
+	/**
+	 * time(int, Callable)
+	 *
+	 * @description Runs flow <flow>, records how long it took, and pauses for the
+	 *              think time. Returns false if the flow failed or was turned away.
+	 *
+	 */
+	private boolean time( int flow, Callable<Boolean> body )
+	{
+		long start = System.nanoTime();
+		boolean done;
+		try
+		{
+			done = body.call();
+			stats.record( flow, ( System.nanoTime() - start ) / 1000, done ? LoadTest.Stats.OK : LoadTest.Stats.REFUSED );
+		}
+		catch( Exception e )
+		{
+			done = false;
+			stats.record( flow, ( System.nanoTime() - start ) / 1000, LoadTest.Stats.FAILED );
+		}
+		try
+		{
+			Thread.sleep( thinkMs );
+		}
+		catch( InterruptedException e )
+		{
+			running = false;
+		}
+		return done;
+	}
+
+
+	private static String end( String start )
+	{
+		int slot = Arrays.asList( SLOTS ).indexOf( start );
+		return slot + 1 < SLOTS.length ? SLOTS[slot + 1] : "1600";
+	}
+}
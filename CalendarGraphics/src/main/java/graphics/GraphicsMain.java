@@ -3,7 +3,6 @@ package graphics;
 import javafx.application.Platform;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
-import javafx.scene.layout.Pane;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
@@ -11,15 +10,20 @@ import javafx.stage.Stage;
 import sql.Database;
 import utils.Constants.*;
 import utils.Utils;
+import utils.ActionDispatcher;
+import utils.FXMLCache;
 import controllers.AdminController;
 import controllers.UserController;
-import controllers.SuperController;
+import controllers.SessionContext;
 
 import java.lang.Thread;
 import java.io.IOException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.UncheckedIOException;
 import java.util.EnumMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * GraphicsMain extends Application
@@ -37,9 +41,26 @@ import java.util.EnumMap;
  */
 public final class GraphicsMain extends Application
 {
-	private static Stage calendarStage;
+	// PREFETCH -> Background thread the screens are prefetched on, shared by every session.
+	// databaseReady -> True once the database has been connected and initialized for this JVM.
+	private final static ExecutorService PREFETCH = Executors.newSingleThreadExecutor( task ->
+		{
+			Thread thread = new Thread( task, "screen-prefetch" );
+			thread.setDaemon( true );
+			return thread;
+		}
+	);
+	private static boolean databaseReady = false;
+
+	// session -> Context of the session this instance shows, handed to its controllers.
+	private final SessionContext session;
+	private Stage calendarStage;
 	private SCREEN currentScreen;
+
+	// screenMap -> Screens loaded so far. Only used on the JavaFX Application Thread, like prefetched.
+	// prefetched -> Screens being loaded in the background, not yet in screenMap.
 	private EnumMap<SCREEN, Parent> screenMap;
+	private final EnumMap<SCREEN, CompletableFuture<FXMLLoader>> prefetched = new EnumMap<>( SCREEN.class );
 
 	private UserController userCon;
 	private AdminController adminCon;
@@ -48,18 +69,40 @@ public final class GraphicsMain extends Application
 	/**
 	 * CONSTRUCTOR ()
 	 *
-	 * @description Connects the Web Application to the database and loads the FXML
-	 *              files necessary for the graphical side of the Web Application.
+	 * @description Connects the Web Application to the database, the first time
+	 *              it is constructed. Screens are loaded the first time they are
+	 *              shown, or prefetched in the background (see prefetch). Every
+	 *              session (JPro creates one instance per session) gets its own
+	 *              SessionContext.
 	 *
 	 */
 	public GraphicsMain()
 	{
+		setUpDatabase();
+		this.session = new SessionContext( this );
+		this.screenMap = new EnumMap<>( SCREEN.class );
+	}
+
+
+	/**
+	 * setUpDatabase()
+	 *
+	 * @description Connects to and initializes the database, and adds the admin
+	 *              account if it is missing. Only the first call does anything,
+	 *              so the sessions after the first one start right away.
+	 *
+	 */
+	private static synchronized void setUpDatabase()
+	{
+		if( databaseReady )
+		{
+			return;
+		}
+		// Server, database and dialect are read from database.properties (or -Ddatabase.* overrides).
 		// Database.connectTo( null, "cs341db" ); // LOCALHOST MYSQL DB
-		// Database.init( true );
-		Database.connectTo( "138.49.184.127", "cs341db" ); // MAIN DATABASE FOR PROJECT
-		Database.init( false );
 		// Database.connectTo( "138.49.184.127", "cs341db_test" ); // TEST DATABASE
-		// Database.init( false );
+		Database.connect();
+		Database.init( false );
 
 		if( !( TABLES.USERS.table().entryExists( "user_id", Utils.getHashCode( "admin" ) ) ) )
 		{
@@ -77,57 +120,148 @@ public final class GraphicsMain extends Application
 			};
 			TABLES.USERS.table().insertEntry( entry );
 		}
+		databaseReady = true;
+	}
 
-		this.screenMap = new EnumMap<>( SCREEN.class );
-		try
+
+	/**
+	 * loadScreen(PAGE)
+	 *
+	 * @description Builds this session's copy of the FXML file of <page> and
+	 *              returns the loader, which holds the screen and its controller.
+	 *              The controller is handed this session's context. May run on
+	 *              any thread, as the screen is not shown yet.
+	 *
+	 * @param page -> FXML page to load.
+	 * @throws IOException
+	 */
+	private FXMLLoader loadScreen( PAGE page ) throws IOException
+	{
+		return FXMLCache.load( page, session.controllerFactory() );
+	}
+
+
+	/**
+	 * install(SCREEN, FXMLLoader)
+	 *
+	 * @description Keeps the screen loaded by <loader> as <screen>. If a user it
+	 *              belongs to (an admin for the admin screen, anybody else for
+	 *              the user screen) is already logged in, the screen is refreshed
+	 *              for them, as it missed the refresh of the login.
+	 *
+	 */
+	private void install( SCREEN screen, FXMLLoader loader )
+	{
+		this.screenMap.put( screen, loader.getRoot() );
+		if( screen == SCREEN.ADMIN_SCREEN )
 		{
-			loadScreen( PAGE.LOGIN, SCREEN.LOGIN_SCREEN );
-			loadScreen( PAGE.ADMIN_EMPLOYEE_ROSTER, SCREEN.ADMIN_SCREEN );
-			loadScreen( PAGE.USER_SCREEN, SCREEN.USER_SCREEN );
+			adminCon = loader.getController();
+			if( session.isAdmin() )
+			{
+				adminCon.refresh();
+			}
 		}
-		catch( IOException e )
+		if( screen == SCREEN.USER_SCREEN )
 		{
-			e.printStackTrace();
+			userCon = loader.getController();
+			if( session.isUserLoggedIn() && !session.isAdmin() )
+			{
+				userCon.refresh();
+			}
 		}
 	}
 
 
 	/**
-	 * loadScreen(String, ScreenEnum)
+	 * screen(SCREEN)
 	 *
-	 * @description Loads a new screen onto the Web Application.
+	 * @description Returns <screen>, loading it first if needed, or null if it
+	 *              could not be loaded. A prefetch that has finished is used. One
+	 *              that has not is cancelled and the screen is loaded here, as
+	 *              waiting for it would hold up the JavaFX Application Thread, and
+	 *              with it every session, behind the prefetches of other sessions.
 	 *
-	 * @param fileName -> String corresponding to the name of the FXML file
-	 *                 provided.
-	 * @param screen   -> Key used to keep track of what Screen the application is
-	 *                 on.
-	 * @throws IOException
 	 */
-	private void loadScreen( PAGE page, SCREEN screen ) throws IOException
+	private Parent screen( SCREEN screen )
 	{
-
-		Path path = Paths.get( page.getDir() ).toAbsolutePath();
-
-		FXMLLoader loader = new FXMLLoader( getClass().getResource( path.toString() ) );
-
-		// Parent parent = loader.load();
-		Pane p = loader.load( getClass().getResource( page.getDir() ).openStream() );
-		if( page == PAGE.ADMIN_EMPLOYEE_ROSTER )
+		Parent loaded = this.screenMap.get( screen );
+		if( loaded != null )
 		{
-			if( adminCon == null )
+			return loaded;
+		}
+		FXMLLoader loader = null;
+		CompletableFuture<FXMLLoader> prefetch = prefetched.remove( screen );
+		if( prefetch != null && !prefetch.cancel( false ) )
+		{
+			try
+			{
+				loader = prefetch.getNow( null );
+			}
+			catch( CompletionException e )
 			{
-				adminCon = loader.getController();
+				System.out.println( "Prefetching " + screen + " failed, loading it again." );
+				e.printStackTrace();
 			}
 		}
-		if( page == PAGE.USER_SCREEN )
+		try
 		{
-			if( userCon == null )
+			if( loader == null )
 			{
-				userCon = loader.getController();
+				loader = loadScreen( pageOf( screen ) );
 			}
 		}
+		catch( IOException e )
+		{
+			System.out.println( "Error loading " + screen + "." );
+			e.printStackTrace();
+			return null;
+		}
+		install( screen, loader );
+		return loader.getRoot();
+	}
+
 
-		this.screenMap.put( screen, p );
+	/**
+	 * prefetch(SCREEN...)
+	 *
+	 * @description Starts loading <screens> in the background, so switching to
+	 *              them later does not wait for their FXML to be parsed. Each
+	 *              one is kept once it is loaded.
+	 *
+	 */
+	public void prefetch( SCREEN ... screens )
+	{
+		for( SCREEN screen : screens )
+		{
+			if( this.screenMap.containsKey( screen ) || prefetched.containsKey( screen ) )
+			{
+				continue;
+			}
+			CompletableFuture<FXMLLoader> future = CompletableFuture.supplyAsync( () ->
+				{
+					try
+					{
+						return loadScreen( pageOf( screen ) );
+					}
+					catch( IOException e )
+					{
+						throw new UncheckedIOException( e );
+					}
+				},
+				PREFETCH
+			);
+			prefetched.put( screen, future );
+			future.thenAcceptAsync( loader ->
+				{
+					// Unless switchScreen() has already taken it.
+					if( prefetched.remove( screen, future ) )
+					{
+						install( screen, loader );
+					}
+				},
+				Database.FX_THREAD
+			);
+		}
 	}
 
 
@@ -135,7 +269,8 @@ public final class GraphicsMain extends Application
 	 * start(Stage)
 	 *
 	 * @description Initializes <calendarStage> and initially displays the login
-	 *              screen.
+	 *              screen, then prefetches the user screen most users see after
+	 *              logging in.
 	 *
 	 * @param stage -> ???
 	 */
@@ -144,12 +279,21 @@ public final class GraphicsMain extends Application
 	{
 		calendarStage = stage;
 
-		Scene scene = new Scene( this.screenMap.get( SCREEN.LOGIN_SCREEN ) );
+		Parent login = screen( SCREEN.LOGIN_SCREEN );
+		if( login == null )
+		{
+			throw new IllegalStateException( "The login screen could not be loaded." );
+		}
+		Scene scene = new Scene( login );
+		ActionDispatcher.install( scene );
 		calendarStage.setScene( scene );
 
 		calendarStage.show();
 
 		this.currentScreen = SCREEN.LOGIN_SCREEN;
+
+		// Only admins see the admin screen, so it is loaded once one logs in.
+		prefetch( SCREEN.USER_SCREEN );
 	}
 
 
@@ -175,13 +319,50 @@ public final class GraphicsMain extends Application
 			return;
 		}
 
-		// switch the root
-		calendarStage.getScene().setRoot( this.screenMap.get( screen ) );
+		// switch the root, unless the screen could not be loaded (screen() has reported why)
+		Parent root = screen( screen );
+		if( root == null )
+		{
+			return;
+		}
+		calendarStage.getScene().setRoot( root );
 
 		this.currentScreen = screen;
 	}
 
 
+	/**
+	 * pageOf(SCREEN)
+	 *
+	 * @description Returns the FXML page <screen> is loaded from.
+	 *
+	 */
+	private static PAGE pageOf( SCREEN screen )
+	{
+		switch( screen )
+		{
+			case ADMIN_SCREEN:
+				return PAGE.ADMIN_EMPLOYEE_ROSTER;
+			case USER_SCREEN:
+				return PAGE.USER_SCREEN;
+			default:
+				return PAGE.LOGIN;
+		}
+	}
+
+
+	/**
+	 * getSession()
+	 *
+	 * @description Returns the context of the session this instance shows.
+	 *
+	 */
+	public SessionContext getSession()
+	{
+		return session;
+	}
+
+
 	/**
 	 * refresh()
 	 *
@@ -191,9 +372,12 @@ public final class GraphicsMain extends Application
 	 */
 	public void refresh()
 	{
-		// Refresh admin_employee_roster screen
-		adminCon.refresh();
-		if( SuperController.isUserLoggedIn )
+		// Screens that are not loaded yet are refreshed once they are (see install).
+		if( adminCon != null && session.isAdmin() )
+		{
+			adminCon.refresh();
+		}
+		if( userCon != null && session.isUserLoggedIn() && !session.isAdmin() )
 		{
 			userCon.refresh();
 		}
@@ -1,5 +1,6 @@
 package controllers;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
@@ -25,6 +26,9 @@ import utils.Constants.*;
 
 import java.net.URL;
 import java.util.ResourceBundle;
+import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
+import java.sql.Connection;
 
 /**
  * AdminController extends SuperController implements Initializable
@@ -43,6 +47,14 @@ public final class AdminController extends SuperController implements Initializa
 
 	private MenuButton partner;
 
+	// selecting -> True while the admin is picking users in the roster for a bulk status change.
+	// selectedUsers -> user_id of every picked user.
+	private boolean selecting = false;
+	private final HashSet<String> selectedUsers = new HashSet<>();
+
+	// partnerGeneration -> Bumped by every fillPartners() so the names of an older fill are dropped.
+	private int partnerGeneration = 0;
+
 	/**
 	 * initialize(URL, ResourceBundle)
 	 *
@@ -59,8 +71,6 @@ public final class AdminController extends SuperController implements Initializa
 		this.adminMenuBar.setSpacing( 5.0 );
 
 		adminDefaultMenuBar();
-
-		filterEmployeesToRegister();
 	}
 
 
@@ -68,14 +78,14 @@ public final class AdminController extends SuperController implements Initializa
 	 * refresh()
 	 *
 	 * @description Refreshes all of the components on the screen to be in sync with
-	 *              the Database.
+	 *              the Database. This is also what first fills the roster, once an
+	 *              admin is logged in.
 	 *
 	 */
 	public void refresh()
 	{
 		filterEmployeesToRegister();
-		addAllDentists();
-		addAllHygienists();
+		fillPartners( "DENTIST", "HYGIENIST" );
 	}
 
 
@@ -97,7 +107,7 @@ public final class AdminController extends SuperController implements Initializa
 		createNewAccount.setOnAction( e -> adminAccountCreationBar() );
 
 		Button logout = newButton( "Log Out" );
-		logout.setOnAction( e -> SuperController.logUserOut() );
+		logout.setOnAction( e -> logUserOut() );
 		this.adminMenuBar.getChildren().add( createNewAccount );
 		this.adminMenuBar.getChildren().add( newGap() );
 		this.adminMenuBar.getChildren().add( newGap() );
@@ -106,7 +116,9 @@ public final class AdminController extends SuperController implements Initializa
 		Button fullRoster = newButton("Full Roster");
 		fullRoster.setOnAction( e -> filterEmployeesToRegister() );
 		this.adminMenuBar.getChildren().add( fullRoster );
-		for(int i = 0; i < 10; ++i)
+		this.adminMenuBar.getChildren().add( newGap() );
+		initSelectionArea();
+		for(int i = 0; i < 6; ++i)
 		{
 			this.adminMenuBar.getChildren().add( newGap() );
 		}
@@ -172,6 +184,73 @@ public final class AdminController extends SuperController implements Initializa
 		this.adminMenuBar.getChildren().add( confirmSearch );
 	}
 
+	/**
+	 * initSelectionArea()
+	 *
+	 * @description Adds the buttons that pick many users in the roster and
+	 *              disable or enable all of them at once.
+	 *
+	 */
+	private void initSelectionArea()
+	{
+		Button selectUsers = newButton( selecting ? "Stop Selecting" : "Select Users" );
+		Button disableSelected = newButton( "Disable Selected" );
+		Button enableSelected = newButton( "Enable Selected" );
+		disableSelected.setVisible( selecting );
+		enableSelected.setVisible( selecting );
+
+		selectUsers.setOnAction( e ->
+			{
+				selecting = !selecting;
+				selectedUsers.clear();
+				selectUsers.setText( selecting ? "Stop Selecting" : "Select Users" );
+				disableSelected.setVisible( selecting );
+				enableSelected.setVisible( selecting );
+				filterEmployeesToRegister();
+			}
+		);
+		disableSelected.setOnAction( e -> setStatusOfSelected( STATUSES.DISABLED ) );
+		enableSelected.setOnAction( e -> setStatusOfSelected( STATUSES.ENABLED ) );
+
+		this.adminMenuBar.getChildren().add( selectUsers );
+		this.adminMenuBar.getChildren().add( disableSelected );
+		this.adminMenuBar.getChildren().add( enableSelected );
+	}
+
+	/**
+	 * setStatusOfSelected(STATUSES)
+	 *
+	 * @description Sets every selected user to <status> in one transaction of a
+	 *              few set-based statements. Disabling also deletes every
+	 *              appointment the users are part of, like the status button
+	 *              does for one user.
+	 *
+	 */
+	private void setStatusOfSelected( STATUSES status )
+	{
+		String[] ids = selectedUsers.toArray( new String[selectedUsers.size()] );
+		if( ids.length == 0 )
+		{
+			return;
+		}
+		Database.async( () -> Database.inTransaction( Connection.TRANSACTION_SERIALIZABLE, () ->
+				{
+					if( status == STATUSES.DISABLED )
+					{
+						TABLES.APPOINTMENTS.table().deleteWhereIn( "employee_id", ids );
+						TABLES.APPOINTMENTS.table().deleteWhereIn( "patient_id", ids );
+					}
+					return TABLES.USERS.table().updateWhereIn( "user_id", ids, new String[] { "status" }, new String[] { status.name() } );
+				}
+			),
+			changed ->
+			{
+				selectedUsers.clear();
+				refreshAll();
+			}
+		);
+	}
+
 	/**
 	 * adminAccountCreationBar()
 	 *
@@ -197,15 +276,13 @@ public final class AdminController extends SuperController implements Initializa
 					if(tempTitle.equals("DENTIST"))
 					{
 						partner.setText("Hygienist partner");
-						partner.getItems().clear();
-						addAllHygienists();
+						fillPartners( "HYGIENIST" );
 						partner.setVisible(true);
 					}
 					else if(tempTitle.equals("HYGIENIST"))
 					{
 						partner.setText( "Dentist partner" );
-						partner.getItems().clear();
-						addAllDentists();
+						fillPartners( "DENTIST" );
 						partner.setVisible(true);
 					}
 					else
@@ -230,6 +307,8 @@ public final class AdminController extends SuperController implements Initializa
 		passwordMsg2.setText("Confirm Password");
 		PasswordField checkPassword = newPasswordField();
 		Button createAccount = newButton( "Create Account" );
+		Label accountError = new Label();
+		accountError.setVisible( false );
 
 
 		createAccount.setOnAction( e ->
@@ -248,29 +327,56 @@ public final class AdminController extends SuperController implements Initializa
 			)
 			{
 				// Validates that partnerDB is valid and translates the firstname - lastname to userID
-				String partnerDB = accountType.getText().equals("DENTIST") || accountType.getText().equals("HYGIENIST") ? partner.getText().toLowerCase() : null;
-				partnerDB = partnerDB == null ? null : (partnerDB.equals("Hygienist partner") || partnerDB.equals("Dentist partner")) ? null : partnerDB;
-				partnerDB = TABLES.USERS.table().getValue( new String[] { "first_name", "last_name" }, new String[] { partnerDB.split(" ")[0], partnerDB.split(" ")[1] }, "user_id" );
+				String partnerName = accountType.getText().equals("DENTIST") || accountType.getText().equals("HYGIENIST") ? partner.getText() : null;
+				String[] partnerNames = partnerName == null || partnerName.equals("Hygienist partner") || partnerName.equals("Dentist partner") ? null : partnerName.toLowerCase().split(" ");
 				String[] accountInfo =
 				{
 					Utils.getHashCode( accountLogin.getText().toLowerCase() ),
 					firstName.getText().toLowerCase(),
 					lastName.getText().toLowerCase(),
-					partnerDB,
+					null,
 					email.getText().toLowerCase(),
 					phoneNumber.getText().toLowerCase(),
 					accountType.getText(),
 					Utils.hash( accountLogin.getText().toLowerCase() + accountPassword.getText() ),
 					"ENABLED"
 				};
-				if( TABLES.USERS.table().entryExists( "user_id", Utils.getHashCode( accountLogin.getText() ) ) )
-				{
-					// Raise error message here.
-				} else
-				{
-					TABLES.USERS.table().insertEntry( accountInfo );
-					SuperController.refreshAll();
-				}
+				// The task returns null when the account was created, otherwise the error message to show.
+				Database.asyncCompose( () ->
+					{
+						if( TABLES.USERS.table().entryExists( "user_id", accountInfo[0] ) )
+						{
+							return CompletableFuture.completedFuture( "Username already exists." );
+						}
+						if( partnerNames != null )
+						{
+							accountInfo[TABLES.USERS.getFieldIdx("partner_id")] = TABLES.USERS.table().getValue( new String[] { "first_name", "last_name" }, new String[] { partnerNames[0], partnerNames[1] }, "user_id" );
+						}
+						// Another session may take the username before the insert is committed.
+						return TABLES.USERS.table().queueInsert( accountInfo )
+							.handle( ( count, ex ) -> ex == null && count > 0 )
+							.thenCompose( added -> added ? CompletableFuture.completedFuture( (String) null ) : Database.async( () ->
+								TABLES.USERS.table().entryExists( "user_id", accountInfo[0] ) ? "Username already exists." : "Could not create the account, please try again." ) );
+					},
+					error ->
+					{
+						if( error == null )
+						{
+							accountError.setVisible( false );
+							refreshAll();
+						}
+						else
+						{
+							accountError.setText( error );
+							accountError.setVisible( true );
+						}
+					},
+					ex ->
+					{
+						accountError.setText( "Could not create the account, please try again." );
+						accountError.setVisible( true );
+					}
+				);
 			}
 		} );
 
@@ -286,6 +392,7 @@ public final class AdminController extends SuperController implements Initializa
 		this.adminMenuBar.getChildren().add( checkPassword );
 		this.adminMenuBar.getChildren().add( partner );
 		this.adminMenuBar.getChildren().add( createAccount );
+		this.adminMenuBar.getChildren().add( accountError );
 
 		Button defaultMenu = newButton( "Return" );
 		defaultMenu.setOnAction( e -> adminDefaultMenuBar() );
@@ -320,22 +427,26 @@ public final class AdminController extends SuperController implements Initializa
 
 		if(args.length == 2)
 		{
-			this.employeeRoster.getChildren().clear();
-			int x = 0, y = 0;
-			String[][] entries = TABLES.APPOINTMENTS.table().getAllEntriesFor(args[0], args[1]);
-			for(int i = 0; i < entries.length; ++i )
-			{
-				for(int j = 0; j < entries[i].length; ++j )
+			Database.async( () -> TABLES.APPOINTMENTS.table().getAllEntriesFor(args[0], args[1]), entries ->
 				{
-					Text text = newText( entries[i][j] );
-					this.employeeRoster.add( text, x, y );
-					x++;
+					this.employeeRoster.getChildren().clear();
+					this.employeeRoster.getRowConstraints().clear();
+					int x = 0, y = 0;
+					for(int i = 0; i < entries.length; ++i )
+					{
+						for(int j = 0; j < entries[i].length; ++j )
+						{
+							Text text = newText( entries[i][j] );
+							this.employeeRoster.add( text, x, y );
+							x++;
+						}
+						RowConstraints rowConstraints = newRowConstraints();
+						employeeRoster.getRowConstraints().add( rowConstraints );
+						y++;
+						x = 0;
+					}
 				}
-				RowConstraints rowConstraints = newRowConstraints();
-				employeeRoster.getRowConstraints().add( rowConstraints );
-				y++;
-				x = 0;
-			}
+			);
 		}
 
 	}
@@ -346,7 +457,7 @@ public final class AdminController extends SuperController implements Initializa
 	* @description Filters the Employee Roster (employeeRoster) to show all employees or specific employees (per the search bar)
 	*
 	*/
-	private void filterEmployeesToRegister( String ... args )
+	void filterEmployeesToRegister( String ... args )
 	{
 		String[] fields = { "User ID", "First Name", "Last Name", "Partner ID", "Email", "Phone Number", "Title", "Appointments", "Status" };
 		while( rosterKey.getColumnConstraints().size() < fields.length )
@@ -369,35 +480,38 @@ public final class AdminController extends SuperController implements Initializa
 			GridPane.setHalignment(t, HPos.CENTER);
 		}
 
-		this.employeeRoster.getChildren().clear();
-		if(args.length == 4) // searching by two fields.
-		{
-			String[][] entries = TABLES.USERS.table().getAllEntriesFor( new String[] { args[0], args[1] }, new String[] { args[2], args[3] } );
-			fill(entries);
-		}
-		else if(args.length == 2) // searching by one field.
-		{
-			String[][] entries = TABLES.USERS.table().getAllEntriesFor(args[0], args[1]);
-			fill(entries);
-		}
-		else
-		{
-			String[] titles = { "ADMIN", "DENTIST", "HYGIENIST" };
-			// first dimension: TITLE,
-			// second dimension: EMPLOYEES OF THAT TITLE,
-			// third dimension: VALUES BELONGING TO THAT EMPLOYEE.
-			// Example: { { ADMIN } { {"33333", "John", "Doe", etc... "DENTIST" } } { HYGIENIST } { PATIENT } }
-			String[][][] employeeData = new String[titles.length][][];
-			for( int i = 0; i < titles.length; ++i )
+		Database.async( () ->
 			{
-				employeeData[i] = TABLES.USERS.table().getAllEntriesFor( "title", titles[i] );
-			}
-
-			for( int i = 0; i < employeeData.length; ++i )
+				if(args.length == 4) // searching by two fields.
+				{
+					return new String[][][] { TABLES.USERS.table().getAllEntriesFor( new String[] { args[0], args[1] }, new String[] { args[2], args[3] } ) };
+				}
+				else if(args.length == 2) // searching by one field.
+				{
+					return new String[][][] { TABLES.USERS.table().getAllEntriesFor(args[0], args[1]) };
+				}
+				String[] titles = { "ADMIN", "DENTIST", "HYGIENIST" };
+				// first dimension: TITLE,
+				// second dimension: EMPLOYEES OF THAT TITLE,
+				// third dimension: VALUES BELONGING TO THAT EMPLOYEE.
+				// Example: { { ADMIN } { {"33333", "John", "Doe", etc... "DENTIST" } } { HYGIENIST } { PATIENT } }
+				String[][][] employeeData = new String[titles.length][][];
+				for( int i = 0; i < titles.length; ++i )
+				{
+					employeeData[i] = TABLES.USERS.table().getAllEntriesFor( "title", titles[i] );
+				}
+				return employeeData;
+			},
+			employeeData ->
 			{
-				fill(employeeData[i]);
+				this.employeeRoster.getChildren().clear();
+				this.employeeRoster.getRowConstraints().clear();
+				for( int i = 0; i < employeeData.length; ++i )
+				{
+					fill(employeeData[i]);
+				}
 			}
-		}
+		);
 	}
 
 	/**
@@ -421,6 +535,10 @@ public final class AdminController extends SuperController implements Initializa
 				{
 					addStatusButton(entries, i, j, x, y);
 				}
+				else if(j == TABLES.USERS.getFieldIdx("user_id"))
+				{
+					addSelectableText(entries, i, j, x, y);
+				}
 				else
 				{
 					Text text = newText( entries[i][j] );
@@ -435,6 +553,33 @@ public final class AdminController extends SuperController implements Initializa
 		}
 	}
 
+	/**
+	* addSelectableText(String[][], int ...)
+	*
+	* @description Adds the user ID of an entry to the Employee Roster. While selecting, clicking it picks or drops the user.
+	*
+	*/
+	private void addSelectableText(String[][] entries, int ... args)
+	{
+		String id = entries[args[0]][args[1]];
+		Text text = newText( id );
+		text.setFill( selectedUsers.contains( id ) ? Color.DODGERBLUE : Color.BLACK );
+		text.setOnMouseClicked( e ->
+			{
+				if( !selecting )
+				{
+					return;
+				}
+				if( !selectedUsers.remove( id ) )
+				{
+					selectedUsers.add( id );
+				}
+				text.setFill( selectedUsers.contains( id ) ? Color.DODGERBLUE : Color.BLACK );
+			}
+		);
+		this.employeeRoster.add( text, args[2], args[3] );
+	}
+
 	/**
 	* addAppointmentsButton(String[][], int ...)
 	*
@@ -476,32 +621,46 @@ public final class AdminController extends SuperController implements Initializa
 		status.setOnMouseEntered( e -> Utils.idleToHover( status ) );
 		status.setOnMouseExited( e -> Utils.hoverToIdle( status ) );
 		status.setStyle( entries[a][TABLES.USERS.getFieldIdx("status")].equals("DISABLED") ? Constants.JFX_CSS_RED_BTN_IDLE : Constants.JFX_CSS_GRN_BTN_IDLE );
-		status.setOnAction( e ->
-			{
-				boolean isDisabled = TABLES.USERS.table().getValue(
-					"user_id",
-					entries[a][TABLES.USERS.getFieldIdx("user_id")],
-					"status"
-				).equals("DISABLED");
-				if( isDisabled )
-				{
-					status.setStyle( Constants.JFX_CSS_GRN_BTN_IDLE );
-				}
-				else
+		// Disabling reads the status, deletes the appointments and writes the new
+		// status as one serializable transaction, so two admins toggling the same
+		// user cannot interleave and a failure leaves nothing half done. Nothing
+		// is changed (null) if the user has been deleted meanwhile.
+		status.setOnAction( e -> Database.async( () -> Database.inTransaction( Connection.TRANSACTION_SERIALIZABLE, () ->
+					{
+						String currentStatus = TABLES.USERS.table().getValue(
+							"user_id",
+							entries[a][TABLES.USERS.getFieldIdx("user_id")],
+							"status"
+						);
+						if( currentStatus == null )
+						{
+							return null;
+						}
+						boolean isDisabled = currentStatus.equals("DISABLED");
+						if( !isDisabled )
+						{
+							deleteAllAppointmentsFor(
+								entries[a][TABLES.USERS.getFieldIdx("title")],
+								entries[a][TABLES.USERS.getFieldIdx("user_id")]
+							);
+						}
+						TABLES.USERS.table().editEntry(
+							new String[] { "user_id" },
+							new String[] { entries[a][TABLES.USERS.getFieldIdx("user_id")] },
+							new String[] { "status" },
+							new String[] { isDisabled ? "ENABLED" : "DISABLED" }
+						);
+						return isDisabled;
+					}
+				),
+				wasDisabled ->
 				{
-					status.setStyle( Constants.JFX_CSS_RED_BTN_IDLE );
-					deleteAllAppointmentsFor(
-						entries[a][TABLES.USERS.getFieldIdx("title")],
-						entries[a][TABLES.USERS.getFieldIdx("user_id")]
-					);
+					if( wasDisabled != null )
+					{
+						status.setStyle( wasDisabled ? Constants.JFX_CSS_GRN_BTN_IDLE : Constants.JFX_CSS_RED_BTN_IDLE );
+					}
 				}
-				TABLES.USERS.table().editEntry(
-					new String[] { "user_id" },
-					new String[] { entries[a][TABLES.USERS.getFieldIdx("user_id")] },
-					new String[] { "status" },
-					new String[] { isDisabled ? "ENABLED" : "DISABLED" }
-				);
-			}
+			)
 		);
 		this.employeeRoster.add( status, args[2], args[3] );
 	}
@@ -514,67 +673,62 @@ public final class AdminController extends SuperController implements Initializa
 	*/
 	private void deleteAllAppointmentsFor(String title, String userID)
 	{
-		String[][] allAppointments;
+		String field;
 		if(title.equals("DENTIST"))
 		{
 			if(title.equals("HYGIENIST"))
 			{
 				userID = TABLES.USERS.table().getValue("user_id", userID, "partner_id");
 			}
-		 	allAppointments = TABLES.APPOINTMENTS.table().getAllEntriesFor("employee_id", userID);
+			field = "employee_id";
 		}
 		else
 		{
-			allAppointments = TABLES.APPOINTMENTS.table().getAllEntriesFor("patient_id", userID);
-		}
-		for(int i = 0; i < allAppointments.length; ++i)
-		{
-			TABLES.APPOINTMENTS.table().deleteEntry(TABLES.APPOINTMENTS.fields(), allAppointments[i]);
+			field = "patient_id";
 		}
+		// One DELETE for all of them, instead of reading each one back first.
+		TABLES.APPOINTMENTS.table().deleteEntry(new String[] { field }, new String[] { userID });
 	}
 
+
 	/**
-	* addAllDentists()
+	* fillPartners(String...)
 	*
-	* @description Adds all dentists to menu buttons <partner>
+	* @description Replaces the items of menu button <partner> with every user
+	*              whose title is one of <titles>. The items are cleared once the
+	*              users are read, and only by the latest fill, so fills that
+	*              overlap do not add the same users twice.
 	*
 	*/
-	private void addAllDentists()
+	private void fillPartners( String ... titles )
 	{
-		String[][] allDentists = TABLES.USERS.table().getAllEntriesFor( "title", "DENTIST" );
-		for(int i = 0; i < allDentists.length; ++i)
-		{
-			String name = allDentists[i][TABLES.USERS.getFieldIdx("first_name")] + " " + allDentists[i][TABLES.USERS.getFieldIdx("last_name")];
-			MenuItem m = new MenuItem(name);
-			m.setOnAction( e ->
+		int generation = ++partnerGeneration;
+		Database.async( () ->
+			{
+				ArrayList<String[]> partners = new ArrayList<>();
+				for( String title : titles )
 				{
-					partner.setText(name);
+					partners.addAll( Arrays.asList( TABLES.USERS.table().getAllEntriesFor( "title", title ) ) );
 				}
-			);
-			partner.getItems().add( m );
-		}
-	}
-
-	/**
-	* addAllHygienists()
-	*
-	* @description Adds all hygienists to menu buttons <partner>
-	*
-	*/
-	private void addAllHygienists()
-	{
-		String[][] allHygienists = TABLES.USERS.table().getAllEntriesFor( "title", "HYGIENIST" );
-		for(int i = 0; i < allHygienists.length; ++i)
-		{
-			String name = allHygienists[i][TABLES.USERS.getFieldIdx("first_name")] + " " + allHygienists[i][TABLES.USERS.getFieldIdx("last_name")];
-			MenuItem m = new MenuItem(name);
-			m.setOnAction( e ->
+				return partners;
+			},
+			partners ->
+			{
+				if( generation != partnerGeneration ) return; // A newer fill has been started since.
+				partner.getItems().clear();
+				for( String[] entry : partners )
 				{
-					partner.setText(name);
+					String name = entry[TABLES.USERS.getFieldIdx("first_name")] + " " + entry[TABLES.USERS.getFieldIdx("last_name")];
+					MenuItem m = new MenuItem(name);
+					m.setOnAction( e ->
+						{
+							partner.setText(name);
+						}
+					);
+					partner.getItems().add( m );
 				}
-			);
-			partner.getItems().add( m );
-		}
+			}
+		);
 	}
 
 	/**
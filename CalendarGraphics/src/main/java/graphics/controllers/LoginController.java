@@ -8,9 +8,12 @@ import javafx.scene.control.Tab;
 import javafx.scene.control.Label;
 import javafx.scene.text.Text;
 
+import sql.Database;
 import utils.Constants.*;
 import utils.Utils;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * LoginController extends SuperController
  *
@@ -61,41 +64,37 @@ public final class LoginController extends SuperController
 		String username = this.signInUsernameField.getText().toLowerCase();
 		String password = this.signInPasswordField.getText();
 
-		boolean error = false;
-		AUTH_MSG msg = authenticate( username, password );
+		Database.async( () -> LoginService.authenticate( username, password ), msg -> showSignIn( username, msg ),
+			e -> showError( "Could not sign in, please try again." ) );
+	}
+
 
+	/**
+	 * showSignIn(String, AUTH_MSG)
+	 *
+	 * @description Forwards the user to their respective page if <msg> says their
+	 *              credentials are valid, otherwise shows why they are not.
+	 *
+	 */
+	private void showSignIn( String username, AUTH_MSG msg )
+	{
 		if( msg == AUTH_MSG.VALID_CREDENTIALS )
 		{
-			SuperController.logUserIn(
-					username,
-					TABLES.USERS.table().getValue( "user_id", Utils.getHashCode( username ), "first_name" ),
-					TABLES.USERS.table().getValue( "user_id", Utils.getHashCode( username ), "last_name" )
+			Database.async( () -> LoginService.getAccount( username ),
+				entry ->
+				{
+					// The user may have been deleted since their credentials were checked.
+					if( entry == null )
+					{
+						showError( "The username, \"" + username + "\", does not exist." );
+					}
+					else
+					{
+						showUserScreen( username, entry );
+					}
+				},
+				e -> showError( "Could not sign in, please try again." )
 			);
-			String title = TABLES.USERS.table().getValue( "user_id", Utils.getHashCode( username ), "title" );
-
-			if( TITLES.HYGIENIST.name().equals( title ) )
-			{
-				SuperController.switchScreen( SCREEN.USER_SCREEN );
-			}
-			else if( TITLES.PATIENT.name().equals( title ) )
-			{
-				SuperController.switchScreen( SCREEN.USER_SCREEN );
-			}
-			else if( TITLES.ADMIN.name().equals( title ) )
-			{
-				SuperController.switchScreen( SCREEN.ADMIN_SCREEN );
-			}
-			else if( TITLES.DENTIST.name().equals( title ) )
-			{
-				SuperController.switchScreen( SCREEN.USER_SCREEN );
-			}
-			else
-			{
-				errorMessage.setText( "The username, \"" + username + "\", does not have a valid Title in the database." );
-				errorMessage.setVisible( true );
-			}
-			SuperController.refreshAll();
-			clearSignInFields();
 		}
 		else if( msg == AUTH_MSG.INVALID_CREDENTIALS )
 		{
@@ -124,6 +123,47 @@ public final class LoginController extends SuperController
 	}
 
 
+	/**
+	 * showUserScreen(String, String[])
+	 *
+	 * @description Logs the user in with their USERS <entry> and switches to the
+	 *              screen that belongs to their title.
+	 *
+	 */
+	private void showUserScreen( String username, String[] entry )
+	{
+		String title = entry[TABLES.USERS.getFieldIdx( "title" )];
+		logUserIn(
+				username,
+				entry[TABLES.USERS.getFieldIdx( "first_name" )],
+				entry[TABLES.USERS.getFieldIdx( "last_name" )],
+				title
+		);
+		if( TITLES.HYGIENIST.name().equals( title ) )
+		{
+			switchScreen( SCREEN.USER_SCREEN );
+		}
+		else if( TITLES.PATIENT.name().equals( title ) )
+		{
+			switchScreen( SCREEN.USER_SCREEN );
+		}
+		else if( TITLES.ADMIN.name().equals( title ) )
+		{
+			switchScreen( SCREEN.ADMIN_SCREEN );
+		}
+		else if( TITLES.DENTIST.name().equals( title ) )
+		{
+			switchScreen( SCREEN.USER_SCREEN );
+		}
+		else
+		{
+			errorMessage.setText( "The username, \"" + username + "\", does not have a valid Title in the database." );
+			errorMessage.setVisible( true );
+		}
+		clearSignInFields();
+	}
+
+
 	/**
 	 * signUp()
 	 *
@@ -148,16 +188,7 @@ public final class LoginController extends SuperController
 		boolean usedEmail = false;
 		boolean usedPhone = false;
 
-		if( TABLES.USERS.table().entryExists( "user_id", Utils.getHashCode( username ) ) )
-		{
-			error4.setText( "Username already exists." );
-			error4.setVisible( true );
-			errorExists = true;
-		}
-		else
-		{
-			error4.setVisible( false );
-		}
+		error4.setVisible( false );
 
 		if( !passwordsMatch )
 		{
@@ -233,47 +264,46 @@ public final class LoginController extends SuperController
 				Utils.hash( username + password ),
 				"ENABLED"
 			};
-			TABLES.USERS.table().insertEntry( values );
-			SuperController.refreshAll();
-			clearSignUpFields();
-		}
-	}
-
-
-	/**
-	 * authenticate(<arg_type1> <arg_type2> ... <arg_typeN>)
-	 *
-	 * @description <DESCRIPTION HERE>
-	 *
-	 * @param username
-	 * @param password
-	 * @return
-	 */
-	private AUTH_MSG authenticate( String username, String password )
-	{
-		if( username.length() == 0 )
-		{
-			return AUTH_MSG.VOID_FIELD;
-		}
-
-		if( TABLES.USERS.table().entryExists( "user_id", Utils.getHashCode( username ) ) )
-		{
-			String phash = TABLES.USERS.table().getValue( "user_id", Utils.getHashCode( username ), "pass_hash" );
-
-			if( phash.equals( Utils.hash( username + password ) ) )
-			{
-				if( TABLES.USERS.table().getValue( "user_id", Utils.getHashCode( username ), "status" ).equals("DISABLED") )
+			// The insert is not waited for on the worker. If another session takes
+			// the username first, the primary key turns the insert away.
+			Database.asyncCompose( () ->
+				{
+					if( TABLES.USERS.table().entryExists( "user_id", values[0] ) )
+					{
+						return CompletableFuture.completedFuture( false );
+					}
+					return TABLES.USERS.table().queueInsert( values )
+						.handle( ( count, e ) -> e == null && count > 0 )
+						.thenCompose( added -> added ? CompletableFuture.completedFuture( true ) : Database.async( () ->
+							{
+								if( !TABLES.USERS.table().entryExists( "user_id", values[0] ) )
+								{
+									throw new IllegalStateException( "The account was not created." );
+								}
+								return false;
+							}
+						) );
+				},
+				created ->
 				{
-					return AUTH_MSG.DISABLED_ACCOUNT;
+					if( created )
+					{
+						refreshAll();
+						clearSignUpFields();
+					}
+					else
+					{
+						error4.setText( "Username already exists." );
+						error4.setVisible( true );
+					}
+				},
+				e ->
+				{
+					error4.setText( "Could not create the account, please try again." );
+					error4.setVisible( true );
 				}
-				return AUTH_MSG.VALID_CREDENTIALS;
-			}
-			else
-			{
-				return AUTH_MSG.INVALID_CREDENTIALS;
-			}
+			);
 		}
-		return AUTH_MSG.USER_DOES_NOT_EXIST;
 	}
 
 
@@ -300,6 +330,19 @@ public final class LoginController extends SuperController
 		error4.setText( "" );
 	}
 
+	/**
+	 * showError(String)
+	 *
+	 * @description Shows <message> under the sign in fields.
+	 *
+	 */
+	private void showError( String message )
+	{
+		errorMessage.setText( message );
+		errorMessage.setVisible( true );
+	}
+
+
 	private void clearSignInFields()
 	{
 		signInUsernameField.setText( "" );
@@ -0,0 +1,69 @@
+package controllers;
+
+import utils.Constants.*;
+import utils.Utils;
+
+/**
+ * LoginService
+ *
+ * @description The database side of the handlers of LoginController, run off
+ *              the JavaFX Application Thread. The load test signs its sessions
+ *              in through the same methods.
+ *
+ */
+public final class LoginService
+{
+	private LoginService()
+	{
+	}
+
+
+	/**
+	 * authenticate(String, String)
+	 *
+	 * @description Checks <password> against the account of <username>, and
+	 *              returns whether it may sign in or why not.
+	 *
+	 */
+	public static AUTH_MSG authenticate( String username, String password )
+	{
+		if( username.length() == 0 )
+		{
+			return AUTH_MSG.VOID_FIELD;
+		}
+
+		// One keyed read; getAccount() then reads the same entry from the row cache.
+		String[] entry = TABLES.USERS.table().getEntry( "user_id", Utils.getHashCode( username ) );
+		if( entry != null )
+		{
+			String phash = entry[TABLES.USERS.getFieldIdx( "pass_hash" )];
+
+			if( phash.equals( Utils.hash( username + password ) ) )
+			{
+				if( entry[TABLES.USERS.getFieldIdx( "status" )].equals("DISABLED") )
+				{
+					return AUTH_MSG.DISABLED_ACCOUNT;
+				}
+				return AUTH_MSG.VALID_CREDENTIALS;
+			}
+			else
+			{
+				return AUTH_MSG.INVALID_CREDENTIALS;
+			}
+		}
+		return AUTH_MSG.USER_DOES_NOT_EXIST;
+	}
+
+
+	/**
+	 * getAccount(String)
+	 *
+	 * @description Returns the USERS entry of <username>, or null if there is
+	 *              none (anymore).
+	 *
+	 */
+	public static String[] getAccount( String username )
+	{
+		return TABLES.USERS.table().getEntry( "user_id", Utils.getHashCode( username ) );
+	}
+}
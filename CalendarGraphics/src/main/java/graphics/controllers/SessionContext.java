@@ -0,0 +1,183 @@
+package controllers;
+
+import graphics.GraphicsMain;
+import javafx.util.Callback;
+import utils.Constants.*;
+import utils.Utils;
+
+/**
+ * SessionContext
+ *
+ * @description Everything that belongs to one session of the Web Application:
+ *              its GraphicsMain (the stage, screens and screen controllers) and
+ *              the user logged in on it. Every controller a session loads is
+ *              handed the session's context by controllerFactory(), so many
+ *              sessions can run in one JVM without seeing each other's user.
+ *              The database, its connection pool and its tables are shared by
+ *              every session; they hold no state of a single user.
+ *
+ */
+public final class SessionContext
+{
+	// graphicsMain -> Application instance of this session.
+	// user_id, username, firstName, lastName, title -> User logged in on this session, or null.
+	// userLoggedIn -> True while a user is logged in on this session.
+	private final GraphicsMain graphicsMain;
+	private volatile String user_id, username, firstName, lastName, title;
+	private volatile boolean userLoggedIn = false;
+
+
+	/**
+	 * CONSTRUCTOR (GraphicsMain)
+	 *
+	 * @description Creates the context of the session shown by <graphicsMain>,
+	 *              with nobody logged in.
+	 *
+	 */
+	public SessionContext( GraphicsMain graphicsMain )
+	{
+		this.graphicsMain = graphicsMain;
+	}
+
+
+	/**
+	 * controllerFactory()
+	 *
+	 * @description Returns the controller factory of the FXMLLoaders of this
+	 *              session. It creates controllers the way FXMLLoader would, and
+	 *              hands every SuperController this context before the FXML
+	 *              initializes it.
+	 *
+	 */
+	public Callback<Class<?>, Object> controllerFactory()
+	{
+		return type ->
+			{
+				try
+				{
+					Object controller = type.getDeclaredConstructor().newInstance();
+					if( controller instanceof SuperController )
+					{
+						( (SuperController) controller ).session = this;
+					}
+					return controller;
+				}
+				catch( ReflectiveOperationException e )
+				{
+					throw new IllegalStateException( "Could not create the controller " + type.getName(), e );
+				}
+			};
+	}
+
+
+	/**
+	 * switchScreen(SCREEN)
+	 *
+	 * @description Switches this session to <screen>.
+	 *
+	 */
+	public void switchScreen( SCREEN screen )
+	{
+		graphicsMain.switchScreen( screen );
+	}
+
+
+	/**
+	 * prefetchScreens(SCREEN...)
+	 *
+	 * @description Loads <screens> of this session in the background, ahead of
+	 *              switchScreen.
+	 *
+	 */
+	public void prefetchScreens( SCREEN ... screens )
+	{
+		graphicsMain.prefetch( screens );
+	}
+
+
+	/**
+	 * refreshAll()
+	 *
+	 * @description Refreshes every screen of this session.
+	 *
+	 */
+	public void refreshAll()
+	{
+		graphicsMain.refresh();
+	}
+
+
+	/**
+	 * logUserIn(String, String, String, String)
+	 *
+	 * @description Logs <username>, whose title is <title>, in on this session
+	 *              and refreshes its screens.
+	 *
+	 */
+	public void logUserIn( String username, String firstName, String lastName, String title )
+	{
+		this.user_id = Utils.getHashCode( username );
+		this.username = username;
+		this.firstName = firstName;
+		this.lastName = lastName;
+		this.title = title;
+		this.userLoggedIn = true;
+		refreshAll();
+	}
+
+
+	/**
+	 * logUserOut()
+	 *
+	 * @description Forgets the user of this session and goes back to the login
+	 *              screen.
+	 *
+	 */
+	public void logUserOut()
+	{
+		this.user_id = null;
+		this.username = null;
+		this.firstName = null;
+		this.lastName = null;
+		this.title = null;
+		this.userLoggedIn = false;
+		switchScreen( SCREEN.LOGIN_SCREEN );
+	}
+
+
+	// GETTERS
+	public boolean isUserLoggedIn()
+	{
+		return userLoggedIn;
+	}
+
+
+	public boolean isAdmin()
+	{
+		return userLoggedIn && TITLES.ADMIN.name().equals( title );
+	}
+
+
+	public String getUserId()
+	{
+		return user_id;
+	}
+
+
+	public String getUsername()
+	{
+		return username;
+	}
+
+
+	public String getFirstName()
+	{
+		return firstName;
+	}
+
+
+	public String getLastName()
+	{
+		return lastName;
+	}
+}
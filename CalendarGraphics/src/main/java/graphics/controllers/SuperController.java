@@ -1,15 +1,14 @@
 package controllers;
 
-import graphics.GraphicsMain;
 import utils.Constants.*;
-import utils.Utils;
 
 /**
  * SuperController
  *
  * @description Shares functionality of GraphicsMain with different
- *              SuperControllers. This is also used to keep track of the current
- *              User (if logged in) and their information.
+ *              SuperControllers. This is also used to reach the current User (if
+ *              logged in) and their information, kept by the SessionContext of
+ *              the controller's session.
  *
  * @edit_history
  * @edited Oct. 22, 2019: Travis Zuleger -> Added the ability to hold
@@ -24,10 +23,8 @@ import utils.Utils;
 public abstract class SuperController
 {
 
-	public static boolean isUserLoggedIn = false;
-
-	private static GraphicsMain graphicsMain = new GraphicsMain();
-	private static String user_id, username, firstName, lastName;
+	// session -> Context of the session this controller belongs to, set by SessionContext.controllerFactory().
+	SessionContext session;
 
 	/**
 	 * switchScreen(ScreenEnum)
@@ -37,82 +34,104 @@ public abstract class SuperController
 	 * @param screen -> Enum that is used as a key to what screen is being
 	 *                   displayed.
 	 */
-	public static void switchScreen( SCREEN screen )
+	public void switchScreen( SCREEN screen )
 	{
-		graphicsMain.switchScreen( screen );
+		session.switchScreen( screen );
 	}
 
+	/**
+	 * prefetchScreens(SCREEN...)
+	 *
+	 * @description Loads <screens> in the background, ahead of switchScreen.
+	 *
+	 */
+	public void prefetchScreens( SCREEN ... screens )
+	{
+		session.prefetchScreens( screens );
+	}
+
+
 	/**
 	 * refreshAll()
 	 *
-	 * @description <DESCRIPTION HERE>
+	 * @description Refreshes every screen of this controller's session.
 	 *
 	 */
 
-	public static void refreshAll()
+	public void refreshAll()
 	{
-		graphicsMain.refresh();
+		session.refreshAll();
 	}
 
 
 	/**
-	 * login(String, String, String)
+	 * login(String, String, String, String)
 	 *
-	 * @description Saves the strings <username>, <firstName>, and <lastName> to the
-	 *              static variables in SuperController
+	 * @description Saves the strings <username>, <firstName>, <lastName> and
+	 *              <title> to the context of this controller's session
 	 *
 	 * @param username  -> Username of the given user who just logged in.
 	 * @param firstName -> First name of the given user who just logged in.
 	 * @param lastName  -> Last name of the given user who just logged in.
+	 * @param title     -> TITLES name of the given user who just logged in.
 	 */
-	public static void logUserIn( String username, String firstName, String lastName )
+	public void logUserIn( String username, String firstName, String lastName, String title )
 	{
-		SuperController.user_id = Utils.getHashCode( username );
-		SuperController.username = username;
-		SuperController.firstName = firstName;
-		SuperController.lastName = lastName;
-		SuperController.isUserLoggedIn = true;
-		SuperController.refreshAll();
+		session.logUserIn( username, firstName, lastName, title );
 	}
 
 
 	/**
 	 * logout()
 	 *
-	 * @description Set the static variables in SuperController to null, as the user
-	 *              should no longer be accessed.
+	 * @description Clears the user from the context of this controller's session,
+	 *              as the user should no longer be accessed.
 	 *
 	 */
-	public static void logUserOut()
+	public void logUserOut()
 	{
-		SuperController.username = null;
-		SuperController.firstName = null;
-		SuperController.lastName = null;
-		SuperController.isUserLoggedIn = false;
-		SuperController.switchScreen( SCREEN.LOGIN_SCREEN );
+		session.logUserOut();
 	}
 
 
 	// GETTERS
-	public static String getUserId()
+	public SessionContext getSession()
+	{
+		return session;
+	}
+
+
+	public boolean isUserLoggedIn()
+	{
+		return session.isUserLoggedIn();
+	}
+
+
+	public boolean isAdmin()
+	{
+		return session.isAdmin();
+	}
+
+
+	public String getUserId()
 	{
-		return user_id;
+		return session.getUserId();
 	}
 
 
-	public static String getUsername()
+	public String getUsername()
 	{
-		return username;
+		return session.getUsername();
 	}
 
 
-	public static String getFirstName()
+	public String getFirstName()
 	{
-		return firstName;
+		return session.getFirstName();
 	}
 
-	public static String getLastName()
+	public String getLastName()
 	{
-		return lastName;
+		return session.getLastName();
 	}
 }
@@ -85,6 +85,11 @@ public final class UserController extends SuperController implements Initializab
 
 	private String mmddyyyy = null;
 
+	// fillGeneration -> Bumped by every fillAppointments() so the results of an older fill are dropped.
+	// choiceGeneration -> Bumped by every initChoiceBoxes() so the names of an older init are dropped.
+	private int fillGeneration = 0;
+	private int choiceGeneration = 0;
+
 	/**
 	 * initialize(URL, ResourceBundle)
 	 *
@@ -118,6 +123,7 @@ public final class UserController extends SuperController implements Initializab
 		initNode.invoke( editNewTimeDropDown, Constants.JFX_CSS_YEL_BTN_IDLE );
 		initNode.invoke( editMonthDropDown, Constants.JFX_CSS_YEL_BTN_IDLE );
 		initNode.invoke( editNewMonthDropDown, Constants.JFX_CSS_YEL_BTN_IDLE );
+		listenersCBinit();
 	}
 
 
@@ -144,7 +150,7 @@ public final class UserController extends SuperController implements Initializab
 	 */
 	public void logout()
 	{
-		SuperController.logUserOut();
+		logUserOut();
 	}
 
 
@@ -188,74 +194,34 @@ public final class UserController extends SuperController implements Initializab
 		}
 		String start = ( ( String ) editTimeDropDown.getValue() ).split( " - " )[0];
 		String end = ( ( String ) editTimeDropDown.getValue() ).split( " - " )[1];
-		String title = TABLES.USERS.table().getValue( "user_id", SuperController.getUserId(), "title" );
-		boolean isEmployee = title.equals("DENTIST") || title.equals("HYGIENIST");
-		String[] fields, values;
-		if ( isEmployee )
-		{
-			fields = new String[] { "employee_id", "MM_DD_YYYY", "block_start", "block_end" };
-			values = new String[] { SuperController.getUserId(), mmddyyyy, start, end };
-		}
-		else
-		{
-			fields = new String[] { "patient_id", "MM_DD_YYYY", "block_start", "block_end" };
-			values = new String[] { SuperController.getUserId(), mmddyyyy, start, end };
-		}
-		boolean aptExists = TABLES.APPOINTMENTS.table().entryExists( fields, values );
-
-		if( aptExists )
-		{
-			editErrorMsg.setVisible( false );
-			String[] originalEntry = TABLES.APPOINTMENTS.table().getEntry( fields, values );
-			String[] newEntry = Arrays.copyOf( originalEntry, originalEntry.length );
-			if( editNewTimeDropDown.getValue() != null )
-			{
-				String[] vals = ( ( String ) editNewTimeDropDown.getValue() ).split( " - " );
-				newEntry[TABLES.APPOINTMENTS.getFieldIdx("block_start")] = vals[0];
-				newEntry[TABLES.APPOINTMENTS.getFieldIdx("block_end")] = vals[1];
-			}
-			if( editReqFacDropDown.getValue() != null ) // Edit the faculty of the appointment.
+		String userId = getUserId();
+		String day = mmddyyyy;
+		String newTime = editNewTimeDropDown.getValue();
+		String newFac = editReqFacDropDown.getValue();
+		String newAptType = editAptTypeDropDown.getValue();
+		String newDay = editNewDayTextField.getText();
+		String newMonthName = editNewMonthDropDown.getValue();
+		Database.async( () -> UserService.editAppointment( userId, day, start, end, newTime, newFac, newAptType, newDay, newMonthName ),
+			edited ->
 			{
-				String[] nameTokens = ((String) editReqFacDropDown.getValue()).split(" ");
-				String newEmployeeID = TABLES.USERS.table().getValue(
-					new String[] { "first_name", "last_name" },
-					new String[] { nameTokens[0], nameTokens[1] },
-					"user_id"
-				);
-				newEntry[TABLES.APPOINTMENTS.getFieldIdx("employee_id")] = newEmployeeID;
-			}
-			if( editAptTypeDropDown.getValue() != null ) // Edit the description of the appointment.
-			{
-				newEntry[TABLES.APPOINTMENTS.getFieldIdx("description")] = ( String ) editAptTypeDropDown.getValue();
-			}
-			String newDay = editNewDayTextField.getText();
-			String newMonth = (String) editNewMonthDropDown.getValue();
-			String[] months = { "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec" };
-			for(int i = 0; i < months.length; ++i)
-			{
-				if( newMonth.equals(months[i]) )
+				if( edited == null )
 				{
-					newMonth = "" + (i + 1);
+					editErrorMsg.setText( "The appointment could not be changed, please try again." );
+					editErrorMsg.setVisible( true );
+				}
+				else if( edited )
+				{
+					editErrorMsg.setVisible( false );
+					fillAppointments();
+					setCalendar( -1 );
+				}
+				else
+				{
+					editErrorMsg.setText( "The time you had selected does not have an appointment \nor it does not belong to you." );
+					editErrorMsg.setVisible( true );
 				}
 			}
-			String newMMDDYYYY = newMonth + "/" + newDay + "/" + mmddyyyy.split("/")[2];
-			//if( newDay < 1 || newDay > getDaysInMonth(newMonth) )
-			newEntry[TABLES.APPOINTMENTS.getFieldIdx("MM_DD_YYYY")] = newMMDDYYYY;
-			TABLES.APPOINTMENTS.table().editEntry(
-				TABLES.APPOINTMENTS.fields(),
-				originalEntry,
-				TABLES.APPOINTMENTS.fields(),
-				newEntry
-			);
-			editErrorMsg.setVisible( false );
-			fillAppointments();
-			setCalendar( -1 );
-		}
-		else
-		{
-			editErrorMsg.setText( "The time you had selected does not have an appointment \nor it does not belong to you." );
-			editErrorMsg.setVisible( true );
-		}
+		);
 	}
 
 
@@ -276,19 +242,17 @@ public final class UserController extends SuperController implements Initializab
 		}
 		String start = ( ( String ) editTimeDropDown.getValue() ).split( " - " )[0];
 		String end = ( ( String ) editTimeDropDown.getValue() ).split( " - " )[1];
-		String[] fields = { "patient_id", "MM_DD_YYYY", "block_start", "block_end" };
-		String[] values = { SuperController.getUserId(), mmddyyyy, start, end };
-		boolean aptExists1 = TABLES.APPOINTMENTS.table().entryExists( fields, values );
-		fields = new String[] { "employee_id", "MM_DD_YYYY", "block_start", "block_end" };
-		values = new String[] { SuperController.getUserId(), mmddyyyy, start, end };
-		boolean aptExists2 = TABLES.APPOINTMENTS.table().entryExists( fields, values );
-		if( aptExists1 || aptExists2 )
-		{
-			fields = new String[] { aptExists1 ? "patient_id" : "employee_id", "MM_DD_YYYY", "block_start", "block_end" };
-			values = new String[] { SuperController.getUserId(), mmddyyyy, start, end };
-			TABLES.APPOINTMENTS.table().deleteEntry( fields, values );
-			SuperController.refreshAll();
-		}
+		String userId = getUserId();
+		String day = mmddyyyy;
+		Database.async( () -> UserService.cancelAppointment( userId, day, start, end ),
+			deleted ->
+			{
+				if( Boolean.TRUE.equals( deleted ) )
+				{
+					refreshAll();
+				}
+			}
+		);
 	}
 
 
@@ -309,57 +273,47 @@ public final class UserController extends SuperController implements Initializab
 		}
 		String start = ( ( String ) addTimeDropDown.getValue() ).split( " - " )[0];
 		String end = ( ( String ) addTimeDropDown.getValue() ).split( " - " )[1];
-		String empName[] = ( ( String ) addReqFacDropDown.getValue() ).split(" ");
-		String employeeID = TABLES.USERS.table().getValue( new String[] { "first_name", "last_name" }, new String[] { empName[0], empName[1] }, "user_id");
-		String[] fields = { "employee_id", "MM_DD_YYYY", "block_start", "block_end" };
-		String[] values = { employeeID, mmddyyyy, start, end };
-		boolean isUnavailable = TABLES.APPOINTMENTS.table().entryExists( fields, values );
-		if( isUnavailable )
-		{
-			handleAptAddError();
-			return;
-		}
-
-		String[] vals;
-		if(TABLES.USERS.table().getValue("user_id", employeeID, "title").equals("PATIENT"))
-		{
-			vals =
-			new String[] {
-				employeeID,
-				SuperController.getUserId(),
-				( String ) addAptTypeDropDown.getValue(),
-				( ( String ) addTimeDropDown.getValue() ).split( " - " )[0],
-				( ( String ) addTimeDropDown.getValue() ).split( " - " )[1],
-				mmddyyyy
-			};
-		}
-		else
-		{
-			vals =
-			new String[] {
-				SuperController.getUserId(),
-				employeeID,
-				( String ) addAptTypeDropDown.getValue(),
-				( ( String ) addTimeDropDown.getValue() ).split( " - " )[0],
-				( ( String ) addTimeDropDown.getValue() ).split( " - " )[1],
-				mmddyyyy
-			};
-		}
-		TABLES.APPOINTMENTS.table().insertEntry( vals );
-		fillAppointments();
-		setCalendar( -1 );
+		String facultyName = ( String ) addReqFacDropDown.getValue();
+		String aptType = ( String ) addAptTypeDropDown.getValue();
+		String userId = getUserId();
+		String day = mmddyyyy;
+		boolean hasSelection = selectedEmployee != null && selectedEmployee.getValue() != null;
+		// The task returns null when the appointment was added, otherwise the
+		// error message to show ("" for none). The insert is not waited for on
+		// the worker (see UserService.addAppointment).
+		Database.asyncCompose( () -> UserService.addAppointment( userId, facultyName, aptType, start, end, day, hasSelection ),
+			error ->
+			{
+				if( error == null )
+				{
+					fillAppointments();
+					setCalendar( -1 );
+				}
+				else if( !error.isEmpty() )
+				{
+					addErrorMsg.setText( error );
+					addErrorMsg.setVisible( true );
+				}
+			},
+			e ->
+			{
+				addErrorMsg.setText( "Could not add the appointment, please try again." );
+				addErrorMsg.setVisible( true );
+			}
+		);
 	}
 
 
-	/**
+		/**
 	 * setCalendar(int)
 	 *
 	 * @description Graphically creates and refreshes the calendar initially and
 	 *              when Refresh is called.
 	 *
 	 */
-	private void setCalendar( int month )
+	void setCalendar( int month )
 	{
+		calendarGrid.getChildren().clear();
 		ReturnFunction style = args ->
 			{
 				Button b = new Button( (String) args[0] );
@@ -382,6 +336,8 @@ public final class UserController extends SuperController implements Initializab
 			int firstWeekDay = cal.get( Calendar.DAY_OF_WEEK );
 			int dayOfMonth = 1;
 			int dayOfWeek = firstWeekDay;
+			ArrayList<Button> days = new ArrayList<>();
+			ArrayList<String> dates = new ArrayList<>();
 			for( int i = 0; i < calendarGrid.getRowCount(); ++i )
 			{
 				for( int j = 0; j < calendarGrid.getColumnCount(); ++j )
@@ -393,7 +349,7 @@ public final class UserController extends SuperController implements Initializab
 						continue;
 					}
 					Button b = (Button) style.invoke( "" + dayOfMonth, Constants.JFX_CSS_GRN_BTN_IDLE );
-					if( isOffDay( dayOfMonth, today, dayOfWeek, cal.get( Calendar.MONTH ) ) )
+					if( UserService.isOffDay( dayOfMonth, today, dayOfWeek, cal.get( Calendar.MONTH ) ) )
 					{
 						b.setStyle( Constants.JFX_CSS_DGRY_BTN_IDLE );
 						calendarGrid.add( b, j, i );
@@ -401,11 +357,10 @@ public final class UserController extends SuperController implements Initializab
 						dayOfWeek = dayOfWeek >= 7 ? 1 : dayOfWeek + 1; // Roll over day of the week
 						continue;
 					}
-					String[] months = { "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec" };
 					final String mmf = mm.format( date ), yyyyf = yyyy.format( date ); // MM format
 					final String mmddyyyy = mmf + "/" + dayOfMonth + "/" + yyyyf; // YYYY format
 					final int d = dayOfMonth;
-					final String m = months[Integer.parseInt(mmf) - 1]; // Month as name.
+					final String m = UserService.MONTHS[Integer.parseInt(mmf) - 1]; // Month as name.
 					b.setOnAction( e ->
 						{
 							editMonthDropDown.setValue( m );
@@ -417,24 +372,27 @@ public final class UserController extends SuperController implements Initializab
 						}
 					);
 
-					if( TABLES.APPOINTMENTS.table().entryExists( "MM_DD_YYYY", mmddyyyy ) )
-					{
-						String newStyle;
-						if( TABLES.APPOINTMENTS.table().getAllEntriesFor( "MM_DD_YYYY", mmddyyyy ).length == 8)
-						{
-							newStyle = Constants.JFX_CSS_RED_BTN_IDLE;
-						}
-						else
-						{
-							newStyle = Constants.JFX_CSS_YEL_BTN_IDLE;
-						}
-						b.setStyle( newStyle );
-					}
+					days.add( b );
+					dates.add( mmddyyyy );
 					calendarGrid.add( b, j, i );
 					dayOfMonth++;
 					dayOfWeek = dayOfWeek >= 7 ? 1 : dayOfWeek + 1; // Roll over day of the week.
 				}
 			}
+
+			// Color the open days by how booked they are once the counts come back.
+			Database.async( () -> UserService.calendarStyles( dates ),
+				styles ->
+				{
+					for( int k = 0; k < styles.length; ++k )
+					{
+						if( styles[k] != null )
+						{
+							days.get( k ).setStyle( styles[k] );
+						}
+					}
+				}
+			);
 		}
 	}
 
@@ -449,33 +407,13 @@ public final class UserController extends SuperController implements Initializab
 		return (i == 0 && j < (firstWeekDay - 1)) || day > 31;
 	}
 
-	/**
-	* isOffDay(int, int ,int, int )
-	*
-	* @description Returns a boolean based on whether that day is an off day.
-	*
-	*/
-	private boolean isOffDay( int day, int today, int dayOfWeek, int month )
-	{
-		month++;
-		String[] holidays = { "12/24", "12/25", "12/31", "01/01" }; // Only these holidays for the demo and project, otherwise insert all known holidays that rely on day of the month.
-		boolean isHoliday = false;
-		String todayString = month + "/" + day;
-		for(int k = 0; k < holidays.length; ++k)
-		{
-			isHoliday = todayString.equals(holidays[k]);
-			if( isHoliday ) return isHoliday;
-		}
-		return dayOfWeek == 1 || dayOfWeek == 7 || day < today;
-	}
-
 	/**
 	 * fillAppointments()
 	 *
 	 * @description Fills the appointments list with all appointments for that day.
 	 *
 	 */
-	private void fillAppointments()
+	void fillAppointments()
 	{
 		listOfAppointments.getItems().clear();
 		if(mmddyyyy == null)
@@ -524,15 +462,21 @@ public final class UserController extends SuperController implements Initializab
 				});
 			};
 
-		final int BUSINESS_HOURS_START = 8, BUSINESS_HOURS_END = 16;
-		if(TABLES.USERS.table().getValue("user_id", SuperController.getUserId(), "title").equals("PATIENT"))
-		{
-			patientFA( __add_to_pane__ );
-		}
-		else
-		{
-			employeeFA( __add_to_pane__ );
-		}
+		if(selectedEmployee == null || selectedEmployee.getValue() == null) return;
+		String selected = selectedEmployee.getValue();
+		String userId = getUserId();
+		String day = mmddyyyy;
+		int generation = ++fillGeneration;
+		Database.async( () -> UserService.appointmentsOf( userId, selected, day ),
+			blocks ->
+			{
+				if( generation != fillGeneration ) return; // A newer fill has been started since.
+				for( String[] block : blocks )
+				{
+					__add_to_pane__.invoke( block );
+				}
+			}
+		);
 	}
 
 	/**
@@ -541,133 +485,30 @@ public final class UserController extends SuperController implements Initializab
 	 * @description Creates the Choice Boxes with the items that need to be added.
 	 *
 	 */
-	private void initChoiceBoxes()
+	void initChoiceBoxes()
 	{
 		clearChoiceBoxes();
 
 		monthAndTimeCBinit();
 
-		if(TABLES.USERS.table().getValue( "user_id", SuperController.getUserId(), "title" ).equals( TITLES.PATIENT.name() ) )
-		{
-			patientCBinit();
-		}
-		else
-		{
-			employeeCBinit();
-		}
-
-		listenersCBinit();
-	}
-
-	/**
-	 * handleAptAddError()
-	 *
-	 * @description Sets the error messages to visible and to their respective
-	 *              messages when an add appointment fails.
-	 *
-	 */
-	private void handleAptAddError()
-	{
-		if(selectedEmployee == null || selectedEmployee.getValue() == null) return;
-		String start = ( ( String ) addTimeDropDown.getValue() ).split( " - " )[0]; // start = xx of xx:yy
-		String end = ( ( String ) addTimeDropDown.getValue() ).split( " - " )[1]; // end = yy of xx:yy
-
-		String[] fields = new String[] { "patient_id", "MM_DD_YYYY", "block_start", "block_end" };
-		String[] values = new String[] { SuperController.getUserId(), mmddyyyy, start, end };
-		boolean belongsToUser1 = TABLES.APPOINTMENTS.table().entryExists( fields, values );
-
-		fields = new String[] { "employee_id", "MM_DD_YYYY", "block_start", "block_end" };
-		values = new String[] { SuperController.getUserId(), mmddyyyy, start, end };
-		boolean belongsToUser2 = TABLES.APPOINTMENTS.table().entryExists( fields, values );
-
-		if( belongsToUser1 || belongsToUser2 )
-		{
-			addErrorMsg.setText( "You already reserved this time for an appointment!" );
-		} else
-		{
-			addErrorMsg.setText( "This appointment time is already occupied!" );
-		}
-		addErrorMsg.setVisible( true );
-		return;
-	}
-
-	/**
-	* employeeFA( VoidFunction )
-	*
-	* @description Fills Appointments to the User Screen for when an employee is logged in.
-	*
-	*/
-	private void employeeFA( VoidFunction<String> __add_to_pane__ )
-	{
-		if(selectedEmployee == null || selectedEmployee.getValue() == null) return;
-		final int BUSINESS_HOURS_START = 8, BUSINESS_HOURS_END = 16;
-		String[] patientName = ((String) selectedEmployee.getValue()).split(" ");
-		String patientID = TABLES.USERS.table().getValue(new String[] { "first_name", "last_name" }, new String[] { patientName[0], patientName[1] }, "user_id");
-		System.out.println(patientID);
-		for(int i = BUSINESS_HOURS_START; i < BUSINESS_HOURS_END; ++i)
-		{
-			String start = i < 10 ? "0" + ( i * 100 ) : i * 100 + ""; // Conform to military time
-			String end = ( i + 1 ) < 10 ? "0" + ( ( i + 1 ) * 100 ) : ( i + 1 ) * 100 + ""; // Conform to military time
-			String description = "AVAILABLE";
-			boolean patientHasApt = TABLES.APPOINTMENTS.table().entryExists(
-				new String[] { "patient_id", "MM_DD_YYYY", "block_start", "block_end" },
-				new String[] { patientID, mmddyyyy, start, end } ) ;
-			String employeeID = SuperController.getUserId();
-
-			if(TABLES.USERS.table().getValue("user_id", employeeID, "title").equals("HYGIENIST"))
-			{
-				employeeID = TABLES.USERS.table().getValue("user_id", employeeID, "partner_id");
-			}
-			boolean employeeHasApt = TABLES.APPOINTMENTS.table().entryExists(
-				new String[] { "employee_id", "MM_DD_YYYY", "block_start", "block_end" },
-				new String[] { employeeID, mmddyyyy, start, end } );
-			if( patientHasApt && employeeHasApt )
-			{
-				description = TABLES.APPOINTMENTS.table().getValue( "employee_id", employeeID, "description" );
-			}
-			else if( patientHasApt )
-			{
-				description = "BUSY";
-			}
-			__add_to_pane__.invoke(start, end, description);
-		}
-	}
-
-	/**
-	* patientFA( VoidFunction )
-	*
-	* @description Fills Appointments to the User Screen for when an patient is logged in.
-	*
-	*/
-	private void patientFA( VoidFunction<String> __add_to_pane__ )
-	{
-		final int BUSINESS_HOURS_START = 8, BUSINESS_HOURS_END = 16;
-		String[] employeeName = ((String) selectedEmployee.getValue()).split(" ");
-		String employeeID = TABLES.USERS.table().getValue(new String[] { "first_name", "last_name" }, new String[] { employeeName[0], employeeName[1] }, "user_id");
-		for(int i = BUSINESS_HOURS_START; i < BUSINESS_HOURS_END; ++i)
-		{
-			String start = i < 10 ? "0" + ( i * 100 ) : i * 100 + ""; // Conform to military time
-			String end = ( i + 1 ) < 10 ? "0" + ( ( i + 1 ) * 100 ) : ( i + 1 ) * 100 + ""; // Conform to military time
-			String description = "AVAILABLE";
-			boolean employeeHasApt = TABLES.APPOINTMENTS.table().entryExists(
-				new String[] { "employee_id", "MM_DD_YYYY", "block_start", "block_end" },
-				new String[] { employeeID, mmddyyyy, start, end } ) ;
-			boolean patientHasApt = TABLES.APPOINTMENTS.table().entryExists(
-				new String[] { "patient_id", "MM_DD_YYYY", "block_start", "block_end" },
-				new String[] { SuperController.getUserId(), mmddyyyy, start, end } );
-			if( employeeHasApt && patientHasApt )
-			{
-				description = TABLES.APPOINTMENTS.table().getValue( "patient_id", SuperController.getUserId(), "description" );
-			}
-			else if( employeeHasApt )
+		String userId = getUserId();
+		int generation = ++choiceGeneration;
+		Database.async( () -> UserService.getTitle( userId ), title ->
 			{
-				description = "BUSY";
+				if( generation != choiceGeneration ) return; // A newer init has been started since.
+				if( title.equals( TITLES.PATIENT.name() ) )
+				{
+					patientCBinit( generation );
+				}
+				else
+				{
+					employeeCBinit( generation );
+				}
 			}
-			__add_to_pane__.invoke(start, end, description);
-		}
+		);
 	}
 
-	/**
+		/**
 	* monthAndTimeCBinit()
 	*
 	* @description Initializes the Month and Time ChoiceBoxes
@@ -675,11 +516,10 @@ public final class UserController extends SuperController implements Initializab
 	*/
 	private void monthAndTimeCBinit()
 	{
-		String[] months = { "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec" };
 		for(int i = 0; i < 12; ++i)
 		{
-			editMonthDropDown.getItems().add( "" + months[i] );
-			editNewMonthDropDown.getItems().add( "" + months[i] );
+			editMonthDropDown.getItems().add( "" + UserService.MONTHS[i] );
+			editNewMonthDropDown.getItems().add( "" + UserService.MONTHS[i] );
 		}
 		for( int i = 8; i < 16; ++i )
 		{
@@ -703,46 +543,43 @@ public final class UserController extends SuperController implements Initializab
 	}
 
 	/**
-	* patientCBinit()
+	* patientCBinit(int)
 	*
-	* @description Initializes the ChoiceBoxes when a patient is logged in.
+	* @description Initializes the ChoiceBoxes when a patient is logged in, unless
+	*              initChoiceBoxes() has been called again since <generation>.
 	*
 	*/
-	private void patientCBinit()
+	private void patientCBinit( int generation )
 	{
-		int statusIdx = TABLES.USERS.getFieldIdx("status");
-		int firstNameIdx = TABLES.USERS.getFieldIdx("first_name");
-		int lastNameIdx = TABLES.USERS.getFieldIdx("last_name");
-		String[][] allDentists = TABLES.USERS.table().getAllEntriesFor( "title", TITLES.DENTIST.name() );
-		for( int i = 0; i < allDentists.length; ++i )
-		{
-			if(allDentists[i][statusIdx].equals("DISABLED")) continue;
-			addReqFacDropDown.getItems().add( allDentists[i][firstNameIdx] + " " + allDentists[i][lastNameIdx] );
-			editReqFacDropDown.getItems().add( allDentists[i][firstNameIdx] + " " + allDentists[i][lastNameIdx] );
-			selectedEmployee.getItems().add( allDentists[i][firstNameIdx] + " " + allDentists[i][lastNameIdx] );
-		}
-		selectedEmployee.setVisible(true);
+		Database.async( () -> UserService.activeNames( TITLES.DENTIST ), allDentists -> fillNames( generation, allDentists ) );
 	}
 
 	/**
-	* employeeCBinit()
+	* employeeCBinit(int)
 	*
-	* @description Initializes the ChoiceBoxes when an employee is logged in.
+	* @description Initializes the ChoiceBoxes when an employee is logged in, unless
+	*              initChoiceBoxes() has been called again since <generation>.
 	*
 	*/
-	private void employeeCBinit()
+	private void employeeCBinit( int generation )
 	{
-		int statusIdx = TABLES.USERS.getFieldIdx("status");
-		int firstNameIdx = TABLES.USERS.getFieldIdx("first_name");
-		int lastNameIdx = TABLES.USERS.getFieldIdx("last_name");
-		String[][] allPatients = TABLES.USERS.table().getAllEntriesFor( "title", TITLES.PATIENT.name() );
-		for( int i = 0; i < allPatients.length; ++i )
-		{
-			if(allPatients[i][statusIdx].equals("DISABLED")) continue;
-			addReqFacDropDown.getItems().add( allPatients[i][firstNameIdx] + " " + allPatients[i][lastNameIdx] );
-			editReqFacDropDown.getItems().add( allPatients[i][firstNameIdx] + " " + allPatients[i][lastNameIdx] );
-			selectedEmployee.getItems().add( allPatients[i][firstNameIdx] + " " + allPatients[i][lastNameIdx] );
-		}
+		Database.async( () -> UserService.activeNames( TITLES.PATIENT ), allPatients -> fillNames( generation, allPatients ) );
+	}
+
+	/**
+	* fillNames(int, ArrayList)
+	*
+	* @description Replaces the names in the faculty ChoiceBoxes with <names>. The
+	*              boxes are cleared here rather than in initChoiceBoxes(), so two
+	*              refreshes in a row do not both append their names.
+	*
+	*/
+	private void fillNames( int generation, ArrayList<String> names )
+	{
+		if( generation != choiceGeneration ) return; // A newer init has been started since.
+		addReqFacDropDown.getItems().setAll( names );
+		editReqFacDropDown.getItems().setAll( names );
+		selectedEmployee.getItems().setAll( names );
 		selectedEmployee.setVisible(true);
 	}
 
@@ -0,0 +1,430 @@
+package controllers;
+
+import sql.Database;
+import utils.Constants;
+import utils.Constants.*;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * UserService
+ *
+ * @description The database side of the handlers of UserController: everything
+ *              they run off the JavaFX Application Thread, as plain methods of
+ *              the values the handlers read from the screen. UserController
+ *              runs them on the Database.async workers and shows the results;
+ *              the load test calls the same methods, so it measures exactly the
+ *              statements the screen runs.
+ *
+ */
+public final class UserService
+{
+	// MONTHS -> Names of the months, as the month drop downs list them.
+	// BUSINESS_HOURS_START, BUSINESS_HOURS_END -> First and last hour of the one hour blocks of a day.
+	final static String[] MONTHS = { "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec" };
+	private final static int BUSINESS_HOURS_START = 8, BUSINESS_HOURS_END = 16;
+
+
+	private UserService()
+	{
+	}
+
+
+	/**
+	 * getTitle(String)
+	 *
+	 * @description Returns the title of the user <userId>.
+	 *
+	 */
+	public static String getTitle( String userId )
+	{
+		return TABLES.USERS.table().getValue( "user_id", userId, "title" );
+	}
+
+
+	/**
+	 * monthName(int)
+	 *
+	 * @description Returns the name of <month>, 1 to 12, as the month drop downs
+	 *              list it.
+	 *
+	 */
+	public static String monthName( int month )
+	{
+		return MONTHS[month - 1];
+	}
+
+
+	/**
+	 * calendarDates()
+	 *
+	 * @description Returns the days of this month the calendar shows as open, as
+	 *              MM/d/yyyy and in order. These are the days setCalendar(-1)
+	 *              looks the bookings up for.
+	 *
+	 */
+	public static ArrayList<String> calendarDates()
+	{
+		GregorianCalendar cal = new GregorianCalendar();
+		int today = cal.get( Calendar.DAY_OF_MONTH );
+		cal.set( Calendar.DAY_OF_MONTH, 1 );
+		int dayOfWeek = cal.get( Calendar.DAY_OF_WEEK );
+		Date date = new Date();
+		String mm = new SimpleDateFormat( "MM" ).format( date ), yyyy = new SimpleDateFormat( "yyyy" ).format( date );
+		ArrayList<String> dates = new ArrayList<>();
+		// The calendar grid shows up to day 31 (see UserController.isInvalidDay).
+		for( int day = 1; day <= 31; ++day )
+		{
+			if( !isOffDay( day, today, dayOfWeek, cal.get( Calendar.MONTH ) ) )
+			{
+				dates.add( mm + "/" + day + "/" + yyyy );
+			}
+			dayOfWeek = dayOfWeek >= 7 ? 1 : dayOfWeek + 1; // Roll over day of the week.
+		}
+		return dates;
+	}
+
+
+	/**
+	* isOffDay(int, int ,int, int )
+	*
+	* @description Returns a boolean based on whether that day is an off day.
+	*
+	*/
+	static boolean isOffDay( int day, int today, int dayOfWeek, int month )
+	{
+		month++;
+		String[] holidays = { "12/24", "12/25", "12/31", "01/01" }; // Only these holidays for the demo and project, otherwise insert all known holidays that rely on day of the month.
+		boolean isHoliday = false;
+		String todayString = month + "/" + day;
+		for(int k = 0; k < holidays.length; ++k)
+		{
+			isHoliday = todayString.equals(holidays[k]);
+			if( isHoliday ) return isHoliday;
+		}
+		return dayOfWeek == 1 || dayOfWeek == 7 || day < today;
+	}
+
+
+	/**
+	 * calendarStyles(List)
+	 *
+	 * @description Returns the style of the calendar button of each of <dates>,
+	 *              by how booked the day is, or null for a day without bookings.
+	 *
+	 */
+	public static String[] calendarStyles( List<String> dates )
+	{
+		String[] styles = new String[dates.size()];
+		for( int k = 0; k < styles.length; ++k )
+		{
+			int booked = TABLES.APPOINTMENTS.table().getAllEntriesFor( "MM_DD_YYYY", dates.get( k ) ).length;
+			styles[k] = booked == 0 ? null : booked == 8 ? Constants.JFX_CSS_RED_BTN_IDLE : Constants.JFX_CSS_YEL_BTN_IDLE;
+		}
+		return styles;
+	}
+
+
+	/**
+	 * appointmentsOf(String, String, String)
+	 *
+	 * @description Returns the appointment blocks of <day> between the user
+	 *              <userId> and <selected> ("First Last" of the dentist a patient
+	 *              picked, or of the patient an employee picked), as { start,
+	 *              end, description }.
+	 *
+	 */
+	public static ArrayList<String[]> appointmentsOf( String userId, String selected, String day )
+	{
+		if( getTitle( userId ).equals( "PATIENT" ) )
+		{
+			return patientFA( userId, selected, day );
+		}
+		return employeeFA( userId, selected, day );
+	}
+
+
+	/**
+	 * addAppointment(String, String, String, String, String, String, boolean)
+	 *
+	 * @description Books an <aptType> appointment from <start> to <end> on <day>
+	 *              between the user <userId> and <facultyName> ("First Last").
+	 *              The insert goes through the write pipeline and is not waited
+	 *              for. Returns a future of null once the appointment is added,
+	 *              otherwise of the error message to show ("" for none, as when
+	 *              nothing is selected, <hasSelection> false). If another session
+	 *              takes the block first, the unique key turns the insert away
+	 *              and the message says why.
+	 *
+	 */
+	public static CompletableFuture<String> addAppointment( String userId, String facultyName, String aptType, String start, String end, String day, boolean hasSelection )
+	{
+		String[] empName = facultyName.split( " " );
+		String employeeID = TABLES.USERS.table().getValue( new String[] { "first_name", "last_name" }, new String[] { empName[0], empName[1] }, "user_id");
+		if( employeeID == null )
+		{
+			return CompletableFuture.completedFuture( facultyName + " can no longer be booked, please pick someone else." );
+		}
+		String[] fields = { "employee_id", "MM_DD_YYYY", "block_start", "block_end" };
+		String[] values = { employeeID, day, start, end };
+		boolean isUnavailable = TABLES.APPOINTMENTS.table().entryExists( fields, values );
+		if( isUnavailable )
+		{
+			return CompletableFuture.completedFuture( hasSelection ? aptAddError( userId, day, start, end ) : "" );
+		}
+
+		String[] vals;
+		if( getTitle( employeeID ).equals("PATIENT"))
+		{
+			vals = new String[] { employeeID, userId, aptType, start, end, day };
+		}
+		else
+		{
+			vals = new String[] { userId, employeeID, aptType, start, end, day };
+		}
+		return TABLES.APPOINTMENTS.table().queueInsert( vals )
+			.handle( ( count, e ) -> e == null && count > 0 )
+			.thenCompose( added -> added ? CompletableFuture.completedFuture( (String) null )
+				: hasSelection ? Database.async( () -> aptAddError( userId, day, start, end ) ) : CompletableFuture.completedFuture( "" ) );
+	}
+
+
+	/**
+	 * editAppointment(String, String, String, String, String, String, String, String, String)
+	 *
+	 * @description Moves the appointment of the user <userId> from <start> to
+	 *              <end> on <day> to <newDay> of <newMonthName>, and to <newTime>
+	 *              ("start - end"), <newFac> ("First Last") and <newAptType>
+	 *              where they are not null. Reading the original appointment and
+	 *              rewriting it is one transaction. Returns whether there was an
+	 *              appointment to move, or null if the transaction failed.
+	 *
+	 */
+	public static Boolean editAppointment( String userId, String day, String start, String end, String newTime, String newFac,
+		String newAptType, String newDay, String newMonthName )
+	{
+		return Database.inTransaction( () ->
+			{
+				String title = getTitle( userId );
+				boolean isEmployee = title.equals("DENTIST") || title.equals("HYGIENIST");
+				String[] fields, values;
+				if ( isEmployee )
+				{
+					fields = new String[] { "employee_id", "MM_DD_YYYY", "block_start", "block_end" };
+					values = new String[] { userId, day, start, end };
+				}
+				else
+				{
+					fields = new String[] { "patient_id", "MM_DD_YYYY", "block_start", "block_end" };
+					values = new String[] { userId, day, start, end };
+				}
+				String[] originalEntry = TABLES.APPOINTMENTS.table().getEntry( fields, values );
+				if( originalEntry == null )
+				{
+					return false;
+				}
+				String[] newEntry = Arrays.copyOf( originalEntry, originalEntry.length );
+				if( newTime != null )
+				{
+					String[] vals = newTime.split( " - " );
+					newEntry[TABLES.APPOINTMENTS.getFieldIdx("block_start")] = vals[0];
+					newEntry[TABLES.APPOINTMENTS.getFieldIdx("block_end")] = vals[1];
+				}
+				if( newFac != null ) // Edit the faculty of the appointment.
+				{
+					String[] nameTokens = newFac.split(" ");
+					String newEmployeeID = TABLES.USERS.table().getValue(
+						new String[] { "first_name", "last_name" },
+						new String[] { nameTokens[0], nameTokens[1] },
+						"user_id"
+					);
+					newEntry[TABLES.APPOINTMENTS.getFieldIdx("employee_id")] = newEmployeeID;
+				}
+				if( newAptType != null ) // Edit the description of the appointment.
+				{
+					newEntry[TABLES.APPOINTMENTS.getFieldIdx("description")] = newAptType;
+				}
+				String newMonth = newMonthName;
+				for(int i = 0; i < MONTHS.length; ++i)
+				{
+					if( newMonth.equals(MONTHS[i]) )
+					{
+						newMonth = "" + (i + 1);
+					}
+				}
+				String newMMDDYYYY = newMonth + "/" + newDay + "/" + day.split("/")[2];
+				//if( newDay < 1 || newDay > getDaysInMonth(newMonth) )
+				newEntry[TABLES.APPOINTMENTS.getFieldIdx("MM_DD_YYYY")] = newMMDDYYYY;
+				TABLES.APPOINTMENTS.table().editEntry(
+					TABLES.APPOINTMENTS.fields(),
+					originalEntry,
+					TABLES.APPOINTMENTS.fields(),
+					newEntry
+				);
+				return true;
+			}
+		);
+	}
+
+
+	/**
+	 * cancelAppointment(String, String, String, String)
+	 *
+	 * @description Deletes the appointment of the user <userId> from <start> to
+	 *              <end> on <day>, as patient or as employee, in one transaction.
+	 *              Returns whether there was one, or null if the transaction
+	 *              failed.
+	 *
+	 */
+	public static Boolean cancelAppointment( String userId, String day, String start, String end )
+	{
+		return Database.inTransaction( () ->
+			{
+				String[] fields = { "patient_id", "MM_DD_YYYY", "block_start", "block_end" };
+				String[] values = { userId, day, start, end };
+				boolean aptExists1 = TABLES.APPOINTMENTS.table().entryExists( fields, values );
+				fields = new String[] { "employee_id", "MM_DD_YYYY", "block_start", "block_end" };
+				boolean aptExists2 = !aptExists1 && TABLES.APPOINTMENTS.table().entryExists( fields, values );
+				if( aptExists1 || aptExists2 )
+				{
+					fields = new String[] { aptExists1 ? "patient_id" : "employee_id", "MM_DD_YYYY", "block_start", "block_end" };
+					TABLES.APPOINTMENTS.table().deleteEntry( fields, values );
+				}
+				return aptExists1 || aptExists2;
+			}
+		);
+	}
+
+
+	/**
+	 * activeNames(TITLES)
+	 *
+	 * @description Returns "First Last" of every enabled user with <title>, as
+	 *              the faculty drop downs list them.
+	 *
+	 */
+	public static ArrayList<String> activeNames( TITLES title )
+	{
+		int statusIdx = TABLES.USERS.getFieldIdx("status");
+		int firstNameIdx = TABLES.USERS.getFieldIdx("first_name");
+		int lastNameIdx = TABLES.USERS.getFieldIdx("last_name");
+		String[][] users = TABLES.USERS.table().getAllEntriesFor( "title", title.name() );
+		ArrayList<String> names = new ArrayList<>();
+		for( int i = 0; i < users.length; ++i )
+		{
+			if(users[i][statusIdx].equals("DISABLED")) continue;
+			names.add( users[i][firstNameIdx] + " " + users[i][lastNameIdx] );
+		}
+		return names;
+	}
+
+
+	/**
+	 * aptAddError(String, String, String, String)
+	 *
+	 * @description Returns the error message to show when adding the appointment
+	 *              from <start> to <end> on <day> fails.
+	 *
+	 */
+	private static String aptAddError( String userId, String day, String start, String end )
+	{
+		String[] fields = new String[] { "patient_id", "MM_DD_YYYY", "block_start", "block_end" };
+		String[] values = new String[] { userId, day, start, end };
+		boolean belongsToUser1 = TABLES.APPOINTMENTS.table().entryExists( fields, values );
+
+		fields = new String[] { "employee_id", "MM_DD_YYYY", "block_start", "block_end" };
+		boolean belongsToUser2 = TABLES.APPOINTMENTS.table().entryExists( fields, values );
+
+		if( belongsToUser1 || belongsToUser2 )
+		{
+			return "You already reserved this time for an appointment!";
+		}
+		return "This appointment time is already occupied!";
+	}
+
+
+	/**
+	* employeeFA(String, String, String)
+	*
+	* @description Returns the appointment blocks of <day> for when an employee is logged in,
+	*              as { start, end, description }.
+	*
+	*/
+	private static ArrayList<String[]> employeeFA( String userId, String selected, String day )
+	{
+		ArrayList<String[]> blocks = new ArrayList<>();
+		String[] patientName = selected.split(" ");
+		String patientID = TABLES.USERS.table().getValue(new String[] { "first_name", "last_name" }, new String[] { patientName[0], patientName[1] }, "user_id");
+		String employeeID = userId;
+		if( getTitle( employeeID ).equals("HYGIENIST"))
+		{
+			employeeID = TABLES.USERS.table().getValue("user_id", employeeID, "partner_id");
+		}
+		for(int i = BUSINESS_HOURS_START; i < BUSINESS_HOURS_END; ++i)
+		{
+			String start = i < 10 ? "0" + ( i * 100 ) : i * 100 + ""; // Conform to military time
+			String end = ( i + 1 ) < 10 ? "0" + ( ( i + 1 ) * 100 ) : ( i + 1 ) * 100 + ""; // Conform to military time
+			String description = "AVAILABLE";
+			boolean patientHasApt = TABLES.APPOINTMENTS.table().entryExists(
+				new String[] { "patient_id", "MM_DD_YYYY", "block_start", "block_end" },
+				new String[] { patientID, day, start, end } ) ;
+			boolean employeeHasApt = TABLES.APPOINTMENTS.table().entryExists(
+				new String[] { "employee_id", "MM_DD_YYYY", "block_start", "block_end" },
+				new String[] { employeeID, day, start, end } );
+			if( patientHasApt && employeeHasApt )
+			{
+				description = TABLES.APPOINTMENTS.table().getValue( "employee_id", employeeID, "description" );
+			}
+			else if( patientHasApt )
+			{
+				description = "BUSY";
+			}
+			blocks.add( new String[] { start, end, description } );
+		}
+		return blocks;
+	}
+
+
+	/**
+	* patientFA(String, String, String)
+	*
+	* @description Returns the appointment blocks of <day> for when a patient is logged in,
+	*              as { start, end, description }.
+	*
+	*/
+	private static ArrayList<String[]> patientFA( String userId, String selected, String day )
+	{
+		ArrayList<String[]> blocks = new ArrayList<>();
+		String[] employeeName = selected.split(" ");
+		String employeeID = TABLES.USERS.table().getValue(new String[] { "first_name", "last_name" }, new String[] { employeeName[0], employeeName[1] }, "user_id");
+		for(int i = BUSINESS_HOURS_START; i < BUSINESS_HOURS_END; ++i)
+		{
+			String start = i < 10 ? "0" + ( i * 100 ) : i * 100 + ""; // Conform to military time
+			String end = ( i + 1 ) < 10 ? "0" + ( ( i + 1 ) * 100 ) : ( i + 1 ) * 100 + ""; // Conform to military time
+			String description = "AVAILABLE";
+			boolean employeeHasApt = TABLES.APPOINTMENTS.table().entryExists(
+				new String[] { "employee_id", "MM_DD_YYYY", "block_start", "block_end" },
+				new String[] { employeeID, day, start, end } ) ;
+			boolean patientHasApt = TABLES.APPOINTMENTS.table().entryExists(
+				new String[] { "patient_id", "MM_DD_YYYY", "block_start", "block_end" },
+				new String[] { userId, day, start, end } );
+			if( employeeHasApt && patientHasApt )
+			{
+				description = TABLES.APPOINTMENTS.table().getValue( "patient_id", userId, "description" );
+			}
+			else if( employeeHasApt )
+			{
+				description = "BUSY";
+			}
+			blocks.add( new String[] { start, end, description } );
+		}
+		return blocks;
+	}
+}
@@ -0,0 +1,308 @@
+package sql;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ActionScope
+ *
+ * @description One user action (a click, a key press, ...) and every statement
+ *              that is run because of it. The scope is bound to the thread that
+ *              handles the event, and Database.async carries it to the worker
+ *              threads and FX callbacks the handler starts, so the statements
+ *              of a handler are counted wherever they run. Once the handler and
+ *              all of its tasks are done, the action is reported if it ran more
+ *              than the budget of statements, or ran the same statement shape
+ *              N_PLUS_ONE times or more (the usual sign of one query per row or
+ *              cell). In dev mode, the statement that goes over the budget
+ *              throws instead, so the action fails where it is written.
+ *
+ */
+public final class ActionScope
+{
+	// Shape -> How often one statement shape ran in the action, and where it ran first.
+	private final static class Shape
+	{
+		final AtomicInteger count = new AtomicInteger( 0 );
+		final String caller;
+
+		Shape( String caller )
+		{
+			this.caller = caller;
+		}
+	}
+
+	// DEFAULT_BUDGET -> Statements an action may run before it is reported (database.action_budget).
+	// DEFAULT_N_PLUS_ONE -> Runs of one shape in an action that are reported as N+1 (database.n_plus_one).
+	public final static int DEFAULT_BUDGET = 25, DEFAULT_N_PLUS_ONE = 5;
+
+	// budget, nPlusOne, devMode -> Current settings, see the setters.
+	// current -> Action the calling thread is working for, null if none.
+	private static volatile int budget = DEFAULT_BUDGET, nPlusOne = DEFAULT_N_PLUS_ONE;
+	private static volatile boolean devMode = false;
+	private final static ThreadLocal<ActionScope> current = new ThreadLocal<>();
+
+	// name -> Description of the event that started the action.
+	// startedAt -> System.nanoTime() when the action started.
+	// pending -> The handler plus every task of the action that has not finished yet.
+	// statements -> Statements run by the action so far.
+	// shapes -> Statements run by the action, by normalized shape.
+	// finished -> Completed once the handler and all of its tasks are done.
+	private final String name;
+	private final long startedAt = System.nanoTime();
+	private final AtomicInteger pending = new AtomicInteger( 1 );
+	private final AtomicInteger statements = new AtomicInteger( 0 );
+	private final ConcurrentHashMap<String, Shape> shapes = new ConcurrentHashMap<>();
+	private final CompletableFuture<Void> finished = new CompletableFuture<>();
+
+
+	private ActionScope( String name )
+	{
+		this.name = name;
+	}
+
+
+	/**
+	 * begin(String)
+	 *
+	 * @description Starts the action <name> on the calling thread. Call end() on
+	 *              the same thread once the event has been handled.
+	 *
+	 */
+	public static ActionScope begin( String name )
+	{
+		ActionScope scope = new ActionScope( name );
+		current.set( scope );
+		return scope;
+	}
+
+
+	/**
+	 * end()
+	 *
+	 * @description Marks the event handler of this action as done. The action is
+	 *              finished once the tasks it started are done too.
+	 *
+	 */
+	public void end()
+	{
+		if( current.get() == this )
+		{
+			current.remove();
+		}
+		exit();
+	}
+
+
+	/**
+	 * current()
+	 *
+	 * @description Returns the action the calling thread is working for, or null.
+	 *
+	 */
+	public static ActionScope current()
+	{
+		return current.get();
+	}
+
+
+	/**
+	 * bind(ActionScope)
+	 *
+	 * @description Makes the calling thread work for <scope> (may be null) and
+	 *              returns the action it worked for before.
+	 *
+	 */
+	static ActionScope bind( ActionScope scope )
+	{
+		ActionScope previous = current.get();
+		if( scope == null )
+		{
+			current.remove();
+		}
+		else
+		{
+			current.set( scope );
+		}
+		return previous;
+	}
+
+
+	/**
+	 * enter()
+	 *
+	 * @description Counts a task started for this action, which must call exit()
+	 *              when it is done.
+	 *
+	 */
+	void enter()
+	{
+		pending.incrementAndGet();
+	}
+
+
+	/**
+	 * exit()
+	 *
+	 * @description Counts a task of this action as done, and reports the action
+	 *              if it was the last one.
+	 *
+	 */
+	void exit()
+	{
+		if( pending.decrementAndGet() == 0 )
+		{
+			try
+			{
+				report();
+			}
+			finally
+			{
+				finished.complete( null );
+			}
+		}
+	}
+
+
+	/**
+	 * finished()
+	 *
+	 * @description Returns a future that completes once the handler and every
+	 *              task of this action are done, after the action is reported.
+	 *
+	 */
+	public CompletableFuture<Void> finished()
+	{
+		return finished;
+	}
+
+
+	/**
+	 * record(String)
+	 *
+	 * @description Counts <command> against the action of the calling thread, if
+	 *              there is one. In dev mode, throws IllegalStateException once the
+	 *              action has gone over its budget.
+	 *
+	 */
+	static void record( String command )
+	{
+		ActionScope scope = current.get();
+		if( scope == null )
+		{
+			return;
+		}
+		int count = scope.statements.incrementAndGet();
+		String shape = StatementRegistry.normalize( command );
+		Shape seen = scope.shapes.get( shape );
+		if( seen == null )
+		{
+			seen = scope.shapes.computeIfAbsent( shape, s -> new Shape( SlowQueryLog.caller() ) );
+		}
+		seen.count.incrementAndGet();
+		int limit = budget;
+		if( devMode && limit >= 0 && count > limit )
+		{
+			throw new IllegalStateException( "Action \"" + scope.name + "\" ran " + count + " statements, over its budget of " + limit + "." );
+		}
+	}
+
+
+	/**
+	 * report()
+	 *
+	 * @description Prints the statements of this action if it went over the
+	 *              budget or repeated a statement shape N_PLUS_ONE times.
+	 *
+	 */
+	private void report()
+	{
+		int count = statements.get();
+		int limit = budget;
+		boolean overBudget = limit >= 0 && count > limit;
+		boolean repeated = false;
+		for( Shape shape : shapes.values() )
+		{
+			repeated |= shape.count.get() >= nPlusOne;
+		}
+		if( !overBudget && !repeated )
+		{
+			return;
+		}
+		StringBuilder report = new StringBuilder();
+		report.append( "Action \"" ).append( name ).append( "\" ran " ).append( count ).append( " statements" );
+		report.append( overBudget ? " (over its budget of " + limit + ")" : "" );
+		report.append( " in " ).append( ( System.nanoTime() - startedAt ) / 1000000 ).append( " ms:" );
+		shapes.entrySet().stream()
+			.sorted( ( a, b ) -> b.getValue().count.get() - a.getValue().count.get() )
+			.forEach( ( Map.Entry<String, Shape> e ) ->
+				{
+					int runs = e.getValue().count.get();
+					report.append( System.lineSeparator() ).append( "  " ).append( runs ).append( "x " );
+					report.append( runs >= nPlusOne ? "[N+1] " : "" ).append( e.getKey() );
+					report.append( " (" ).append( e.getValue().caller ).append( ")" );
+				}
+			);
+		System.out.println( report );
+	}
+
+
+	// GETTERS
+	public String getName()
+	{
+		return name;
+	}
+
+
+	public int getStatements()
+	{
+		return statements.get();
+	}
+
+
+	public static int getBudget()
+	{
+		return budget;
+	}
+
+
+	public static boolean isDevMode()
+	{
+		return devMode;
+	}
+
+
+	// SETTERS
+	/**
+	 * setBudget(int)
+	 *
+	 * @description Reports actions that run more than <statements> statements.
+	 *              A negative budget turns the check off.
+	 *
+	 */
+	public static void setBudget( int statements )
+	{
+		budget = statements;
+	}
+
+
+	public static void setNPlusOne( int runs )
+	{
+		nPlusOne = runs;
+	}
+
+
+	/**
+	 * setDevMode(boolean)
+	 *
+	 * @description When <on>, actions fail with IllegalStateException as soon as
+	 *              they go over the budget instead of only being reported.
+	 *
+	 */
+	public static void setDevMode( boolean on )
+	{
+		devMode = on;
+	}
+}
@@ -0,0 +1,266 @@
+package sql;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ConnectionPool
+ *
+ * @description Bounded pool of JDBC connections to one SQL server. Every JPro
+ *              session runs in the same JVM, so instead of sharing a single
+ *              Connection each call leases its own connection from here and
+ *              returns it when done. Idle connections are validated before they
+ *              are handed out again.
+ *
+ */
+public final class ConnectionPool
+{
+	// LEASE_TIMEOUT_MS -> How long a caller waits for a free connection before giving up.
+	// WAIT_SLICE_MS -> How long a waiting caller waits for an idle connection before it tries to open one again.
+	// VALIDATE_AFTER_MS -> Connections idle longer than this are checked with isValid() before reuse.
+	// VALIDATE_TIMEOUT_S -> Timeout handed to Connection.isValid(int).
+	public final static long LEASE_TIMEOUT_MS = 10000, VALIDATE_AFTER_MS = 30000, WAIT_SLICE_MS = 50;
+	public final static int VALIDATE_TIMEOUT_S = 2;
+
+	private final String url, user, password;
+	private final int maxSize;
+
+	// idle -> Connections that are open and waiting to be leased (most recently used first).
+	// opened -> Amount of physical connections currently open, leased or idle.
+	private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+	private final AtomicInteger opened = new AtomicInteger( 0 );
+	private volatile boolean closed = false;
+
+
+	/**
+	 * CONSTRUCTOR (String, String, String, int)
+	 *
+	 * @description Creates a pool for the server at <url>. No connections are
+	 *              opened until warmUp(int) or lease() is called.
+	 *
+	 */
+	public ConnectionPool( String url, String user, String password, int maxSize )
+	{
+		this.url = url;
+		this.user = user;
+		this.password = password;
+		this.maxSize = maxSize;
+	}
+
+
+	/**
+	 * warmUp(int)
+	 *
+	 * @description Opens up to <amount> connections ahead of time so the first
+	 *              sessions do not pay for the TCP and authentication handshake.
+	 *
+	 */
+	public void warmUp( int amount ) throws SQLException
+	{
+		amount = Math.min( amount, maxSize );
+		while( opened.get() < amount )
+		{
+			PooledConnection pc = open();
+			if( pc == null )
+			{
+				return;
+			}
+			idle.offerFirst( pc );
+		}
+	}
+
+
+	/**
+	 * lease()
+	 *
+	 * @description Hands out a connection for the exclusive use of the caller. The
+	 *              caller must close() it (try-with-resources) to return it to
+	 *              the pool. Blocks up to LEASE_TIMEOUT_MS when every connection
+	 *              is in use. The wait is cut into WAIT_SLICE_MS slices, with a
+	 *              new connection tried in between, as a slot freed by discarding
+	 *              a broken connection puts nothing in the idle set to wake on.
+	 *
+	 */
+	public PooledConnection lease() throws SQLException
+	{
+		long deadline = System.currentTimeMillis() + LEASE_TIMEOUT_MS;
+		while( !closed )
+		{
+			PooledConnection pc = idle.pollFirst();
+			if( pc == null )
+			{
+				pc = open();
+			}
+			if( pc == null )
+			{
+				long wait = deadline - System.currentTimeMillis();
+				if( wait <= 0 )
+				{
+					break;
+				}
+				try
+				{
+					pc = idle.pollFirst( Math.min( wait, WAIT_SLICE_MS ), TimeUnit.MILLISECONDS );
+				}
+				catch( InterruptedException e )
+				{
+					Thread.currentThread().interrupt();
+					throw new SQLException( "Interrupted while waiting for a connection." );
+				}
+				if( pc == null )
+				{
+					continue;
+				}
+			}
+			if( isUsable( pc ) )
+			{
+				return pc;
+			}
+			discard( pc );
+		}
+		throw new SQLException( closed ? "Connection pool is closed." : "Timed out waiting for a free connection." );
+	}
+
+
+	/**
+	 * release(PooledConnection)
+	 *
+	 * @description Puts a leased connection back into the idle set. Broken
+	 *              connections are closed instead.
+	 *
+	 */
+	void release( PooledConnection pc )
+	{
+		try
+		{
+			Connection c = pc.connection();
+			if( closed || c.isClosed() )
+			{
+				discard( pc );
+				return;
+			}
+			if( !c.getAutoCommit() )
+			{
+				c.rollback();
+				c.setAutoCommit( true );
+			}
+		}
+		catch( SQLException e )
+		{
+			discard( pc );
+			return;
+		}
+		pc.touch();
+		idle.offerFirst( pc );
+	}
+
+
+	/**
+	 * close()
+	 *
+	 * @description Closes every idle connection and refuses further leases.
+	 *              Connections that are still leased are closed when released.
+	 *
+	 */
+	public void close()
+	{
+		closed = true;
+		PooledConnection pc;
+		while( ( pc = idle.pollFirst() ) != null )
+		{
+			discard( pc );
+		}
+	}
+
+
+	/**
+	 * open()
+	 *
+	 * @description Opens a new physical connection if the pool has not reached
+	 *              <maxSize>. Returns null if it has.
+	 *
+	 */
+	private PooledConnection open() throws SQLException
+	{
+		int count;
+		do
+		{
+			count = opened.get();
+			if( count >= maxSize )
+			{
+				return null;
+			}
+		} while( !opened.compareAndSet( count, count + 1 ) );
+
+		try
+		{
+			return new PooledConnection( this, DriverManager.getConnection( url, user, password ) );
+		}
+		catch( SQLException e )
+		{
+			opened.decrementAndGet();
+			throw e;
+		}
+	}
+
+
+	/**
+	 * isUsable(PooledConnection)
+	 *
+	 * @description Checks a connection that has sat idle for a while before it is
+	 *              handed back out, so callers do not receive a connection the
+	 *              server has already timed out.
+	 *
+	 */
+	private boolean isUsable( PooledConnection pc )
+	{
+		try
+		{
+			if( System.currentTimeMillis() - pc.lastUsed() < VALIDATE_AFTER_MS )
+			{
+				return !pc.connection().isClosed();
+			}
+			return pc.connection().isValid( VALIDATE_TIMEOUT_S );
+		}
+		catch( SQLException e )
+		{
+			return false;
+		}
+	}
+
+
+	/**
+	 * discard(PooledConnection)
+	 *
+	 * @description Closes a connection and frees its slot in the pool.
+	 *
+	 */
+	private void discard( PooledConnection pc )
+	{
+		pc.discard();
+		opened.decrementAndGet();
+	}
+
+
+	// GETTERS
+	public int getMaxSize()
+	{
+		return maxSize;
+	}
+
+
+	public int getOpenCount()
+	{
+		return opened.get();
+	}
+
+
+	public int getIdleCount()
+	{
+		return idle.size();
+	}
+}
@@ -2,6 +2,27 @@ package sql;
 
 import utils.*;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import javafx.application.Platform;
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetFactory;
+import javax.sql.rowset.RowSetProvider;
 
 /**
  * Database
@@ -13,71 +34,245 @@ import java.sql.*;
  */
 public final class Database
 {
-	protected static Connection connection;
-	protected static Statement statement;
+	// Reads the rows of a ResultSet into whatever the caller needs. The set is
+	// closed as soon as this returns. Rows are read with next(set, rows), so
+	// that StatementRegistry learns how many were read.
+	public interface ResultHandler<T>
+	{
+		T handle( ResultSet set, long[] rows ) throws SQLException;
+	}
+
+	// Body of a transaction. Every Database and SQLTable call it makes on the
+	// calling thread runs on the transaction's connection.
+	public interface Transaction<T>
+	{
+		T run() throws SQLException;
+	}
+
+	// Thrown out of a statement that fails inside a transaction, so the rest of
+	// the body is skipped and inTransaction(...) can roll back or retry.
+	private final static class TransactionAbort extends RuntimeException
+	{
+		private final static long serialVersionUID = 1L;
+
+		TransactionAbort( SQLException cause )
+		{
+			super( cause );
+		}
+
+		@ Override
+		public synchronized SQLException getCause()
+		{
+			return (SQLException) super.getCause();
+		}
+	}
+
+	// POOL_SIZE -> Most connections that are open to the server at once.
+	// POOL_WARM_UP -> Connections opened as soon as the pool is created.
+	public final static int POOL_SIZE = 10, POOL_WARM_UP = 2;
 
-	private static SQLTable[] sql_tables;
+	// ASYNC_QUEUE_SIZE -> Most database tasks that may wait for a worker before new ones are rejected.
+	// FX_THREAD -> Runs a task on the JavaFX Application Thread.
+	public final static int ASYNC_QUEUE_SIZE = 500;
+	public final static Executor FX_THREAD = Platform::runLater;
 
-	private static boolean connected = false;
-	private static boolean initialized = false;
+	// WRITE_BATCH_SIZE -> Most queued writes committed in one transaction.
+	// WRITE_LINGER_MS -> Most time (ms) a queued write waits for others to share its commit.
+	// WRITE_QUEUE_SIZE -> Most queued writes waiting to be committed before new ones are rejected.
+	public final static int WRITE_BATCH_SIZE = 100, WRITE_QUEUE_SIZE = 5000;
+	public final static long WRITE_LINGER_MS = 5;
+
+	// DEFAULT_ISOLATION -> Isolation level of inTransaction(Transaction).
+	// TRANSACTION_ATTEMPTS -> Times a transaction is run before a deadlock or serialization failure is given up on.
+	// RETRY_BACKOFF_MS -> Wait (ms) before the next attempt, multiplied by the attempt number.
+	public final static int DEFAULT_ISOLATION = Connection.TRANSACTION_READ_COMMITTED, TRANSACTION_ATTEMPTS = 3;
+	public final static long RETRY_BACKOFF_MS = 20;
+
+	// CONFIG_RESOURCE -> Classpath resource read by connect(). System properties of the same names override it.
+	public final static String CONFIG_RESOURCE = "/database.properties";
+
+	private static volatile ConnectionPool pool;
+	private static volatile Dialect dialect = Dialect.MYSQL;
+	private static RowSetFactory rowSetFactory;
+	private static final ThreadPoolExecutor workers = newWorkers();
+	private static final WritePipeline writes = new WritePipeline( WRITE_BATCH_SIZE, WRITE_LINGER_MS, WRITE_QUEUE_SIZE );
+	private static final ThreadLocal<PooledConnection> transaction = new ThreadLocal<>();
+	// commitTasks -> Run once the transaction on this thread has committed (see onCommit).
+	private static final ThreadLocal<ArrayList<Runnable>> commitTasks = new ThreadLocal<>();
+
+	// inMemory -> True when the tables are MemoryTables instead of tables on a SQL server.
+	private static volatile Storage[] sql_tables;
+	private static volatile boolean inMemory = false;
+
+	private static volatile boolean connected = false;
+	private static volatile boolean initialized = false;
+
+	// schema -> Tables and columns of the database, as last read by readSchema().
+	// url -> JDBC URL of the database currently connected to.
+	// verified -> URLs whose tables were created, migrated and keyed by this process already.
+	private static volatile Schema schema = Schema.EMPTY;
+	private static volatile String url;
+	private static final Set<String> verified = ConcurrentHashMap.newKeySet();
 
 
 	/**
 	 * init()
 	 *
 	 * @description Initializes the program runtime with all current tables in the
-	 *              database.
+	 *              database. The tables are created, migrated and keyed only the
+	 *              first time a process initializes a database; after that, the
+	 *              columns are read from DatabaseMetaData and no table is queried.
 	 *
 	 */
-	public static void init( boolean resetTables )
+	public static synchronized void init( boolean resetTables )
 	{
 		if( initialized && connected )
 			return;
 
-		String[] tableNames = Database.getTableNames();
-		if( tableNames == null ) return;
+		if( inMemory )
+		{
+			for( int i = 0; resetTables && i < sql_tables.length; ++i )
+			{
+				( (MemoryTable) sql_tables[i] ).clear();
+			}
+			initialized = true;
+			return;
+		}
+
+		if( !readSchema() ) return;
 
 		if( resetTables )
 		{
-			for( int i = 0; i < tableNames.length; ++i )
+			for( String tableName : schema.getTableNames() )
+			{
+				update( "TRUNCATE TABLE " + tableName );
+			}
+		}
+		if( !verified.contains( url ) )
+		{
+			for( Constants.TABLES table : Constants.TABLES.values() )
 			{
-				update( "TRUNCATE " + tableNames[i] );
+				if( !schema.hasTable( table.name() ) )
+				{
+					Database.newTable( table.name(), table.fields(), table.columnDDL(), table.canHoldNull() );
+				}
+				Database.migrate( table );
+				Database.ensureKeys( table );
 			}
+			verified.add( url );
 		}
-		for( Constants.TABLES table : Constants.TABLES.values() )
+
+		Constants.TABLES[] declared = Constants.TABLES.values();
+		Storage[] tables = new Storage[declared.length];
+		for( int i = 0; i < declared.length; ++i )
 		{
-			Database.newTable( table.name(), table.fields(), table.varCharSizes(), table.canHoldNull() );
+			tables[i] = new SQLTable( declared[i].name() );
 		}
+		sql_tables = tables;
 		initialized = true;
 	}
 
 
 	/**
-	 * connectTo(String)
+	 * connect()
 	 *
-	 * @description Provides connection to an arbitrary SQL server, if one is
-	 *              provided. If null, then this method connects to local host:
-	 *              "jdbc:mysql://localhost:3306/cs341db?useJDBCCompliantTimezoneShift=true&serverTimezone=UTC"
+	 * @description Connects to the database described by CONFIG_RESOURCE and the
+	 *              system properties, which take precedence:
+	 *              database.dialect -> "mysql" (default) or "h2".
+	 *              database.location -> MySQL host (localhost if unset), or the
+	 *              directory of the H2 files (in memory if unset).
+	 *              database.name -> Name of the database, "cs341db" by default.
+	 *              database.user, database.password -> Credentials.
+	 *              database.url -> Full JDBC URL, used instead of the above.
+	 *              database.storage -> "memory" keeps every table in this process
+	 *              (see connectToMemory()) and ignores the keys above.
+	 *              database.slow_query_ms -> Threshold of the SlowQueryLog, -1 to
+	 *              turn it off.
+	 *              database.action_budget, database.n_plus_one,
+	 *              database.dev_mode -> Settings of ActionScope.
 	 *
 	 */
-	public static void connectTo( String ipAddress, String dbName )
+	public static synchronized void connect()
 	{
-		String sqlServer;
-		if( ipAddress == null )
+		Properties config = new Properties();
+		try( InputStream in = Database.class.getResourceAsStream( CONFIG_RESOURCE ) )
+		{
+			if( in != null )
+			{
+				config.load( in );
+			}
+		} catch( IOException e )
 		{
-			sqlServer = "jdbc:mysql://localhost:3306/" + dbName + "?useJDBCCompliantTimezoneShift=true&serverTimezone=UTC";
+			System.out.println( "Error reading " + CONFIG_RESOURCE );
+			e.printStackTrace();
 		}
-		else
+		config.putAll( System.getProperties() );
+
+		if( "memory".equalsIgnoreCase( config.getProperty( "database.storage" ) ) )
 		{
-			sqlServer = "jdbc:mysql://" + ipAddress + ":3306/" + dbName;
+			connectToMemory();
+			return;
+		}
+		SlowQueryLog.setThreshold( Long.parseLong( config.getProperty( "database.slow_query_ms", String.valueOf( SlowQueryLog.DEFAULT_THRESHOLD_MS ) ).trim() ) );
+		ActionScope.setBudget( Integer.parseInt( config.getProperty( "database.action_budget", String.valueOf( ActionScope.DEFAULT_BUDGET ) ).trim() ) );
+		ActionScope.setNPlusOne( Integer.parseInt( config.getProperty( "database.n_plus_one", String.valueOf( ActionScope.DEFAULT_N_PLUS_ONE ) ).trim() ) );
+		ActionScope.setDevMode( Boolean.parseBoolean( config.getProperty( "database.dev_mode", "false" ).trim() ) );
+		Dialect configured = Dialect.of( config.getProperty( "database.dialect" ) );
+		String url = config.getProperty( "database.url" );
+		if( url == null )
+		{
+			url = configured.url( config.getProperty( "database.location" ), config.getProperty( "database.name", "cs341db" ) );
 		}
+		connectTo( url, config.getProperty( "database.user", "root" ), config.getProperty( "database.password", "password" ) );
+	}
 
+
+	/**
+	 * connectTo(String, String)
+	 *
+	 * @description Provides connection to database <dbName> on an arbitrary MySQL
+	 *              server, if one is provided. If null, then this method connects
+	 *              to local host. The URL is built by Dialect.MYSQL.url(...).
+	 *
+	 */
+	public static synchronized void connectTo( String ipAddress, String dbName )
+	{
+		connectTo( Dialect.MYSQL.url( ipAddress, dbName ), "root", "password" );
+	}
+
+
+	/**
+	 * connectTo(String, String, String)
+	 *
+	 * @description Connects to the database at the JDBC URL <url>, replacing any
+	 *              earlier connection. The dialect is picked from the URL.
+	 *
+	 */
+	public static synchronized void connectTo( String url, String user, String password )
+	{
+		// Until the new pool is up, callers see that there is no connection.
+		connected = false;
+		if( pool != null )
+		{
+			pool.close();
+			pool = null;
+		}
+		if( inMemory )
+		{
+			inMemory = false;
+			sql_tables = null;
+		}
+		initialized = false;
+		schema = Schema.EMPTY;
+		Database.url = url;
 		try
 		{
-			connection = DriverManager.getConnection( sqlServer, "root", "password" );
-			statement = connection.createStatement();
+			dialect = Dialect.fromURL( url );
+			rowSetFactory = RowSetProvider.newFactory();
+			pool = new ConnectionPool( url, user, password, POOL_SIZE );
+			pool.warmUp( POOL_WARM_UP );
 			connected = true;
-			System.out.println( "Connected to the database." );
+			System.out.println( "Connected to the database (" + dialect + ")." );
 		} catch( SQLException e )
 		{
 			System.out.println( "Error connecting to SQL Database" );
@@ -86,17 +281,59 @@ public final class Database
 	}
 
 
+	/**
+	 * connectToMemory()
+	 *
+	 * @description Keeps every table of Constants.TABLES in the heap of this
+	 *              process instead of on a SQL server, starting out empty.
+	 *              Transactions on memory tables are serializable, and nothing
+	 *              survives the process.
+	 *
+	 */
+	public static synchronized void connectToMemory()
+	{
+		if( pool != null )
+		{
+			pool.close();
+			pool = null;
+		}
+		Constants.TABLES[] declared = Constants.TABLES.values();
+		Storage[] tables = new Storage[declared.length];
+		for( int i = 0; i < declared.length; ++i )
+		{
+			tables[i] = new MemoryTable( declared[i] );
+		}
+		sql_tables = tables;
+		inMemory = true;
+		connected = true;
+		initialized = false;
+		System.out.println( "Connected to the in-memory database." );
+	}
+
+
+	/**
+	 * getDialect()
+	 *
+	 * @description Returns the dialect of the database currently connected to.
+	 *
+	 */
+	public static Dialect getDialect()
+	{
+		return dialect;
+	}
+
+
 	/**
 	 * getTable(String)
 	 *
 	 * @description Gets a table name from the list of tables from the database.
 	 *
 	 */
-	public static SQLTable getTable( String name )
+	public static Storage getTable( String name )
 	{
 		for( int i = 0; i < sql_tables.length; ++i )
 		{
-			if( sql_tables[i].tableName.equals( name ) )
+			if( sql_tables[i].getName().equals( name ) )
 			{
 				return sql_tables[i];
 			}
@@ -106,21 +343,21 @@ public final class Database
 
 
 	/**
-	 * addTable(SQLTable)
+	 * addTable(Storage)
 	 *
-	 * @description Updates <sql_tables> to have the newest SQLTable that has been
+	 * @description Updates <sql_tables> to have the newest table that has been
 	 *              created.
 	 *
 	 */
-	public static void addTable( SQLTable table )
+	public static synchronized void addTable( Storage table )
 	{
-		SQLTable[] newTables;
+		Storage[] newTables;
 		if( sql_tables == null )
 		{
-			newTables = new SQLTable[1];
+			newTables = new Storage[1];
 		} else
 		{
-			newTables = new SQLTable[sql_tables.length + 1];
+			newTables = new Storage[sql_tables.length + 1];
 			for( int i = 0; i < sql_tables.length; ++i )
 			{
 				newTables[i] = sql_tables[i];
@@ -131,23 +368,137 @@ public final class Database
 	}
 
 	/**
-	 * newTable(String, String[], int[], boolean[])
+	 * newTable(String, String[], String[], boolean[])
 	 *
-	 * @description Creates a new table and adds it to the MySQL database.
+	 * @description Creates a new table in the MySQL database, if there is none of
+	 *              that name yet. <types> holds the SQL type of each field (see
+	 *              Constants.TABLES.columnDDL()). init() adds the tables of
+	 *              Constants.TABLES to the program runtime.
 	 *
 	 */
-	public static void newTable( String name, String[] fields, int[] varCharSizes, boolean[] canHoldNull )
+	public static void newTable( String name, String[] fields, String[] types, boolean[] canHoldNull )
 	{
 		String cmd = "CREATE TABLE IF NOT EXISTS " + name + "( ";
 		for( int i = 0; i < fields.length; ++i )
 		{
-			cmd += fields[i] + " VARCHAR(" + varCharSizes[i] + ") " + ( canHoldNull[i] ? "NULL" : "NOT NULL" )
+			cmd += fields[i] + " " + types[i] + " " + ( canHoldNull[i] ? "NULL" : "NOT NULL" )
 					+ ( i < fields.length - 1 ? ", " : "" );
 		}
 		cmd += ")";
 		update( cmd );
-		SQLTable table = new SQLTable( name );
-		Database.addTable( table );
+		readSchema();
+	}
+
+
+	/**
+	 * migrate(Constants.TABLES)
+	 *
+	 * @description Converts a table that was created when every column was a
+	 *              VARCHAR to the types declared in <table>. The rows are copied
+	 *              into a new typed table (ids to INT, "0800" to minutes of the
+	 *              day, "M/D/YYYY" to DATE, '' and 'null' to NULL where the column
+	 *              can hold it), which then takes the place of the old one. The
+	 *              old table is kept as <name>_legacy. Does nothing if the table
+	 *              is already typed.
+	 *
+	 */
+	public static void migrate( Constants.TABLES table )
+	{
+		String name = table.name();
+		boolean legacy = false;
+		String[] columns = schema.getColumns( name );
+		for( int i = 0; columns != null && i < columns.length; ++i )
+		{
+			Constants.SQL_TYPE type = table.getType( columns[i] );
+			boolean isVarChar = "VARCHAR".equalsIgnoreCase( schema.getType( name, columns[i] ) );
+			legacy |= isVarChar && type != Constants.SQL_TYPE.VARCHAR;
+		}
+		if( !legacy )
+		{
+			return;
+		}
+
+		System.out.println( "Migrating " + name + " to typed columns." );
+		String[] fields = table.fields();
+		String[] converted = new String[fields.length];
+		for( int i = 0; i < fields.length; ++i )
+		{
+			converted[i] = table.types()[i].fromLegacy( fields[i], table.canHoldNull()[i], dialect );
+		}
+		String typed = name + "_typed";
+		update( "DROP TABLE IF EXISTS " + typed );
+		newTable( typed, fields, table.columnDDL(), table.canHoldNull() );
+		if( update( "INSERT INTO " + typed + " (" + String.join( ", ", fields ) + ") SELECT "
+				+ String.join( ", ", converted ) + " FROM " + name, new Object[0] ) < 0 )
+		{
+			System.out.println( "Error migrating " + name + ", the table was left unchanged." );
+			update( "DROP TABLE IF EXISTS " + typed );
+			return;
+		}
+		update( "DROP TABLE IF EXISTS " + name + "_legacy" );
+		update( "ALTER TABLE " + name + " RENAME TO " + name + "_legacy" );
+		update( "ALTER TABLE " + typed + " RENAME TO " + name );
+		readSchema();
+	}
+
+
+	/**
+	 * ensureKeys(Constants.TABLES)
+	 *
+	 * @description Creates the primary key, unique keys and indexes declared by
+	 *              <table> that the database does not have yet. Keys that already
+	 *              exist are left alone, so this is safe to run on every start.
+	 *
+	 */
+	public static void ensureKeys( Constants.TABLES table )
+	{
+		HashSet<String> existing = new HashSet<>();
+		boolean hasPrimaryKey;
+		try( PooledConnection pc = lease() )
+		{
+			DatabaseMetaData dbm = pc.connection().getMetaData();
+			try( ResultSet keys = dbm.getPrimaryKeys( null, null, table.name() ) )
+			{
+				hasPrimaryKey = keys.next();
+			}
+			try( ResultSet indexes = dbm.getIndexInfo( null, null, table.name(), false, false ) )
+			{
+				while( indexes.next() )
+				{
+					String name = indexes.getString( "INDEX_NAME" );
+					if( name != null )
+					{
+						existing.add( name.toLowerCase() );
+					}
+				}
+			}
+		} catch( SQLException e )
+		{
+			System.out.println( "Error reading keys of table " + table.name() );
+			e.printStackTrace();
+			return;
+		}
+
+		if( !hasPrimaryKey && table.primaryKey().length > 0 )
+		{
+			update( "ALTER TABLE " + table.name() + " ADD PRIMARY KEY (" + String.join( ", ", table.primaryKey() ) + ")" );
+		}
+		for( String[] columns : table.uniqueKeys() )
+		{
+			String name = table.indexName( "uk", columns );
+			if( !existing.contains( name.toLowerCase() ) )
+			{
+				update( "CREATE UNIQUE INDEX " + name + " ON " + table.name() + " (" + String.join( ", ", columns ) + ")" );
+			}
+		}
+		for( String[] columns : table.indexes() )
+		{
+			String name = table.indexName( "idx", columns );
+			if( !existing.contains( name.toLowerCase() ) )
+			{
+				update( "CREATE INDEX " + name + " ON " + table.name() + " (" + String.join( ", ", columns ) + ")" );
+			}
+		}
 	}
 
 
@@ -160,10 +511,9 @@ public final class Database
 	 */
 	public static boolean tableExists( String name )
 	{
-		try
+		try( PooledConnection pc = lease();
+			ResultSet tables = pc.connection().getMetaData().getTables( null, null, name, null ) )
 		{
-			DatabaseMetaData dbm = connection.getMetaData();
-			ResultSet tables = dbm.getTables( null, null, name, null );
 			return tables.next();
 		} catch( SQLException e )
 		{
@@ -177,36 +527,538 @@ public final class Database
 	/**
 	 * getTableNames()
 	 *
-	 * @description Queries the MySQL server for all of the tables in the current
-	 *              database.
+	 * @description Reads all of the tables in the current database from its
+	 *              metadata.
 	 *
 	 */
 	public static String[] getTableNames()
 	{
+		return readSchema() ? schema.getTableNames() : null;
+	}
+
+
+	/**
+	 * getSchema()
+	 *
+	 * @description Returns the tables and columns of the database as last read.
+	 *              The snapshot never changes; DDL run through Database replaces
+	 *              it with a new one.
+	 *
+	 */
+	public static Schema getSchema()
+	{
+		return schema;
+	}
+
+
+	/**
+	 * readSchema()
+	 *
+	 * @description Reads the tables and columns of the database from its
+	 *              metadata, without querying any table. Returns false if they
+	 *              could not be read.
+	 *
+	 */
+	private static boolean readSchema()
+	{
+		try( PooledConnection pc = lease() )
+		{
+			schema = Schema.read( pc.connection() );
+			return true;
+		} catch( SQLException e )
+		{
+			System.out.println( "Error reading the tables of the database." );
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+
+	/**
+	 * async(Callable)
+	 *
+	 * @description Runs <task> on one of the database worker threads and returns
+	 *              a future of its result, so JDBC never blocks the JavaFX
+	 *              Application Thread. There is one worker per pooled connection;
+	 *              if ASYNC_QUEUE_SIZE tasks are already waiting the future fails
+	 *              straight away.
+	 *
+	 */
+	public static <T> CompletableFuture<T> async( Callable<T> task )
+	{
+		CompletableFuture<T> future = new CompletableFuture<>();
+		ActionScope scope = ActionScope.current();
+		if( scope != null )
+		{
+			scope.enter();
+		}
 		try
 		{
-			Statement stmt = connection.createStatement();
-			ResultSet tables = stmt.executeQuery( "Show tables" );
-			int size = 0;
-			while( tables.next() )
+			workers.execute( () ->
+				{
+					ActionScope previous = ActionScope.bind( scope );
+					try
+					{
+						future.complete( task.call() );
+					}
+					catch( Throwable e )
+					{
+						future.completeExceptionally( e );
+					}
+					finally
+					{
+						ActionScope.bind( previous );
+						if( scope != null )
+						{
+							scope.exit();
+						}
+					}
+				}
+			);
+		}
+		catch( RuntimeException e )
+		{
+			if( scope != null )
 			{
-				size++;
+				scope.exit();
 			}
-			String[] tableNames = new String[size];
-			int i = 0;
-			Utils.reset( tables );
-			while( tables.next() )
+			future.completeExceptionally( e );
+		}
+		return future;
+	}
+
+
+	/**
+	 * async(Callable, Consumer)
+	 *
+	 * @description Runs <task> on a database worker thread, then hands its result
+	 *              to <onFxThread> on the JavaFX Application Thread, where it is
+	 *              safe to update the screen. Failures are printed and
+	 *              <onFxThread> is not called. Both run as part of the caller's
+	 *              ActionScope, if it has one.
+	 *
+	 */
+	public static <T> CompletableFuture<Void> async( Callable<T> task, Consumer<T> onFxThread )
+	{
+		return async( task, onFxThread, null );
+	}
+
+
+	/**
+	 * async(Callable, Consumer, Consumer)
+	 *
+	 * @description Same as async(Callable, Consumer), but if <task> or
+	 *              <onFxThread> fails, the failure is also handed to <onFailure>
+	 *              on the JavaFX Application Thread, so the screen can tell the
+	 *              user. <onFailure> may be null.
+	 *
+	 */
+	public static <T> CompletableFuture<Void> async( Callable<T> task, Consumer<T> onFxThread, Consumer<Throwable> onFailure )
+	{
+		ActionScope scope = ActionScope.current();
+		if( scope != null )
+		{
+			scope.enter();
+		}
+		return onFxThread( scope, async( task ), onFxThread, onFailure );
+	}
+
+
+	/**
+	 * asyncCompose(Callable, Consumer, Consumer)
+	 *
+	 * @description Same as async(Callable, Consumer, Consumer) for a <task> that
+	 *              ends by starting more work, such as a write queued with
+	 *              SQLTable.queueInsert(...), and returns its future. The worker
+	 *              does not wait for that future; <onFxThread> gets its result
+	 *              once it completes.
+	 *
+	 */
+	public static <T> CompletableFuture<Void> asyncCompose( Callable<CompletableFuture<T>> task, Consumer<T> onFxThread, Consumer<Throwable> onFailure )
+	{
+		ActionScope scope = ActionScope.current();
+		if( scope != null )
+		{
+			scope.enter();
+		}
+		return onFxThread( scope, async( task ).thenCompose( started -> started ), onFxThread, onFailure );
+	}
+
+
+	/**
+	 * onFxThread(ActionScope, CompletableFuture, Consumer, Consumer)
+	 *
+	 * @description Hands the result of <future> to <onFxThread>, or its failure
+	 *              to <onFailure>, on the JavaFX Application Thread as part of
+	 *              <scope>, which the caller has entered and this exits.
+	 *
+	 */
+	private static <T> CompletableFuture<Void> onFxThread( ActionScope scope, CompletableFuture<T> future, Consumer<T> onFxThread, Consumer<Throwable> onFailure )
+	{
+		return future.handleAsync( ( result, e ) ->
 			{
-				tableNames[i] = tables.getString( 1 );
-				i++;
+				ActionScope previous = ActionScope.bind( scope );
+				Throwable failure = e;
+				try
+				{
+					if( failure == null )
+					{
+						onFxThread.accept( result );
+					}
+				}
+				catch( RuntimeException thrown )
+				{
+					failure = thrown;
+				}
+				try
+				{
+					if( failure != null )
+					{
+						System.out.println( "Error running database task." );
+						failure.printStackTrace();
+						if( onFailure != null )
+						{
+							onFailure.accept( failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure );
+						}
+					}
+				}
+				finally
+				{
+					ActionScope.bind( previous );
+					if( scope != null )
+					{
+						scope.exit();
+					}
+				}
+				return null;
+			}, FX_THREAD
+		);
+	}
+
+
+	/**
+	 * enqueue(String, Object[])
+	 *
+	 * @description Queues a parameterized INSERT, UPDATE or DELETE for the write
+	 *              pipeline, which commits it together with the writes other
+	 *              sessions queue at the same time. Returns a future of the
+	 *              amount of rows affected, completed once the write is committed.
+	 *              Inside inTransaction(...) the write runs straight away as part
+	 *              of the transaction instead.
+	 *
+	 */
+	public static CompletableFuture<Integer> enqueue( String command, Object[] values )
+	{
+		if( transaction.get() != null )
+		{
+			// Part of the caller's transaction, so it cannot share another commit.
+			return CompletableFuture.completedFuture( update( command, values ) );
+		}
+		// The writer thread runs it outside of any action, so it is counted here.
+		ActionScope.record( command );
+		return writes.submit( command, values );
+	}
+
+
+	/**
+	 * newWorkers()
+	 *
+	 * @description Creates the bounded set of daemon threads that run async(...)
+	 *              tasks.
+	 *
+	 */
+	private static ThreadPoolExecutor newWorkers()
+	{
+		AtomicInteger count = new AtomicInteger( 0 );
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(
+			POOL_SIZE, POOL_SIZE, 30, TimeUnit.SECONDS,
+			new ArrayBlockingQueue<>( ASYNC_QUEUE_SIZE ),
+			task ->
+			{
+				Thread t = new Thread( task, "database-" + count.incrementAndGet() );
+				t.setDaemon( true );
+				return t;
 			}
-			return tableNames;
-		} catch( SQLException e )
+		);
+		executor.allowCoreThreadTimeOut( true );
+		return executor;
+	}
+
+
+	/**
+	 * inTransaction(Transaction)
+	 *
+	 * @description Runs <body> in one transaction at DEFAULT_ISOLATION. See
+	 *              inTransaction(int, Transaction).
+	 *
+	 */
+	public static <T> T inTransaction( Transaction<T> body )
+	{
+		return inTransaction( DEFAULT_ISOLATION, body );
+	}
+
+
+	/**
+	 * inTransaction(int, Transaction)
+	 *
+	 * @description Runs <body> in one transaction at <isolation> (one of the
+	 *              Connection.TRANSACTION_* levels) and commits it, returning what
+	 *              <body> returns. Every statement <body> runs on this thread
+	 *              shares the transaction's connection, and the first one that
+	 *              fails rolls the whole transaction back. Deadlocks and
+	 *              serialization failures are retried up to TRANSACTION_ATTEMPTS
+	 *              times; any other failure is printed and null is returned.
+	 *              Calls made inside another transaction simply join it.
+	 *
+	 */
+	public static <T> T inTransaction( int isolation, Transaction<T> body )
+	{
+		if( inMemory )
+		{
+			return inMemoryTransaction( body );
+		}
+		if( transaction.get() != null )
+		{
+			try
+			{
+				return body.run();
+			}
+			catch( SQLException e )
+			{
+				throw new TransactionAbort( e );
+			}
+		}
+		for( int attempt = 1; ; ++attempt )
+		{
+			SQLException failure = null;
+			try( PooledConnection pc = lease() )
+			{
+				Connection connection = pc.connection();
+				int previousIsolation = connection.getTransactionIsolation();
+				connection.setTransactionIsolation( isolation );
+				connection.setAutoCommit( false );
+				pc.pin( true );
+				transaction.set( pc );
+				commitTasks.set( new ArrayList<>() );
+				boolean committed = false;
+				try
+				{
+					T result = body.run();
+					connection.commit();
+					committed = true;
+					for( Runnable task : commitTasks.get() )
+					{
+						task.run();
+					}
+					return result;
+				}
+				catch( TransactionAbort e )
+				{
+					failure = e.getCause();
+				}
+				catch( SQLException e )
+				{
+					failure = e;
+				}
+				catch( RuntimeException e )
+				{
+					System.out.println( "Error running transaction, rolled back." );
+					e.printStackTrace();
+					invalidateCaches();
+					return null;
+				}
+				finally
+				{
+					transaction.remove();
+					commitTasks.remove();
+					pc.pin( false );
+					try
+					{
+						if( !committed )
+						{
+							connection.rollback();
+						}
+						connection.setAutoCommit( true );
+						connection.setTransactionIsolation( previousIsolation );
+					}
+					catch( SQLException e )
+					{
+						// A committed transaction stays committed, whatever happens to the connection afterwards.
+						if( !committed )
+						{
+							throw e;
+						}
+						System.out.println( "Error resetting the connection after a transaction." );
+						e.printStackTrace();
+					}
+				}
+			}
+			catch( SQLException e )
+			{
+				failure = failure == null ? e : failure;
+			}
+
+			// Reads made inside the transaction may have cached rows that were just rolled back.
+			invalidateCaches();
+			if( !dialect.isRetryable( failure ) || attempt >= TRANSACTION_ATTEMPTS )
+			{
+				System.out.println( "Error running transaction, rolled back." );
+				failure.printStackTrace();
+				return null;
+			}
+			try
+			{
+				Thread.sleep( RETRY_BACKOFF_MS * attempt );
+			}
+			catch( InterruptedException e )
+			{
+				Thread.currentThread().interrupt();
+				return null;
+			}
+		}
+	}
+
+
+	/**
+	 * inMemoryTransaction(Transaction)
+	 *
+	 * @description inTransaction(...) for memory tables. The transaction holds
+	 *              every MemoryTable alone until it ends, so it never has to be
+	 *              retried; on failure its changes are reversed and null is
+	 *              returned.
+	 *
+	 */
+	private static <T> T inMemoryTransaction( Transaction<T> body )
+	{
+		if( MemoryTable.isInTransaction() )
 		{
-			System.out.println( "Error getting table names." );
+			try
+			{
+				return body.run();
+			}
+			catch( SQLException e )
+			{
+				throw new TransactionAbort( e );
+			}
+		}
+		MemoryTable.begin();
+		try
+		{
+			T result = body.run();
+			MemoryTable.commit();
+			return result;
+		}
+		catch( TransactionAbort e )
+		{
+			System.out.println( "Error running transaction, rolled back." );
+			e.getCause().printStackTrace();
+			return null;
+		}
+		catch( SQLException | RuntimeException e )
+		{
+			System.out.println( "Error running transaction, rolled back." );
 			e.printStackTrace();
 			return null;
 		}
+		finally
+		{
+			MemoryTable.rollback();
+		}
+	}
+
+
+	/**
+	 * isInTransaction()
+	 *
+	 * @description Checks if the calling thread is running inside
+	 *              inTransaction(...).
+	 *
+	 */
+	public static boolean isInTransaction()
+	{
+		return transaction.get() != null || MemoryTable.isInTransaction();
+	}
+
+
+	/**
+	 * abortTransaction(SQLException)
+	 *
+	 * @description Throws <e> out of the body of the transaction bound to this
+	 *              thread, if there is one, so nothing after the failed statement
+	 *              runs. Does nothing outside a transaction.
+	 *
+	 */
+	static void abortTransaction( SQLException e )
+	{
+		if( isInTransaction() )
+		{
+			throw new TransactionAbort( e );
+		}
+	}
+
+
+	/**
+	 * onCommit(Runnable)
+	 *
+	 * @description Runs <task> once the transaction of the calling thread has
+	 *              committed, or never if it rolls back. Does nothing outside a
+	 *              transaction on a SQL server.
+	 *
+	 */
+	static void onCommit( Runnable task )
+	{
+		ArrayList<Runnable> tasks = commitTasks.get();
+		if( tasks != null )
+		{
+			tasks.add( task );
+		}
+	}
+
+
+	/**
+	 * invalidateCaches()
+	 *
+	 * @description Drops the row cache of every table.
+	 *
+	 */
+	private static void invalidateCaches()
+	{
+		Storage[] tables = sql_tables;
+		if( tables == null )
+		{
+			return;
+		}
+		for( Storage table : tables )
+		{
+			if( table instanceof SQLTable )
+			{
+				( (SQLTable) table ).invalidateAll();
+			}
+		}
+	}
+
+
+	/**
+	 * lease()
+	 *
+	 * @description Leases a connection from the pool. The caller owns it until it
+	 *              is closed, which hands it back to the pool. Inside a
+	 *              transaction this returns the transaction's connection, which
+	 *              stays leased when it is closed.
+	 *
+	 */
+	static PooledConnection lease() throws SQLException
+	{
+		PooledConnection bound = transaction.get();
+		if( bound != null )
+		{
+			return bound;
+		}
+		if( pool == null )
+		{
+			throw new SQLException( "Not connected to a database." );
+		}
+		return pool.lease();
 	}
 
 
@@ -214,18 +1066,28 @@ public final class Database
 	 * query(String)
 	 *
 	 * @description Sends a command to the SQL server, querying the server for
-	 *              something to return. This function returns with an SQLException
-	 *              if the command is invalid on the server.
+	 *              something to return. The rows are copied into a disconnected
+	 *              CachedRowSet so the connection and statement can go straight
+	 *              back to the pool. Returns null if the command is invalid on
+	 *              the server.
 	 *
 	 */
 	public static ResultSet query( String command )
 	{
-		try
+		long start = System.nanoTime();
+		try( PooledConnection pc = lease();
+			Statement statement = pc.connection().createStatement();
+			ResultSet set = statement.executeQuery( command ) )
 		{
-			return statement.executeQuery( command );
+			CachedRowSet rows = rowSetFactory.createCachedRowSet();
+			rows.populate( set );
+			StatementRegistry.record( command, start, rows.size(), false );
+			return rows;
 		}
 		catch( SQLException e )
 		{
+			StatementRegistry.record( command, start, 0, true );
+			abortTransaction( e );
 			System.out.println( "Error executing command: " + command );
 			e.printStackTrace();
 			return null;
@@ -243,14 +1105,315 @@ public final class Database
 	 */
 	public static void update( String command )
 	{
+		long start = System.nanoTime();
+		try( PooledConnection pc = lease();
+			Statement statement = pc.connection().createStatement() )
+		{
+			StatementRegistry.record( command, start, statement.executeUpdate( command ), false );
+		}
+		catch( SQLException e )
+		{
+			StatementRegistry.record( command, start, 0, true );
+			abortTransaction( e );
+			System.out.println( "Error executing command: " + command );
+			e.printStackTrace();
+		}
+	}
+
+
+	/**
+	 * query(String, Object[], ResultHandler)
+	 *
+	 * @description Runs a parameterized query through the leased connection's
+	 *              statement cache, binding <values> to the '?' placeholders in
+	 *              order. Returns null if the command is invalid on the server.
+	 *
+	 */
+	public static <T> T query( String command, Object[] values, ResultHandler<T> handler )
+	{
+		long start = System.nanoTime();
+		try( PooledConnection pc = lease() )
+		{
+			PreparedStatement ps = pc.prepare( command );
+			bind( ps, values );
+			try( ResultSet set = ps.executeQuery() )
+			{
+				long[] rows = new long[1];
+				T result = handler.handle( set, rows );
+				StatementRegistry.record( command, values, start, rows[0], false );
+				return result;
+			}
+		}
+		catch( SQLException e )
+		{
+			StatementRegistry.record( command, start, 0, true );
+			abortTransaction( e );
+			System.out.println( "Error executing command: " + command );
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+
+	/**
+	 * next(ResultSet, long[])
+	 *
+	 * @description Moves <set> to its next row, like ResultSet.next(), and counts
+	 *              the row in <rows>[0] if there is one. Used by ResultHandlers.
+	 *
+	 */
+	public static boolean next( ResultSet set, long[] rows ) throws SQLException
+	{
+		if( !set.next() )
+		{
+			return false;
+		}
+		rows[0]++;
+		return true;
+	}
+
+
+	/**
+	 * update(String, Object[])
+	 *
+	 * @description Runs a parameterized INSERT, UPDATE or DELETE through the
+	 *              leased connection's statement cache. Returns the amount of
+	 *              rows affected, or -1 if the command is invalid on the server.
+	 *
+	 */
+	public static int update( String command, Object[] values )
+	{
+		long start = System.nanoTime();
+		try( PooledConnection pc = lease() )
+		{
+			PreparedStatement ps = pc.prepare( command );
+			bind( ps, values );
+			int count = ps.executeUpdate();
+			StatementRegistry.record( command, values, start, count, false );
+			return count;
+		}
+		catch( SQLException e )
+		{
+			StatementRegistry.record( command, start, 0, true );
+			abortTransaction( e );
+			System.out.println( "Error executing command: " + command );
+			e.printStackTrace();
+			return -1;
+		}
+	}
+
+
+	/**
+	 * batch(String, Object[][], int)
+	 *
+	 * @description Runs the parameterized <command> once for every row of
+	 *              <values> using JDBC batching, <batchSize> rows per round trip
+	 *              and one commit per batch. Returns the rows affected by each
+	 *              entry of <values>. If a batch fails, its rows are retried one
+	 *              at a time so only the rows that are actually invalid come back
+	 *              as Statement.EXECUTE_FAILED.
+	 *
+	 */
+	public static int[] batch( String command, Object[][] values, int batchSize )
+	{
+		int[] counts = new int[values.length];
+		Arrays.fill( counts, Statement.EXECUTE_FAILED );
+		if( transaction.get() != null )
+		{
+			return batchInTransaction( command, values, batchSize );
+		}
+		try( PooledConnection pc = lease() )
+		{
+			Connection connection = pc.connection();
+			PreparedStatement ps = pc.prepare( command );
+			connection.setAutoCommit( false );
+			for( int start = 0; start < values.length; start += batchSize )
+			{
+				int end = Math.min( start + batchSize, values.length );
+				long began = System.nanoTime();
+				try
+				{
+					for( int i = start; i < end; ++i )
+					{
+						bind( ps, values[i] );
+						ps.addBatch();
+					}
+					int[] batchCounts = ps.executeBatch();
+					connection.commit();
+					for( int i = start; i < end; ++i )
+					{
+						counts[i] = i - start < batchCounts.length ? batchCounts[i - start] : Statement.SUCCESS_NO_INFO;
+					}
+					StatementRegistry.record( command, began, affected( batchCounts ), false );
+				}
+				catch( SQLException e )
+				{
+					StatementRegistry.record( command, began, 0, true );
+					ps.clearBatch();
+					connection.rollback();
+					for( int i = start; i < end; ++i )
+					{
+						try
+						{
+							bind( ps, values[i] );
+							counts[i] = ps.executeUpdate();
+							connection.commit();
+						}
+						catch( SQLException rowError )
+						{
+							connection.rollback();
+							System.out.println( "Error executing row " + i + " of batch: " + command );
+							System.out.println( rowError.getMessage() );
+						}
+					}
+				}
+			}
+		}
+		catch( SQLException e )
+		{
+			System.out.println( "Error executing batch: " + command );
+			e.printStackTrace();
+		}
+		return counts;
+	}
+
+
+	/**
+	 * batchInTransaction(String, Object[][], int)
+	 *
+	 * @description Same as batch(String, Object[][], int) inside a transaction:
+	 *              nothing is committed, and a failed batch fails the whole
+	 *              transaction instead of being retried row by row.
+	 *
+	 */
+	private static int[] batchInTransaction( String command, Object[][] values, int batchSize )
+	{
+		int[] counts = new int[values.length];
 		try
 		{
-			statement.executeUpdate( command );
+			PreparedStatement ps = lease().prepare( command );
+			ps.clearBatch();
+			for( int start = 0; start < values.length; start += batchSize )
+			{
+				int end = Math.min( start + batchSize, values.length );
+				long began = System.nanoTime();
+				for( int i = start; i < end; ++i )
+				{
+					bind( ps, values[i] );
+					ps.addBatch();
+				}
+				int[] batchCounts;
+				try
+				{
+					batchCounts = ps.executeBatch();
+				}
+				catch( SQLException e )
+				{
+					StatementRegistry.record( command, began, 0, true );
+					throw e;
+				}
+				StatementRegistry.record( command, began, affected( batchCounts ), false );
+				for( int i = start; i < end; ++i )
+				{
+					counts[i] = i - start < batchCounts.length ? batchCounts[i - start] : Statement.SUCCESS_NO_INFO;
+				}
+			}
 		}
 		catch( SQLException e )
 		{
+			abortTransaction( e );
+		}
+		return counts;
+	}
+
+
+	/**
+	 * affected(int[])
+	 *
+	 * @description Returns the total rows affected by a batch with <counts>, not
+	 *              counting rows the driver gives no count for.
+	 *
+	 */
+	static long affected( int[] counts )
+	{
+		long total = 0;
+		for( int count : counts )
+		{
+			total += Math.max( count, 0 );
+		}
+		return total;
+	}
+
+
+	/**
+	 * openCursor(String, Object[], int, Constants.SQL_TYPE[])
+	 *
+	 * @description Runs a parameterized query on a forward-only cursor that pulls
+	 *              <fetchSize> rows from the server at a time, reading column i
+	 *              as <types>[i]. The returned RowCursor keeps its connection
+	 *              leased until it is closed. Returns null if the command is
+	 *              invalid on the server.
+	 *
+	 */
+	public static RowCursor openCursor( String command, Object[] values, int fetchSize, Constants.SQL_TYPE[] types )
+	{
+		PooledConnection pc = null;
+		PreparedStatement ps = null;
+		long start = System.nanoTime();
+		try
+		{
+			pc = lease();
+			ps = pc.connection().prepareStatement( command, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY );
+			ps.setFetchSize( fetchSize );
+			bind( ps, values );
+			RowCursor cursor = new RowCursor( pc, ps, ps.executeQuery(), types );
+			// Only the time to the first fetch is known here; the rows are read later by the caller.
+			StatementRegistry.record( command, values, start, 0, false );
+			return cursor;
+		}
+		catch( SQLException e )
+		{
+			StatementRegistry.record( command, start, 0, true );
 			System.out.println( "Error executing command: " + command );
 			e.printStackTrace();
+			try
+			{
+				if( ps != null )
+				{
+					ps.close();
+				}
+			}
+			catch( SQLException ignored )
+			{
+			}
+			if( pc != null )
+			{
+				pc.close();
+			}
+			abortTransaction( e );
+			return null;
+		}
+	}
+
+
+	/**
+	 * bind(PreparedStatement, Object[])
+	 *
+	 * @description Binds <values> to the placeholders of <ps>, in order.
+	 *
+	 */
+	static void bind( PreparedStatement ps, Object[] values ) throws SQLException
+	{
+		for( int i = 0; i < values.length; ++i )
+		{
+			if( values[i] == null )
+			{
+				ps.setNull( i + 1, Types.VARCHAR );
+			}
+			else
+			{
+				ps.setObject( i + 1, values[i] );
+			}
 		}
 	}
 
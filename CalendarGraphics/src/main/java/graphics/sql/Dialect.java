@@ -0,0 +1,162 @@
+package sql;
+
+import java.sql.SQLException;
+
+/**
+ * Dialect
+ *
+ * @description The SQL servers the application can run against, and the
+ *              pieces of SQL and JDBC behavior that differ between them. MYSQL
+ *              is the shared clinic server. H2 is an embedded, in-process
+ *              database run in MySQL compatibility mode, for single-node
+ *              installs and for running benchmarks and tests without a server.
+ *
+ */
+public enum Dialect
+{
+	MYSQL,
+	H2;
+
+
+	/**
+	 * url(String, String)
+	 *
+	 * @description Returns the JDBC URL of database <dbName>. For MYSQL,
+	 *              <location> is the host of the server (localhost if null). For
+	 *              H2, it is the directory the database files are kept in, or
+	 *              null to keep the database in memory for the life of the JVM.
+	 *              MySQL URLs turn on cursor fetch, so RowCursor reads rows in
+	 *              batches of its fetch size instead of buffering the whole
+	 *              result, and have batched statements rewritten into multi-row
+	 *              statements.
+	 *
+	 */
+	public String url( String location, String dbName )
+	{
+		switch( this )
+		{
+			case H2:
+				String settings = ";MODE=MySQL;DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1";
+				return location == null ? "jdbc:h2:mem:" + dbName + settings : "jdbc:h2:file:" + location + "/" + dbName + settings;
+			default:
+				if( location == null )
+				{
+					return "jdbc:mysql://localhost:3306/" + dbName + "?useJDBCCompliantTimezoneShift=true&serverTimezone=UTC&useCursorFetch=true&rewriteBatchedStatements=true";
+				}
+				return "jdbc:mysql://" + location + ":3306/" + dbName + "?useCursorFetch=true&rewriteBatchedStatements=true";
+		}
+	}
+
+
+	/**
+	 * castToInt(String)
+	 *
+	 * @description Returns the SQL expression that converts the text <expression>
+	 *              into a whole number.
+	 *
+	 */
+	public String castToInt( String expression )
+	{
+		return this == H2 ? "CAST(" + expression + " AS INT)" : "CAST(" + expression + " AS UNSIGNED)";
+	}
+
+
+	/**
+	 * divide(String, int)
+	 *
+	 * @description Returns the SQL expression of the whole number division of
+	 *              <expression> by <divisor>.
+	 *
+	 */
+	public String divide( String expression, int divisor )
+	{
+		return this == H2 ? "(" + expression + " / " + divisor + ")" : "(" + expression + " DIV " + divisor + ")";
+	}
+
+
+	/**
+	 * parseDate(String)
+	 *
+	 * @description Returns the SQL expression that converts the "M/D/YYYY" text
+	 *              <expression> into a DATE.
+	 *
+	 */
+	public String parseDate( String expression )
+	{
+		return this == H2 ? "CAST(PARSEDATETIME(" + expression + ", 'M/d/yyyy') AS DATE)" : "STR_TO_DATE(" + expression + ", '%m/%d/%Y')";
+	}
+
+
+	/**
+	 * isRetryable(SQLException)
+	 *
+	 * @description Checks if <e> is a deadlock, lock wait timeout or
+	 *              serialization failure, which succeed if the transaction is
+	 *              simply run again.
+	 *
+	 */
+	public boolean isRetryable( SQLException e )
+	{
+		for( ; e != null; e = e.getNextException() )
+		{
+			if( "40001".equals( e.getSQLState() ) )
+			{
+				return true;
+			}
+			if( this == MYSQL && ( e.getErrorCode() == 1213 || e.getErrorCode() == 1205 ) )
+			{
+				return true;
+			}
+			if( this == H2 && e.getErrorCode() == 50200 )
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	/**
+	 * isFullScan(String[])
+	 *
+	 * @description Checks if an EXPLAIN <plan>, one "column=value, ..." line per
+	 *              row, reads a whole table instead of using an index.
+	 *
+	 */
+	public boolean isFullScan( String[] plan )
+	{
+		for( String row : plan )
+		{
+			if( this == H2 ? row.contains( ".tableScan" ) : row.matches( "(?i).*\\btype=ALL\\b.*" ) )
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	/**
+	 * of(String)
+	 *
+	 * @description Returns the dialect named <name> (case insensitive), or MYSQL
+	 *              if <name> is null.
+	 *
+	 */
+	public static Dialect of( String name )
+	{
+		return name == null ? MYSQL : valueOf( name.trim().toUpperCase() );
+	}
+
+
+	/**
+	 * fromURL(String)
+	 *
+	 * @description Returns the dialect a JDBC URL connects with.
+	 *
+	 */
+	public static Dialect fromURL( String url )
+	{
+		return url.startsWith( "jdbc:h2:" ) ? H2 : MYSQL;
+	}
+}
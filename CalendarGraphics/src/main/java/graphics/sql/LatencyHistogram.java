@@ -0,0 +1,161 @@
+package sql;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram
+ *
+ * @description Lock-free histogram of latencies in microseconds, laid out like
+ *              an HDR histogram: each power of two is split into SUB_BUCKETS
+ *              linear buckets, so every recorded value is kept to within about
+ *              6% and percentiles cost a single pass over a fixed array no
+ *              matter how many values were recorded.
+ *
+ */
+public final class LatencyHistogram
+{
+	// SUB_BITS, SUB_BUCKETS -> Linear buckets per power of two (2^SUB_BITS).
+	// BUCKETS -> Enough buckets for any positive long.
+	// counts -> Values recorded in each bucket.
+	// count, total, max -> Amount, sum and largest of the recorded values.
+	private final static int SUB_BITS = 4, SUB_BUCKETS = 1 << SUB_BITS;
+	private final static int BUCKETS = ( 64 - SUB_BITS + 1 ) * SUB_BUCKETS;
+	private final AtomicLongArray counts = new AtomicLongArray( BUCKETS );
+	private final LongAdder count = new LongAdder(), total = new LongAdder();
+	private final AtomicLong max = new AtomicLong( 0 );
+
+
+	/**
+	 * record(long)
+	 *
+	 * @description Records one latency of <micros> microseconds.
+	 *
+	 */
+	public void record( long micros )
+	{
+		micros = Math.max( micros, 0 );
+		counts.incrementAndGet( indexOf( micros ) );
+		count.increment();
+		total.add( micros );
+		max.accumulateAndGet( micros, Math::max );
+	}
+
+
+	/**
+	 * percentile(double)
+	 *
+	 * @description Returns the latency (us) that <percentile> percent of the
+	 *              recorded values are at or below, or 0 if nothing was recorded.
+	 *
+	 */
+	public long percentile( double percentile )
+	{
+		long recorded = 0;
+		long[] snapshot = new long[BUCKETS];
+		for( int i = 0; i < BUCKETS; ++i )
+		{
+			snapshot[i] = counts.get( i );
+			recorded += snapshot[i];
+		}
+		if( recorded == 0 )
+		{
+			return 0;
+		}
+		long rank = Math.max( 1, (long) Math.ceil( recorded * percentile / 100.0 ) );
+		long seen = 0;
+		for( int i = 0; i < BUCKETS; ++i )
+		{
+			seen += snapshot[i];
+			if( seen >= rank )
+			{
+				return Math.min( highestOf( i ), max.get() );
+			}
+		}
+		return max.get();
+	}
+
+
+	/**
+	 * reset()
+	 *
+	 * @description Forgets every recorded value.
+	 *
+	 */
+	public void reset()
+	{
+		for( int i = 0; i < BUCKETS; ++i )
+		{
+			counts.set( i, 0 );
+		}
+		count.reset();
+		total.reset();
+		max.set( 0 );
+	}
+
+
+	/**
+	 * indexOf(long)
+	 *
+	 * @description Returns the bucket <value> is counted in. Values below
+	 *              SUB_BUCKETS get a bucket each; above that, the bucket is picked
+	 *              by the power of two and the next SUB_BITS bits of the value.
+	 *
+	 */
+	private static int indexOf( long value )
+	{
+		if( value < SUB_BUCKETS )
+		{
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros( value );
+		int mantissa = (int) ( value >>> ( exponent - SUB_BITS ) );
+		return ( exponent - SUB_BITS + 1 ) * SUB_BUCKETS + mantissa - SUB_BUCKETS;
+	}
+
+
+	/**
+	 * highestOf(int)
+	 *
+	 * @description Returns the largest value counted in bucket <index>.
+	 *
+	 */
+	private static long highestOf( int index )
+	{
+		if( index < SUB_BUCKETS )
+		{
+			return index;
+		}
+		int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+		long mantissa = index % SUB_BUCKETS + SUB_BUCKETS;
+		long width = 1L << ( exponent - SUB_BITS );
+		return mantissa * width + width - 1;
+	}
+
+
+	// GETTERS
+	public long getCount()
+	{
+		return count.sum();
+	}
+
+
+	public long getTotal()
+	{
+		return total.sum();
+	}
+
+
+	public long getMax()
+	{
+		return max.get();
+	}
+
+
+	public long getMean()
+	{
+		long n = count.sum();
+		return n == 0 ? 0 : total.sum() / n;
+	}
+}
@@ -0,0 +1,840 @@
+package sql;
+
+import utils.Constants;
+import utils.Constants.SQL_TYPE;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * MemoryTable
+ *
+ * @description Storage kept entirely in the heap of this process, for tests,
+ *              benchmarks and installs that do not need a SQL server. Entries
+ *              are held by row number and every column has a hash index from
+ *              value to row numbers, so a lookup on any field does not scan the
+ *              table. The primary key, unique keys, NOT NULL columns and column
+ *              types declared in Constants.TABLES are enforced the way the
+ *              server enforces them, and values come back in the same form
+ *              SQLTable returns them. Every MemoryTable shares one lock: reads
+ *              share it, while a write or a whole transaction holds it alone, so
+ *              readers only ever see committed entries.
+ *
+ */
+public final class MemoryTable implements Storage
+{
+	// Write -> A change that fails the way a statement fails on the server.
+	private interface Write
+	{
+		int run() throws SQLException;
+	}
+
+	// LOCK -> Shared by every MemoryTable. Reads take the read lock; writes and transactions take the write lock.
+	// undo -> Changes reversed if the transaction running on this thread rolls back, null outside of one.
+	// table -> Declaration of this table in Constants.TABLES.
+	// fields, types -> Column names and their SQL types, in order.
+	// rows -> Entries by row number (insertion order), holding normalized values.
+	// indexes -> Per column, the row numbers holding each value. Nulls are not indexed, as "= NULL" never matches.
+	// keys -> Column positions of the primary key and of each unique key.
+	// nextRow -> Next row number handed out.
+	private final static ReentrantReadWriteLock LOCK = new ReentrantReadWriteLock();
+	private final static ThreadLocal<ArrayDeque<Runnable>> undo = new ThreadLocal<>();
+	private final Constants.TABLES table;
+	private final String[] fields;
+	private final SQL_TYPE[] types;
+	private final ConcurrentSkipListMap<Long, String[]> rows = new ConcurrentSkipListMap<>();
+	private final ArrayList<ConcurrentHashMap<String, ConcurrentSkipListSet<Long>>> indexes = new ArrayList<>();
+	private final int[][] keys;
+	private final AtomicLong nextRow = new AtomicLong( 1 );
+
+
+	/**
+	 * CONSTRUCTOR (Constants.TABLES)
+	 *
+	 * @description Creates an empty in-memory copy of the declared <table>.
+	 *
+	 */
+	public MemoryTable( Constants.TABLES table )
+	{
+		this.table = table;
+		this.fields = table.fields();
+		this.types = table.types();
+		for( int i = 0; i < fields.length; ++i )
+		{
+			indexes.add( new ConcurrentHashMap<>() );
+		}
+		this.keys = new int[table.uniqueKeys().length + 1][];
+		this.keys[0] = positions( table.primaryKey() );
+		for( int i = 0; i < table.uniqueKeys().length; ++i )
+		{
+			this.keys[i + 1] = positions( table.uniqueKeys()[i] );
+		}
+	}
+
+
+	public void insertEntry( String[] entryValues )
+	{
+		if( entryValues.length == fields.length )
+		{
+			write( "INSERT", () -> insert( entryValues ) );
+		}
+	}
+
+
+	public int[] insertEntries( String[][] entries )
+	{
+		int[] counts = new int[entries.length];
+		for( int i = 0; i < entries.length; ++i )
+		{
+			String[] entry = entries[i];
+			counts[i] = entry.length == fields.length ? write( "INSERT", () -> insert( entry ) ) : Statement.EXECUTE_FAILED;
+			counts[i] = counts[i] < 0 ? Statement.EXECUTE_FAILED : counts[i];
+		}
+		return counts;
+	}
+
+
+	public void deleteEntry( String[] fields, String[] values )
+	{
+		deleteWhere( fields, values );
+	}
+
+
+	public int deleteWhere( String[] fields, String[] values )
+	{
+		return write( "DELETE", () -> delete( match( fields, values ) ) );
+	}
+
+
+	public int deleteWhereIn( String field, String[] values )
+	{
+		return write( "DELETE", () -> delete( matchIn( field, values ) ) );
+	}
+
+
+	public int[] deleteEntries( String[] fields, String[][] values, int batchSize )
+	{
+		int[] counts = new int[values.length];
+		for( int i = 0; i < values.length; ++i )
+		{
+			counts[i] = deleteWhere( fields, values[i] );
+			counts[i] = counts[i] < 0 ? Statement.EXECUTE_FAILED : counts[i];
+		}
+		return counts;
+	}
+
+
+	public void editEntry( String[] identifierFields, String[] identifierValues, String[] fieldsToEdit, String[] newValues )
+	{
+		updateWhere( identifierFields, identifierValues, fieldsToEdit, newValues );
+	}
+
+
+	public int updateWhere( String[] whereFields, String[] whereValues, String[] fieldsToEdit, String[] newValues )
+	{
+		return write( "UPDATE", () -> update( match( whereFields, whereValues ), fieldsToEdit, newValues ) );
+	}
+
+
+	public int updateWhereIn( String field, String[] values, String[] fieldsToEdit, String[] newValues )
+	{
+		return write( "UPDATE", () -> update( matchIn( field, values ), fieldsToEdit, newValues ) );
+	}
+
+
+	public int[] editEntries( String[] identifierFields, String[][] identifierValues, String[] fieldsToEdit, String[][] newValues, int batchSize )
+	{
+		int[] counts = new int[identifierValues.length];
+		for( int i = 0; i < identifierValues.length; ++i )
+		{
+			counts[i] = updateWhere( identifierFields, identifierValues[i], fieldsToEdit, newValues[i] );
+			counts[i] = counts[i] < 0 ? Statement.EXECUTE_FAILED : counts[i];
+		}
+		return counts;
+	}
+
+
+	/**
+	 * queueInsert(String[])
+	 *
+	 * @description Writes to memory are as cheap as queueing them, so the queued
+	 *              writes run straight away and return a completed future.
+	 *
+	 */
+	public CompletableFuture<Integer> queueInsert( String[] entryValues )
+	{
+		if( entryValues.length != fields.length )
+		{
+			return CompletableFuture.completedFuture( Statement.EXECUTE_FAILED );
+		}
+		return queue( "INSERT", () -> insert( entryValues ) );
+	}
+
+
+	public CompletableFuture<Integer> queueDelete( String[] fields, String[] values )
+	{
+		return queue( "DELETE", () -> delete( match( fields, values ) ) );
+	}
+
+
+	public CompletableFuture<Integer> queueEdit( String[] identifierFields, String[] identifierValues, String[] fieldsToEdit, String[] newValues )
+	{
+		return queue( "UPDATE", () -> update( match( identifierFields, identifierValues ), fieldsToEdit, newValues ) );
+	}
+
+
+	public String[][] getAllEntriesFor( String field, String value )
+	{
+		if( table.getFieldIdx( field ) < 0 )
+		{
+			return null;
+		}
+		return getAllEntriesFor( new String[] { field }, new String[] { value } );
+	}
+
+
+	public String[][] getAllEntriesFor( String[] fields, String[] values )
+	{
+		return read( () ->
+			{
+				List<Long> matched = match( fields, values );
+				String[][] entries = new String[matched.size()][];
+				for( int i = 0; i < entries.length; ++i )
+				{
+					entries[i] = rows.get( matched.get( i ) ).clone();
+				}
+				return entries;
+			}
+		);
+	}
+
+
+	public String[] getEntry( String field, String value )
+	{
+		return getEntry( new String[] { field }, new String[] { value } );
+	}
+
+
+	public String[] getEntry( String[] fields, String[] values )
+	{
+		return read( () ->
+			{
+				List<Long> matched = match( fields, values );
+				return matched.isEmpty() ? null : rows.get( matched.get( 0 ) ).clone();
+			}
+		);
+	}
+
+
+	public String getValue( String field, String value, String wantedField )
+	{
+		return getValue( new String[] { field }, new String[] { value }, wantedField );
+	}
+
+
+	public String getValue( String[] fields, String[] values, String wantedField )
+	{
+		int wanted = positions( new String[] { wantedField } )[0];
+		String[] entry = getEntry( fields, values );
+		return entry == null ? null : entry[wanted];
+	}
+
+
+	public boolean entryExists( String field, String value )
+	{
+		return entryExists( new String[] { field }, new String[] { value } );
+	}
+
+
+	public boolean entryExists( String[] fields, String[] values )
+	{
+		return read( () -> !match( fields, values ).isEmpty() );
+	}
+
+
+	public Stream<String[]> stream()
+	{
+		return stream( new String[0], new String[0], SQLTable.DEFAULT_FETCH_SIZE );
+	}
+
+
+	/**
+	 * stream(String[], String[], int)
+	 *
+	 * @description Streams a snapshot of the matching entries, taken when the
+	 *              stream is created. <fetchSize> is not used.
+	 *
+	 */
+	public Stream<String[]> stream( String[] fields, String[] values, int fetchSize )
+	{
+		return Stream.of( getAllEntriesFor( fields, values ) );
+	}
+
+
+	/**
+	 * clear()
+	 *
+	 * @description Deletes every entry. Like TRUNCATE, this cannot be rolled back.
+	 *
+	 */
+	void clear()
+	{
+		LOCK.writeLock().lock();
+		try
+		{
+			rows.clear();
+			for( ConcurrentHashMap<String, ConcurrentSkipListSet<Long>> index : indexes )
+			{
+				index.clear();
+			}
+		}
+		finally
+		{
+			LOCK.writeLock().unlock();
+		}
+	}
+
+
+	/**
+	 * begin()
+	 *
+	 * @description Starts a transaction on the calling thread. Every MemoryTable
+	 *              is locked for writing until rollback() is called, which makes
+	 *              memory transactions serializable.
+	 *
+	 */
+	static void begin()
+	{
+		LOCK.writeLock().lock();
+		undo.set( new ArrayDeque<>() );
+	}
+
+
+	/**
+	 * commit()
+	 *
+	 * @description Keeps every change made by the transaction of this thread. The
+	 *              transaction still has to be ended with rollback().
+	 *
+	 */
+	static void commit()
+	{
+		undo.get().clear();
+	}
+
+
+	/**
+	 * rollback()
+	 *
+	 * @description Reverses every change the transaction of this thread made
+	 *              since begin() (nothing, after commit()) and releases the lock.
+	 *
+	 */
+	static void rollback()
+	{
+		ArrayDeque<Runnable> changes = undo.get();
+		undo.remove();
+		try
+		{
+			while( !changes.isEmpty() )
+			{
+				changes.pop().run();
+			}
+		}
+		finally
+		{
+			LOCK.writeLock().unlock();
+		}
+	}
+
+
+	/**
+	 * isInTransaction()
+	 *
+	 * @description Checks if the calling thread is between begin() and
+	 *              rollback().
+	 *
+	 */
+	static boolean isInTransaction()
+	{
+		return undo.get() != null;
+	}
+
+
+	/**
+	 * write(String, Write)
+	 *
+	 * @description Runs <change> alone. If it fails, the error is printed and,
+	 *              inside a transaction, the transaction is aborted. Returns what
+	 *              <change> returns, or -1 if it failed.
+	 *
+	 */
+	private int write( String kind, Write change )
+	{
+		LOCK.writeLock().lock();
+		try
+		{
+			return change.run();
+		}
+		catch( SQLException e )
+		{
+			Database.abortTransaction( e );
+			System.out.println( "Error executing " + kind + " on " + getName() );
+			e.printStackTrace();
+			return -1;
+		}
+		finally
+		{
+			LOCK.writeLock().unlock();
+		}
+	}
+
+
+	/**
+	 * queue(String, Write)
+	 *
+	 * @description Same as write(String, Write), returning the outcome as a
+	 *              completed future.
+	 *
+	 */
+	private CompletableFuture<Integer> queue( String kind, Write change )
+	{
+		LOCK.writeLock().lock();
+		try
+		{
+			return CompletableFuture.completedFuture( change.run() );
+		}
+		catch( SQLException e )
+		{
+			Database.abortTransaction( e );
+			System.out.println( "Error executing queued " + kind + " on " + getName() );
+			System.out.println( e.getMessage() );
+			return CompletableFuture.failedFuture( e );
+		}
+		finally
+		{
+			LOCK.writeLock().unlock();
+		}
+	}
+
+
+	/**
+	 * read(Supplier)
+	 *
+	 * @description Runs <lookup> while no write is in progress.
+	 *
+	 */
+	private <T> T read( Supplier<T> lookup )
+	{
+		LOCK.readLock().lock();
+		try
+		{
+			return lookup.get();
+		}
+		finally
+		{
+			LOCK.readLock().unlock();
+		}
+	}
+
+
+	/**
+	 * insert(String[])
+	 *
+	 * @description Checks and stores a new entry. Returns 1.
+	 *
+	 */
+	private int insert( String[] entryValues ) throws SQLException
+	{
+		String[] entry = new String[fields.length];
+		for( int i = 0; i < entry.length; ++i )
+		{
+			entry[i] = column( i, entryValues[i] );
+		}
+		checkKeys( entry, null );
+		long row = nextRow.getAndIncrement();
+		put( row, entry );
+		logUndo( () -> remove( row ) );
+		return 1;
+	}
+
+
+	/**
+	 * update(Collection, String[], String[])
+	 *
+	 * @description Sets <fieldsToEdit> to <newValues> on every entry of
+	 *              <matched>. Nothing changes unless every entry passes the
+	 *              checks. Returns the amount of entries matched.
+	 *
+	 */
+	private int update( Collection<Long> matched, String[] fieldsToEdit, String[] newValues ) throws SQLException
+	{
+		int[] columns = positions( fieldsToEdit );
+		String[] values = new String[columns.length];
+		for( int i = 0; i < columns.length; ++i )
+		{
+			values[i] = column( columns[i], newValues[i] );
+		}
+		HashSet<Long> edited = new HashSet<>( matched );
+		HashMap<Long, String[]> changed = new HashMap<>();
+		for( Long row : matched )
+		{
+			String[] entry = rows.get( row ).clone();
+			for( int i = 0; i < columns.length; ++i )
+			{
+				entry[columns[i]] = values[i];
+			}
+			checkKeys( entry, edited );
+			changed.put( row, entry );
+		}
+		checkKeys( changed );
+		for( Long row : changed.keySet() )
+		{
+			String[] old = remove( row );
+			String[] entry = changed.get( row );
+			put( row, entry );
+			logUndo( () ->
+				{
+					remove( row );
+					put( row, old );
+				}
+			);
+		}
+		return matched.size();
+	}
+
+
+	/**
+	 * delete(Collection)
+	 *
+	 * @description Removes every entry of <matched>. Returns how many there were.
+	 *
+	 */
+	private int delete( Collection<Long> matched )
+	{
+		for( Long row : matched )
+		{
+			String[] old = remove( row );
+			logUndo( () -> put( row, old ) );
+		}
+		return matched.size();
+	}
+
+
+	/**
+	 * match(String[], String[])
+	 *
+	 * @description Returns the row numbers, in order, of the entries whose
+	 *              <fields> hold the corresponding <values>. Starts from the
+	 *              smallest index bucket of the fields and checks the rest on the
+	 *              entries themselves.
+	 *
+	 */
+	private List<Long> match( String[] fields, String[] values )
+	{
+		int[] columns = positions( fields );
+		ArrayList<Long> matched = new ArrayList<>();
+		if( columns.length == 0 )
+		{
+			matched.addAll( rows.keySet() );
+			return matched;
+		}
+		String[] wanted = new String[columns.length];
+		ConcurrentSkipListSet<Long> smallest = null;
+		for( int i = 0; i < columns.length; ++i )
+		{
+			wanted[i] = comparable( columns[i], values[i] );
+			ConcurrentSkipListSet<Long> bucket = wanted[i] == null ? null : indexes.get( columns[i] ).get( wanted[i] );
+			if( bucket == null )
+			{
+				return matched;
+			}
+			if( smallest == null || bucket.size() < smallest.size() )
+			{
+				smallest = bucket;
+			}
+		}
+		for( Long row : smallest )
+		{
+			String[] entry = rows.get( row );
+			boolean matches = entry != null;
+			for( int i = 0; matches && i < columns.length; ++i )
+			{
+				matches = wanted[i].equals( entry[columns[i]] );
+			}
+			if( matches )
+			{
+				matched.add( row );
+			}
+		}
+		return matched;
+	}
+
+
+	/**
+	 * matchIn(String, String[])
+	 *
+	 * @description Returns the row numbers, in order, of the entries whose
+	 *              <field> holds any of <values>.
+	 *
+	 */
+	private List<Long> matchIn( String field, String[] values )
+	{
+		int column = positions( new String[] { field } )[0];
+		TreeSet<Long> matched = new TreeSet<>();
+		for( String value : values )
+		{
+			String wanted = comparable( column, value );
+			ConcurrentSkipListSet<Long> bucket = wanted == null ? null : indexes.get( column ).get( wanted );
+			if( bucket != null )
+			{
+				matched.addAll( bucket );
+			}
+		}
+		return new ArrayList<>( matched );
+	}
+
+
+	/**
+	 * column(int, String)
+	 *
+	 * @description Returns <value> normalized for column <idx>, after the checks
+	 *              the server makes before storing it.
+	 *
+	 */
+	private String column( int idx, String value ) throws SQLException
+	{
+		if( value == null )
+		{
+			if( !table.canHoldNull()[idx] )
+			{
+				throw new SQLException( "Column '" + fields[idx] + "' cannot be null", "23000", 1048 );
+			}
+			return null;
+		}
+		String normalized;
+		try
+		{
+			normalized = types[idx].normalize( value );
+		}
+		catch( IllegalArgumentException e )
+		{
+			throw new SQLException( e.getMessage() + " for column '" + fields[idx] + "'", "22007", 1366 );
+		}
+		if( ( types[idx] == SQL_TYPE.VARCHAR || types[idx] == SQL_TYPE.CHAR ) && normalized.length() > table.varCharSizes()[idx] )
+		{
+			throw new SQLException( "Data too long for column '" + fields[idx] + "'", "22001", 1406 );
+		}
+		return normalized;
+	}
+
+
+	/**
+	 * comparable(int, String)
+	 *
+	 * @description Returns <value> normalized for matching against column <idx>,
+	 *              or null if it cannot match any entry.
+	 *
+	 */
+	private String comparable( int idx, String value )
+	{
+		try
+		{
+			return types[idx].normalize( value );
+		}
+		catch( IllegalArgumentException e )
+		{
+			return null;
+		}
+	}
+
+
+	/**
+	 * checkKeys(String[], Collection)
+	 *
+	 * @description Throws a duplicate entry error if <entry> holds the same
+	 *              primary or unique key as a stored entry, not counting the rows
+	 *              in <ignored> (may be null).
+	 *
+	 */
+	private void checkKeys( String[] entry, Collection<Long> ignored ) throws SQLException
+	{
+		for( int[] key : keys )
+		{
+			if( key.length == 0 )
+			{
+				continue;
+			}
+			String[] keyFields = new String[key.length];
+			String[] keyValues = new String[key.length];
+			for( int i = 0; i < key.length; ++i )
+			{
+				keyFields[i] = fields[key[i]];
+				keyValues[i] = entry[key[i]];
+			}
+			for( Long row : match( keyFields, keyValues ) )
+			{
+				if( ignored == null || !ignored.contains( row ) )
+				{
+					throw duplicate( keyValues );
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * checkKeys(HashMap)
+	 *
+	 * @description Throws a duplicate entry error if two of the <changed> entries
+	 *              hold the same primary or unique key.
+	 *
+	 */
+	private void checkKeys( HashMap<Long, String[]> changed ) throws SQLException
+	{
+		for( int[] key : keys )
+		{
+			if( key.length == 0 )
+			{
+				continue;
+			}
+			HashSet<List<String>> seen = new HashSet<>();
+			for( String[] entry : changed.values() )
+			{
+				ArrayList<String> keyValues = new ArrayList<>();
+				for( int i = 0; i < key.length; ++i )
+				{
+					keyValues.add( entry[key[i]] );
+				}
+				if( !keyValues.contains( null ) && !seen.add( keyValues ) )
+				{
+					throw duplicate( keyValues.toArray( new String[0] ) );
+				}
+			}
+		}
+	}
+
+
+	private SQLException duplicate( String[] keyValues )
+	{
+		return new SQLException( "Duplicate entry '" + String.join( "-", keyValues ) + "' in " + getName(), "23000", 1062 );
+	}
+
+
+	/**
+	 * put(long, String[])
+	 *
+	 * @description Stores <entry> as row <row> and indexes it.
+	 *
+	 */
+	private void put( long row, String[] entry )
+	{
+		rows.put( row, entry );
+		for( int i = 0; i < entry.length; ++i )
+		{
+			if( entry[i] != null )
+			{
+				indexes.get( i ).computeIfAbsent( entry[i], k -> new ConcurrentSkipListSet<>() ).add( row );
+			}
+		}
+	}
+
+
+	/**
+	 * remove(long)
+	 *
+	 * @description Removes row <row> and its index entries. Returns the entry.
+	 *
+	 */
+	private String[] remove( long row )
+	{
+		String[] entry = rows.remove( row );
+		for( int i = 0; i < entry.length; ++i )
+		{
+			if( entry[i] != null )
+			{
+				ConcurrentSkipListSet<Long> bucket = indexes.get( i ).get( entry[i] );
+				bucket.remove( row );
+				if( bucket.isEmpty() )
+				{
+					indexes.get( i ).remove( entry[i] );
+				}
+			}
+		}
+		return entry;
+	}
+
+
+	/**
+	 * logUndo(Runnable)
+	 *
+	 * @description Records how to reverse a change, if a transaction is running
+	 *              on this thread.
+	 *
+	 */
+	private static void logUndo( Runnable reverse )
+	{
+		ArrayDeque<Runnable> changes = undo.get();
+		if( changes != null )
+		{
+			changes.push( reverse );
+		}
+	}
+
+
+	/**
+	 * positions(String[])
+	 *
+	 * @description Returns the column position of each of <fields>. Throws
+	 *              IllegalArgumentException for a field this table does not have,
+	 *              like SQLTable does.
+	 *
+	 */
+	private int[] positions( String[] fields )
+	{
+		int[] positions = new int[fields.length];
+		for( int i = 0; i < fields.length; ++i )
+		{
+			positions[i] = table.getFieldIdx( fields[i] );
+			if( positions[i] < 0 )
+			{
+				throw new IllegalArgumentException( "Unknown field \"" + fields[i] + "\" in table " + getName() );
+			}
+		}
+		return positions;
+	}
+
+
+	// GETTERS
+	public String getName()
+	{
+		return table.name();
+	}
+
+
+	public String[] getFields()
+	{
+		return fields.clone();
+	}
+
+
+	public int getSize()
+	{
+		return rows.size();
+	}
+}
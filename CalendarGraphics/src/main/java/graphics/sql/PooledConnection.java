@@ -0,0 +1,169 @@
+package sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * PooledConnection implements AutoCloseable
+ *
+ * @description Wraps a physical JDBC Connection that is owned by a
+ *              ConnectionPool. Closing a PooledConnection does not close the
+ *              underlying Connection, it only hands it back to the pool so the
+ *              next lease can reuse it. Each connection also keeps its own
+ *              cache of PreparedStatements so a statement is only parsed and
+ *              planned once per connection.
+ *
+ */
+public final class PooledConnection implements AutoCloseable
+{
+	// STATEMENT_CACHE_SIZE -> Most PreparedStatements kept open per connection.
+	public final static int STATEMENT_CACHE_SIZE = 64;
+
+	// pool -> Pool that owns this connection.
+	// connection -> Physical connection to the SQL server.
+	// lastUsed -> Time (ms) at which this connection was last returned to the pool.
+	// statements -> PreparedStatements created on this connection, keyed by their SQL, least recently used first.
+	// pinned -> True while a transaction is bound to this connection; close() then keeps it leased.
+	private final ConnectionPool pool;
+	private final Connection connection;
+	private long lastUsed;
+	private boolean pinned = false;
+	private final LinkedHashMap<String, PreparedStatement> statements = new LinkedHashMap<>( 16, 0.75f, true )
+	{
+		@ Override
+		protected boolean removeEldestEntry( Map.Entry<String, PreparedStatement> eldest )
+		{
+			if( size() > STATEMENT_CACHE_SIZE )
+			{
+				closeQuietly( eldest.getValue() );
+				return true;
+			}
+			return false;
+		}
+	};
+
+
+	/**
+	 * CONSTRUCTOR (ConnectionPool, Connection)
+	 *
+	 * @description Creates a new PooledConnection that belongs to <pool>.
+	 *
+	 */
+	PooledConnection( ConnectionPool pool, Connection connection )
+	{
+		this.pool = pool;
+		this.connection = connection;
+		this.lastUsed = System.currentTimeMillis();
+	}
+
+
+	/**
+	 * close()
+	 *
+	 * @description Returns this connection to the pool it was leased from, unless
+	 *              it is pinned to a transaction.
+	 *
+	 */
+	@ Override
+	public void close()
+	{
+		if( pinned )
+		{
+			return;
+		}
+		pool.release( this );
+	}
+
+
+	/**
+	 * prepare(String)
+	 *
+	 * @description Returns the cached PreparedStatement for <sql>, preparing it on
+	 *              this connection the first time it is asked for. Only the
+	 *              current lease holder may use the returned statement.
+	 *
+	 */
+	public PreparedStatement prepare( String sql ) throws SQLException
+	{
+		PreparedStatement ps = statements.get( sql );
+		if( ps == null || ps.isClosed() )
+		{
+			ps = connection.prepareStatement( sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY );
+			statements.put( sql, ps );
+		}
+		return ps;
+	}
+
+
+	/**
+	 * discard()
+	 *
+	 * @description Closes the physical connection. Only the pool should call this.
+	 *
+	 */
+	void discard()
+	{
+		for( PreparedStatement ps : statements.values() )
+		{
+			closeQuietly( ps );
+		}
+		statements.clear();
+		try
+		{
+			connection.close();
+		}
+		catch( SQLException e )
+		{
+			System.out.println( "Error closing pooled connection." );
+		}
+	}
+
+
+	/**
+	 * closeQuietly(PreparedStatement)
+	 *
+	 * @description Closes a statement that is being evicted from the cache.
+	 *
+	 */
+	private static void closeQuietly( PreparedStatement ps )
+	{
+		try
+		{
+			ps.close();
+		}
+		catch( SQLException e )
+		{
+			System.out.println( "Error closing cached statement." );
+		}
+	}
+
+
+	// GETTERS
+	public Connection connection()
+	{
+		return connection;
+	}
+
+
+	long lastUsed()
+	{
+		return lastUsed;
+	}
+
+
+	// SETTERS
+	void pin( boolean pinned )
+	{
+		this.pinned = pinned;
+	}
+
+
+	void touch()
+	{
+		lastUsed = System.currentTimeMillis();
+	}
+}
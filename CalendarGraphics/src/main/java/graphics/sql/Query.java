@@ -0,0 +1,294 @@
+package sql;
+
+import utils.Constants.SQL_TYPE;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Query
+ *
+ * @description Small fluent builder for SELECT statements on one SQLTable.
+ *              Only the columns that are asked for are sent back from the
+ *              server, and existence checks are sent as "SELECT 1 ... LIMIT 1".
+ *              (example: USERS.select( "title" ).where( "user_id", id
+ *              ).limit( 1 ).fetchValue())
+ *
+ */
+public final class Query
+{
+	// table -> Table being queried.
+	// columns -> Columns projected by the query, in order.
+	// whereFields, whereValues -> Equality filters, joined with AND.
+	// orderBy -> Column to sort by, null for no ORDER BY.
+	// limit -> Most rows returned, -1 for no LIMIT.
+	private final SQLTable table;
+	private final String[] columns;
+	private final ArrayList<String> whereFields = new ArrayList<>();
+	private final ArrayList<String> whereValues = new ArrayList<>();
+	private String orderBy = null;
+	private boolean ascending = true;
+	private int limit = -1;
+
+
+	/**
+	 * CONSTRUCTOR (SQLTable, String[])
+	 *
+	 * @description Creates a query that selects <columns> from <table>. Use
+	 *              SQLTable.select(String...) instead.
+	 *
+	 */
+	Query( SQLTable table, String[] columns )
+	{
+		this.table = table;
+		this.columns = columns;
+		for( int i = 0; i < columns.length; ++i )
+		{
+			table.checkField( columns[i] );
+		}
+	}
+
+
+	/**
+	 * where(String, String)
+	 *
+	 * @description Only matches entries whose <field> holds <value>.
+	 *
+	 */
+	public Query where( String field, String value )
+	{
+		table.checkField( field );
+		whereFields.add( field );
+		whereValues.add( value );
+		return this;
+	}
+
+
+	/**
+	 * where(String[], String[])
+	 *
+	 * @description Only matches entries whose <fields> hold the corresponding
+	 *              <values>.
+	 *
+	 */
+	public Query where( String[] fields, String[] values )
+	{
+		for( int i = 0; i < fields.length; ++i )
+		{
+			where( fields[i], values[i] );
+		}
+		return this;
+	}
+
+
+	/**
+	 * orderBy(String, boolean)
+	 *
+	 * @description Sorts the results by <field>.
+	 *
+	 */
+	public Query orderBy( String field, boolean ascending )
+	{
+		table.checkField( field );
+		this.orderBy = field;
+		this.ascending = ascending;
+		return this;
+	}
+
+
+	/**
+	 * limit(int)
+	 *
+	 * @description Returns at most <limit> entries.
+	 *
+	 */
+	public Query limit( int limit )
+	{
+		this.limit = limit;
+		return this;
+	}
+
+
+	/**
+	 * fetch()
+	 *
+	 * @description Runs the query and returns every matching entry, holding the
+	 *              projected columns in order. Returns null if the query fails.
+	 *
+	 */
+	public String[][] fetch()
+	{
+		return Database.query( toSQL( false ), values(), this::materialize );
+	}
+
+
+	/**
+	 * fetchFirst()
+	 *
+	 * @description Runs the query and returns the first matching entry, or null
+	 *              if there is none.
+	 *
+	 */
+	public String[] fetchFirst()
+	{
+		return Database.query( toSQL( false ), values(), ( set, rows ) ->
+			{
+				if( !Database.next( set, rows ) )
+				{
+					return null;
+				}
+				String[] entry = new String[columns.length];
+				for( int i = 0; i < entry.length; ++i )
+				{
+					entry[i] = table.typeOf( columns[i] ).fromSQL( set, i + 1 );
+				}
+				return entry;
+			}
+		);
+	}
+
+
+	/**
+	 * fetchValue()
+	 *
+	 * @description Runs the query and returns the first projected column of the
+	 *              first matching entry, or null if there is none.
+	 *
+	 */
+	public String fetchValue()
+	{
+		return Database.query( toSQL( false ), values(), ( set, rows ) -> Database.next( set, rows ) ? table.typeOf( columns[0] ).fromSQL( set, 1 ) : null );
+	}
+
+
+	/**
+	 * exists()
+	 *
+	 * @description Checks whether any entry matches, without sending any of its
+	 *              columns back. The projection and limit are ignored.
+	 *
+	 */
+	public boolean exists()
+	{
+		Boolean exists = Database.query( toSQL( true ), values(), Database::next );
+		return exists != null && exists;
+	}
+
+
+	/**
+	 * stream(int)
+	 *
+	 * @description Lazily streams every matching entry, <fetchSize> rows per round
+	 *              trip. See SQLTable.stream(String[], String[], int).
+	 *
+	 */
+	public Stream<String[]> stream( int fetchSize )
+	{
+		RowCursor cursor = Database.openCursor( toSQL( false ), values(), fetchSize, types() );
+		return cursor == null ? Stream.empty() : cursor.stream();
+	}
+
+
+	/**
+	 * toSQL(boolean)
+	 *
+	 * @description Returns the parameterized SQL for this query, or for an
+	 *              existence check of it. The text is cached by the table per
+	 *              query shape, so it also keys the PreparedStatement cache.
+	 *
+	 */
+	String toSQL( boolean existence )
+	{
+		List<Object> shape = Arrays.asList(
+			existence ? "EXISTS" : "SELECT",
+			Arrays.asList( columns ),
+			new ArrayList<>( whereFields ),
+			orderBy,
+			ascending,
+			existence ? 1 : limit
+		);
+		return table.cachedSQL( shape, k ->
+			{
+				StringBuilder sql = new StringBuilder( "SELECT " );
+				sql.append( existence ? "1" : String.join( ", ", columns ) );
+				sql.append( " FROM " ).append( table.tableName );
+				for( int i = 0; i < whereFields.size(); ++i )
+				{
+					sql.append( i == 0 ? " WHERE " : " AND " ).append( whereFields.get( i ) ).append( " = ?" );
+				}
+				if( orderBy != null && !existence )
+				{
+					sql.append( " ORDER BY " ).append( orderBy ).append( ascending ? " ASC" : " DESC" );
+				}
+				if( existence || limit >= 0 )
+				{
+					sql.append( " LIMIT " ).append( existence ? 1 : limit );
+				}
+				return sql.toString();
+			}
+		);
+	}
+
+
+	/**
+	 * types()
+	 *
+	 * @description Returns the SQL type of each projected column, in order.
+	 *
+	 */
+	private SQL_TYPE[] types()
+	{
+		SQL_TYPE[] types = new SQL_TYPE[columns.length];
+		for( int i = 0; i < types.length; ++i )
+		{
+			types[i] = table.typeOf( columns[i] );
+		}
+		return types;
+	}
+
+
+	/**
+	 * values()
+	 *
+	 * @description Returns the typed values bound to the WHERE clause, in order.
+	 *
+	 */
+	private Object[] values()
+	{
+		Object[] values = new Object[whereValues.size()];
+		for( int i = 0; i < values.length; ++i )
+		{
+			values[i] = table.typeOf( whereFields.get( i ) ).toSQL( whereValues.get( i ) );
+		}
+		return values;
+	}
+
+
+	/**
+	 * materialize(ResultSet, long[])
+	 *
+	 * @description Reads every row of <set> in a single forward-only pass,
+	 *              growing the result as it goes. Columns are read by index, as
+	 *              the types of the projected columns.
+	 *
+	 */
+	private String[][] materialize( ResultSet set, long[] rows ) throws SQLException
+	{
+		SQL_TYPE[] types = types();
+		ArrayList<String[]> entries = new ArrayList<>();
+		while( Database.next( set, rows ) )
+		{
+			String[] entry = new String[types.length];
+			for( int i = 0; i < types.length; ++i )
+			{
+				entry[i] = types[i].fromSQL( set, i + 1 );
+			}
+			entries.add( entry );
+		}
+		return entries.toArray( new String[entries.size()][] );
+	}
+}
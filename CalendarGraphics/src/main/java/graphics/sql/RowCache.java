@@ -0,0 +1,170 @@
+package sql;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * RowCache
+ *
+ * @description Read-through cache of the entries of one SQLTable, keyed by the
+ *              value of its single-column primary key. Holds at most <maxSize>
+ *              entries, evicting the least recently used one, and drops entries
+ *              older than <ttlMs> so writes made by other servers are picked up
+ *              eventually. The owning SQLTable invalidates entries whenever it
+ *              writes to the table.
+ *
+ */
+public final class RowCache
+{
+	// Cached -> An entry and the time (ms) at which it was read from the server.
+	private final static class Cached
+	{
+		final String[] entry;
+		final long loadedAt;
+
+		Cached( String[] entry, long loadedAt )
+		{
+			this.entry = entry;
+			this.loadedAt = loadedAt;
+		}
+	}
+
+	// maxSize -> Most entries kept in the cache.
+	// ttlMs -> Time (ms) after which a cached entry is read from the server again.
+	// entries -> Cached entries by key, least recently used first.
+	// generation -> Bumped by every invalidation, so a load that raced with a write is not cached.
+	// hits, misses -> Amount of lookups answered from the cache and from the server.
+	private final int maxSize;
+	private final long ttlMs;
+	private final LinkedHashMap<String, Cached> entries;
+	private long generation = 0;
+	private final AtomicLong hits = new AtomicLong( 0 ), misses = new AtomicLong( 0 );
+
+
+	/**
+	 * CONSTRUCTOR (int, long)
+	 *
+	 * @description Creates an empty cache of at most <maxSize> entries that live
+	 *              for <ttlMs> milliseconds.
+	 *
+	 */
+	public RowCache( int maxSize, long ttlMs )
+	{
+		this.maxSize = maxSize;
+		this.ttlMs = ttlMs;
+		this.entries = new LinkedHashMap<String, Cached>( 16, 0.75f, true )
+		{
+			@ Override
+			protected boolean removeEldestEntry( Map.Entry<String, Cached> eldest )
+			{
+				return size() > RowCache.this.maxSize;
+			}
+		};
+	}
+
+
+	/**
+	 * get(String, Function)
+	 *
+	 * @description Returns a copy of the entry cached for <key>, reading it with
+	 *              <load> when it is missing or expired. Entries that do not
+	 *              exist (null) are not cached.
+	 *
+	 */
+	public String[] get( String key, Function<String, String[]> load )
+	{
+		long loadGeneration;
+		synchronized( this )
+		{
+			Cached cached = entries.get( key );
+			if( cached != null && System.currentTimeMillis() - cached.loadedAt < ttlMs )
+			{
+				hits.incrementAndGet();
+				return cached.entry.clone();
+			}
+			loadGeneration = generation;
+		}
+		misses.incrementAndGet();
+		long loadedAt = System.currentTimeMillis();
+		String[] entry = load.apply( key );
+		if( entry == null )
+		{
+			return null;
+		}
+		synchronized( this )
+		{
+			if( loadGeneration == generation )
+			{
+				entries.put( key, new Cached( entry.clone(), loadedAt ) );
+			}
+		}
+		return entry;
+	}
+
+
+	/**
+	 * contains(String)
+	 *
+	 * @description Checks if an unexpired entry is cached for <key>, without
+	 *              counting a hit or a miss.
+	 *
+	 */
+	public synchronized boolean contains( String key )
+	{
+		Cached cached = entries.get( key );
+		return cached != null && System.currentTimeMillis() - cached.loadedAt < ttlMs;
+	}
+
+
+	/**
+	 * invalidate(String)
+	 *
+	 * @description Drops the entry cached for <key>.
+	 *
+	 */
+	public synchronized void invalidate( String key )
+	{
+		generation++;
+		entries.remove( key );
+	}
+
+
+	/**
+	 * invalidateAll()
+	 *
+	 * @description Drops every cached entry.
+	 *
+	 */
+	public synchronized void invalidateAll()
+	{
+		generation++;
+		entries.clear();
+	}
+
+
+	// GETTERS
+	public long getHits()
+	{
+		return hits.get();
+	}
+
+
+	public long getMisses()
+	{
+		return misses.get();
+	}
+
+
+	public synchronized int getSize()
+	{
+		return entries.size();
+	}
+
+
+	public int getMaxSize()
+	{
+		return maxSize;
+	}
+}
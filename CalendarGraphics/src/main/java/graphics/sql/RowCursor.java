@@ -0,0 +1,155 @@
+package sql;
+
+import utils.Constants.SQL_TYPE;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * RowCursor implements Iterator, AutoCloseable
+ *
+ * @description Forward-only cursor over the rows of a query. Rows are pulled
+ *              from the server <fetchSize> at a time as they are iterated, so a
+ *              table of any size can be read in constant memory. The cursor
+ *              holds a pooled connection until it is closed, which happens
+ *              automatically once the last row has been read.
+ *
+ */
+public final class RowCursor implements Iterator<String[]>, AutoCloseable
+{
+	// lease -> Connection the cursor is reading from.
+	// statement -> Statement that owns <set>, not shared with the statement cache.
+	// set -> Rows still to be read.
+	// types -> SQL type of each column, used to read it as the application expects.
+	// next -> Row read ahead by hasNext(), null when it has not been read yet.
+	private final PooledConnection lease;
+	private final PreparedStatement statement;
+	private final ResultSet set;
+	private final SQL_TYPE[] types;
+	private String[] next;
+	private boolean closed = false;
+
+
+	/**
+	 * CONSTRUCTOR (PooledConnection, PreparedStatement, ResultSet, SQL_TYPE[])
+	 *
+	 * @description Creates a cursor that owns <lease>, <statement> and <set> and
+	 *              closes all three when it is closed.
+	 *
+	 */
+	RowCursor( PooledConnection lease, PreparedStatement statement, ResultSet set, SQL_TYPE[] types )
+	{
+		this.lease = lease;
+		this.statement = statement;
+		this.set = set;
+		this.types = types;
+	}
+
+
+	/**
+	 * hasNext()
+	 *
+	 * @description Reads the next row from the server if it has not been read
+	 *              yet. Closes the cursor when there are no rows left.
+	 *
+	 */
+	@ Override
+	public boolean hasNext()
+	{
+		if( next != null )
+		{
+			return true;
+		}
+		if( closed )
+		{
+			return false;
+		}
+		try
+		{
+			if( !set.next() )
+			{
+				close();
+				return false;
+			}
+			next = new String[types.length];
+			for( int i = 0; i < types.length; ++i )
+			{
+				next[i] = types[i].fromSQL( set, i + 1 );
+			}
+			return true;
+		}
+		catch( SQLException e )
+		{
+			close();
+			throw new IllegalStateException( "Error reading from cursor.", e );
+		}
+	}
+
+
+	/**
+	 * next()
+	 *
+	 * @description Returns the next row of the cursor.
+	 *
+	 */
+	@ Override
+	public String[] next()
+	{
+		if( !hasNext() )
+		{
+			throw new NoSuchElementException();
+		}
+		String[] row = next;
+		next = null;
+		return row;
+	}
+
+
+	/**
+	 * close()
+	 *
+	 * @description Closes the result and statement and returns the connection to
+	 *              the pool. Safe to call more than once.
+	 *
+	 */
+	@ Override
+	public void close()
+	{
+		if( closed )
+		{
+			return;
+		}
+		closed = true;
+		try
+		{
+			set.close();
+			statement.close();
+		}
+		catch( SQLException e )
+		{
+			System.out.println( "Error closing cursor." );
+		}
+		lease.close();
+	}
+
+
+	/**
+	 * stream()
+	 *
+	 * @description Wraps this cursor in a sequential Stream. Closing the stream
+	 *              closes the cursor.
+	 *
+	 */
+	public Stream<String[]> stream()
+	{
+		Spliterator<String[]> rows = Spliterators.spliteratorUnknownSize( this, Spliterator.ORDERED | Spliterator.NONNULL );
+		return StreamSupport.stream( rows, false ).onClose( this::close );
+	}
+}
@@ -1,453 +1,867 @@
-package sql;
-
-import utils.Constants;
-import utils.Utils;
-
-import java.sql.ResultSetMetaData;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-
-/**
- * SQLTable
- *
- * @description Provides ease of access to a table within a database.
- *
- * @author Travis Zuleger
- */
-public class SQLTable
-{
-	// tableName -> Name of the table in the database.
-	// amountFields -> Amount of columns that are contained in this table.
-	// fields -> All column names that are contained in this table.
-	public final String tableName;
-	private int amountFields;
-	private String[] fields;
-
-
-	/**
-	 * CONSTRUCTOR (String, String[], int[], boolean[])
-	 *
-	 * @description Creates a new SQLTable object with the given parameters in the
-	 *              program runtime. Also adds it into the SQL database.
-	 */
-	public SQLTable( String name, String[] fields, int[] varCharSize, boolean[] isNull )
-	{
-		tableName = name;
-		if( !Database.tableExists( name ) )
-		{
-			amountFields = fields.length;
-			String fieldsToAdd = "(";
-			for( int i = 0; i < amountFields; ++i )
-			{
-				fieldsToAdd += fields[i] + " VARCHAR(" + varCharSize[i] + ") " + ( isNull[i] ? "NULL," : "NOT NULL," );
-			}
-			fieldsToAdd += ")";
-			Database.update( "CREATE TABLE " + name + fieldsToAdd );
-		}
-		Database.addTable( this );
-	}
-
-
-	/**
-	 * CONSTRUCTOR (String)
-	 *
-	 * @description Creates a SQLTable expecting that the database already contains
-	 *              it. If it does contain the table, then it extracts all
-	 *              information needed to create the SQLTable.
-	 */
-	public SQLTable( String name )
-	{
-		tableName = name;
-		try
-		{
-			if( Database.tableExists( name ) )
-			{
-				ResultSet fields = Database.query( "SELECT * FROM " + name );
-				ResultSetMetaData rsMetaData = fields.getMetaData();
-				int size = rsMetaData.getColumnCount();
-				this.fields = new String[size];
-				for( int i = 1; i < size + 1; ++i )
-				{
-					this.fields[i - 1] = rsMetaData.getColumnName( i );
-				}
-				amountFields = this.fields.length;
-			}
-		} catch( SQLException e )
-		{
-			e.printStackTrace();
-			System.out.println( "Error creating SQL table in Java Runtime." );
-		}
-	}
-
-
-	/**
-	 * addField(String, int, boolean)
-	 *
-	 * @description Adds a new field into the table.
-	 */
-	public void addField( String field, int varCharSize, boolean isNull )
-	{
-		Database.update(
-				"ALTER TABLE" + tableName + " ADD " + field + " VARCHAR(" + varCharSize + ") "
-						+ ( isNull ? "NULL" : "NOT NULL" )
-				);
-	}
-
-
-	/**
-	* deleteField(String)
-	*
-	* @description Deletes a field from a table in the database.
-	*/
-	public void deleteField( String field )
-	{
-		if( this.fieldExists( field ) )
-		{
-			Database.update( "ALTER TABLE " + tableName + " DROP COLUMN " + field );
-		}
-	}
-
-
-	/**
-	 * insert(String[])
-	 *
-	 * @description Adds a new entry into the table.
-	 *
-	 */
-	public void insertEntry( String[] entryValues )
-	{
-		if( entryValues.length != amountFields )
-		{
-			return;
-		}
-		String toSend = "INSERT INTO " + tableName + " ("
-				+ Constants.getTable( tableName ).getAllFields() + ") VALUES ('";
-		String fieldsToAdd = "";
-		for( int i = 0; i < amountFields - 1; ++i )
-		{
-			fieldsToAdd += entryValues[i] + "', '";
-		}
-		fieldsToAdd += entryValues[amountFields - 1] + "')";
-		toSend += fieldsToAdd;
-
-		Database.update( toSend );
-	}
-
-
-	/**
-	 * deleteEntry(String[], String[])
-	 *
-	 * @description Deletes an entry from a Table in the connected database.
-	 *
-	 */
-	public void deleteEntry( String[] fields, String[] values )
-	{
-		String toSend = "DELETE FROM " + tableName + " WHERE ";
-		for( int i = 0; i < fields.length - 1; ++i )
-		{
-			toSend += fields[i] + " = '" + values[i] + "' AND ";
-		}
-		toSend += fields[fields.length - 1] + " = '" + values[fields.length - 1] + "'";
-		Database.update( toSend );
-	}
-
-
-	/**
-	 * editEntry(String[], String[], String[], String[])
-	 *
-	 * @description Edits values in a Table (from the connected Database)
-	 *
-	 */
-	public void editEntry( String[] identifierFields, String[] identifierValues, String[] fieldsToEdit, String[] newValues )
-	{
-		String toSend = "UPDATE " + tableName + " SET ";
-		for( int i = 0; i < fieldsToEdit.length - 1; ++i )
-		{
-			toSend += fieldsToEdit[i] + " = '" + newValues[i] + "', ";
-		}
-		toSend += fieldsToEdit[fieldsToEdit.length - 1] + " = '" + newValues[fieldsToEdit.length - 1] + "' ";
-		toSend += " WHERE ";
-		for( int i = 0; i < identifierFields.length - 1; ++i )
-		{
-			toSend += identifierFields[i] + " = '" + identifierValues[i] + "' AND ";
-		}
-		toSend += identifierFields[identifierFields.length - 1] + " = '" + identifierValues[identifierFields.length - 1] + "'";
-		Database.update( toSend );
-	}
-
-
-	/**
-	 * getAllForField(String, String)
-	 *
-	 * @description Queries the table in the database for all entries that hold the
-	 *              value of type field. (example: get("title", "DENTIST") -> { {
-	 *              "123456", "johndoe12", "John", "Doe", "DENTIST",
-	 *              "aabbccddeeffffeeddccbbaa11223344" } { "654321", "joemomma69",
-	 *              "Joe", "Momma", "DENTIST", "44332211aabbccddeeffffeeddccbbaa" }
-	 *              }
-	 *
-	 */
-	public String[][] getAllEntriesFor( String field, String value )
-	{
-		if( !this.fieldExists( field ) )
-		{
-			return null;
-		}
-		String toSend = "SELECT * FROM " + tableName + " WHERE " + field + " = '" + value + "'";
-		try
-		{
-			int size = 0, idx1 = 0;
-			ResultSet set = Database.query( toSend );
-			while( set.next() )
-			{
-				size++;
-			}
-			String[][] entries = new String[size][amountFields]; // INITIALIZE SI
-			Utils.reset( set );
-			while( set.next() )
-			{
-				for( int i = 0; i < amountFields; ++i )
-				{
-					entries[idx1][i] = set.getString( fields[i] );
-				}
-				idx1++;
-			}
-
-			return entries;
-		} catch( SQLException e )
-		{
-			e.printStackTrace();
-			return null;
-		}
-	}
-
-	/**
-	 * getAllForField(String[], String[])
-	 *
-	 * @description Queries the table in the database for all entries that hold the
-	 *              value of type field. (example: get("title", "DENTIST") -> { {
-	 *              "123456", "johndoe12", "John", "Doe", "DENTIST",
-	 *              "aabbccddeeffffeeddccbbaa11223344" } { "654321", "joemomma69",
-	 *              "Joe", "Momma", "DENTIST", "44332211aabbccddeeffffeeddccbbaa" }
-	 *              }
-	 *
-	 */
-	public String[][] getAllEntriesFor( String[] field, String[] value )
-	{
-		String toSend = "SELECT * FROM " + tableName + " WHERE ";
-		for(int i = 0; i < field.length - 1; ++ i)
-		{
-			toSend += field[i] + " = '" + value[i] + "' AND ";
-		}
-		toSend += field[field.length - 1] + " = '" + value[value.length - 1] + "';";
-		try
-		{
-			int size = 0, idx1 = 0;
-			ResultSet set = Database.query( toSend );
-			while( set.next() )
-			{
-				size++;
-			}
-			String[][] entries = new String[size][amountFields]; // INITIALIZE SI
-			Utils.reset( set );
-			while( set.next() )
-			{
-				for( int i = 0; i < amountFields; ++i )
-				{
-					entries[idx1][i] = set.getString( fields[i] );
-				}
-				idx1++;
-			}
-
-			return entries;
-		} catch( SQLException e )
-		{
-			e.printStackTrace();
-			return null;
-		}
-	}
-
-
-	/**
-	 * getEntry(String, String)
-	 *
-	 * @description Queries the database for all values associated with the entry
-	 *              that holds value of type field.
-	 *
-	 */
-	public String[] getEntry( String field, String value )
-	{
-		String toSend = "SELECT * FROM " + tableName + " WHERE " + field + " = " + value;
-		try
-		{
-			int i = 0;
-			ResultSet set = Database.query( toSend );
-			String[] entry = new String[amountFields];
-			while( set.next() )
-			{
-				entry[i] = set.getString( fields[i] );
-				i++;
-			}
-
-			return entry;
-		} catch( SQLException e )
-		{
-			e.printStackTrace();
-			return null;
-		}
-	}
-
-	/**
-	 * getEntry(String[], String[])
-	 *
-	 * @description Queries the database for all values associated with the entries
-	 *              that holds corresponding values.
-	 *
-	 */
-	public String[] getEntry( String[] fields, String[] values )
-	{
-		String toSend = "SELECT * FROM " + tableName + " WHERE ";
-		for(int i = 0; i < fields.length - 1; ++i )
-		{
-			toSend += fields[i] + " = '" + values[i] + "' AND ";
-		}
-		toSend += fields[fields.length - 1] + " = '" + values[values.length - 1] + "';";
-		try
-		{
-			ResultSet set = Database.query( toSend );
-			String[] entry = new String[amountFields];
-			set.next();
-			for(int i = 0; i < entry.length; ++i )
-			{
-				entry[i] = set.getString( this.fields[i] );
-			}
-
-			return entry;
-		} catch( SQLException e )
-		{
-			e.printStackTrace();
-			return null;
-		}
-	}
-
-
-	/**
-	 * getValue(String, String, String)
-	 *
-	 * @description Returns a specific value from an entry in this table.
-	 *
-	 */
-	public String getValue( String field, String value, String wantedField )
-	{
-		String toSend = "SELECT * FROM " + tableName + " WHERE " + field + " = '" + value + "'";
-		try
-		{
-			ResultSet set = Database.query( toSend );
-			set.next();
-			return set.getString( wantedField );
-		} catch( SQLException e )
-		{
-			e.printStackTrace();
-			return null;
-		}
-	}
-
-	/**
-	* getValue(String[], String[], String)
-	*
-	* @description Queries a value from a SQLTable using multiple fields and multiple values.
-	*
-	*/
-	public String getValue( String fields[], String values[], String wantedField )
-	{
-		String toSend = "SELECT * FROM " + tableName + " WHERE ";
-		for(int i = 0; i < fields.length - 1; ++i)
-		{
-			toSend += fields[i] + " = '" + values[i] + "' AND ";
-		}
-		toSend += fields[fields.length - 1] + " = '" + values[values.length - 1] + "';";
-		try
-		{
-			ResultSet set = Database.query( toSend );
-			set.next();
-			return set.getString( wantedField );
-		}
-		catch(SQLException e)
-		{
-			e.printStackTrace();
-			return null;
-		}
-	}
-
-
-	/**
-	 * entryExists(String, String)
-	 *
-	 * @description Checks if the entry <entry> belonging to the field <field>
-	 *              exists in the table.
-	 *
-	 */
-	public boolean entryExists( String field, String value )
-	{
-		ResultSet set = Database.query( "SELECT * FROM " + tableName + " WHERE " + field + " = '" + value + "'" );
-		try
-		{
-			Utils.reset( set );
-			return set.next();
-		} catch( SQLException e )
-		{
-			e.printStackTrace();
-			return false;
-		}
-	}
-
-
-	/**
-	 * entryExists(String, String)
-	 *
-	 * @description Returns true or false based on whether the entry's values exist
-	 *              in this table or not.
-	 *
-	 */
-	public boolean entryExists( String[] fields, String[] values )
-	{
-		String toSend = "SELECT * FROM " + tableName + " WHERE ";
-		for( int i = 0; i < fields.length - 1; ++i )
-		{
-			toSend += fields[i] + " = '" + values[i] + "' AND ";
-		}
-		toSend += fields[fields.length - 1] + " = '" + values[values.length - 1] + "'";
-		ResultSet set = Database.query( toSend );
-		try
-		{
-			Utils.reset( set );
-			return set.next();
-		} catch( SQLException e )
-		{
-			e.printStackTrace();
-			return false;
-		}
-	}
-
-
-	/**
-	 * fieldExists(String)
-	 *
-	 * @description Checks if the field <field> exists in the table.
-	 *
-	 */
-	private boolean fieldExists( String field )
-	{
-		boolean exists = false;
-		for( int i = 0; i < fields.length; ++i )
-		{
-			exists = fields[i].equals( field );
-			if( exists )
-			{
-				break;
-			}
-		}
-		return exists;
-	}
-
-}
+package sql;
+
+import utils.Constants;
+import utils.Constants.SQL_TYPE;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * SQLTable
+ *
+ * @description Provides ease of access to a table within a database. This is
+ *              the JDBC implementation of Storage.
+ *
+ * @author Travis Zuleger
+ */
+public class SQLTable implements Storage
+{
+	// DEFAULT_FETCH_SIZE -> Rows pulled from the server per round trip by stream().
+	// DEFAULT_BATCH_SIZE -> Rows sent to the server per round trip by the batched writes.
+	// MAX_IN_SIZE -> Most values matched by one "IN (...)" clause; longer lists are split up.
+	// tableName -> Name of the table in the database.
+	// amountFields -> Amount of columns that are contained in this table.
+	// fields -> All column names that are contained in this table.
+	// declared -> Declaration of this table in Constants.TABLES, null if it is not declared there.
+	// statements -> Parameterized SQL for every statement shape used so far (kind + column lists).
+	// ROW_CACHE_SIZE, ROW_CACHE_TTL_MS -> Bounds of the row cache of tables with a single-column primary key.
+	// cacheKey -> Primary key column the row cache is keyed by, null if the table is not cached.
+	// rowCache -> Entries read by key, invalidated by every write made through this table (again on commit).
+	public final static int DEFAULT_FETCH_SIZE = 100, DEFAULT_BATCH_SIZE = 500, MAX_IN_SIZE = 512;
+	public final static int ROW_CACHE_SIZE = 1000;
+	public final static long ROW_CACHE_TTL_MS = 60000;
+	public final String tableName;
+	private int amountFields;
+	private String[] fields;
+	private final Constants.TABLES declared;
+	private final ConcurrentHashMap<List<Object>, String> statements = new ConcurrentHashMap<>();
+	private final String cacheKey;
+	private final RowCache rowCache;
+
+
+	/**
+	 * CONSTRUCTOR (String, String[], int[], boolean[])
+	 *
+	 * @description Creates a new SQLTable object with the given parameters in the
+	 *              program runtime. Also adds it into the SQL database.
+	 */
+	public SQLTable( String name, String[] fields, int[] varCharSize, boolean[] isNull )
+	{
+		tableName = name;
+		declared = Constants.getTable( name );
+		cacheKey = declared != null && declared.primaryKey().length == 1 ? declared.primaryKey()[0] : null;
+		rowCache = cacheKey == null ? null : new RowCache( ROW_CACHE_SIZE, ROW_CACHE_TTL_MS );
+		if( !Database.tableExists( name ) )
+		{
+			amountFields = fields.length;
+			String fieldsToAdd = "(";
+			for( int i = 0; i < amountFields; ++i )
+			{
+				fieldsToAdd += fields[i] + " VARCHAR(" + varCharSize[i] + ") " + ( isNull[i] ? "NULL," : "NOT NULL," );
+			}
+			fieldsToAdd += ")";
+			Database.update( "CREATE TABLE " + name + fieldsToAdd );
+		}
+		Database.addTable( this );
+	}
+
+
+	/**
+	 * CONSTRUCTOR (String)
+	 *
+	 * @description Creates a SQLTable expecting that the database already contains
+	 *              it. Its columns are taken from Database.getSchema(), so no
+	 *              query is run.
+	 */
+	public SQLTable( String name )
+	{
+		tableName = name;
+		declared = Constants.getTable( name );
+		cacheKey = declared != null && declared.primaryKey().length == 1 ? declared.primaryKey()[0] : null;
+		rowCache = cacheKey == null ? null : new RowCache( ROW_CACHE_SIZE, ROW_CACHE_TTL_MS );
+		this.fields = Database.getSchema().getColumns( name );
+		if( this.fields == null )
+		{
+			System.out.println( "Error creating SQL table in Java Runtime, " + name + " does not exist." );
+			return;
+		}
+		amountFields = this.fields.length;
+	}
+
+
+	/**
+	 * addField(String, int, boolean)
+	 *
+	 * @description Adds a new field into the table.
+	 */
+	public void addField( String field, int varCharSize, boolean isNull )
+	{
+		Database.update(
+				"ALTER TABLE" + tableName + " ADD " + field + " VARCHAR(" + varCharSize + ") "
+						+ ( isNull ? "NULL" : "NOT NULL" )
+				);
+		invalidateAll();
+	}
+
+
+	/**
+	* deleteField(String)
+	*
+	* @description Deletes a field from a table in the database.
+	*/
+	public void deleteField( String field )
+	{
+		if( this.fieldExists( field ) )
+		{
+			Database.update( "ALTER TABLE " + tableName + " DROP COLUMN " + field );
+			invalidateAll();
+		}
+	}
+
+
+	/**
+	 * insert(String[])
+	 *
+	 * @description Adds a new entry into the table.
+	 *
+	 */
+	public void insertEntry( String[] entryValues )
+	{
+		if( entryValues.length != amountFields )
+		{
+			return;
+		}
+		Database.update( sqlFor( "INSERT", fields, null ), bindValues( fields, entryValues, null, null ) );
+		invalidate( fields, entryValues );
+	}
+
+
+	/**
+	 * insertEntries(String[][])
+	 *
+	 * @description Adds many new entries into the table. See
+	 *              insertEntries(String[][], int).
+	 *
+	 */
+	public int[] insertEntries( String[][] entries )
+	{
+		return insertEntries( entries, DEFAULT_BATCH_SIZE );
+	}
+
+	/**
+	 * insertEntries(String[][], int)
+	 *
+	 * @description Adds many new entries into the table in batches of
+	 *              <batchSize> rows. Returns the result of each row in the same
+	 *              order as <entries>; rows that could not be inserted (including
+	 *              rows with the wrong amount of values) are
+	 *              Statement.EXECUTE_FAILED.
+	 *
+	 */
+	public int[] insertEntries( String[][] entries, int batchSize )
+	{
+		ArrayList<Object[]> valid = new ArrayList<>();
+		for( int i = 0; i < entries.length; ++i )
+		{
+			if( entries[i].length == amountFields )
+			{
+				valid.add( bindValues( fields, entries[i], null, null ) );
+			}
+		}
+		int[] validCounts = Database.batch( sqlFor( "INSERT", fields, null ), valid.toArray( new Object[valid.size()][] ), batchSize );
+		invalidateAll();
+		int[] counts = new int[entries.length];
+		for( int i = 0, j = 0; i < entries.length; ++i )
+		{
+			counts[i] = entries[i].length == amountFields ? validCounts[j++] : Statement.EXECUTE_FAILED;
+		}
+		return counts;
+	}
+
+
+	/**
+	 * deleteEntry(String[], String[])
+	 *
+	 * @description Deletes an entry from a Table in the connected database.
+	 *
+	 */
+	public void deleteEntry( String[] fields, String[] values )
+	{
+		deleteWhere( fields, values );
+	}
+
+
+	/**
+	 * deleteWhere(String[], String[])
+	 *
+	 * @description Deletes every entry whose <fields> hold the corresponding
+	 *              <values> with a single statement. Returns the amount of entries
+	 *              deleted, or -1 if the command is invalid on the server.
+	 *
+	 */
+	public int deleteWhere( String[] fields, String[] values )
+	{
+		int count = Database.update( sqlFor( "DELETE", null, fields ), bindValues( null, null, fields, values ) );
+		invalidate( fields, values );
+		return count;
+	}
+
+
+	/**
+	 * deleteWhereIn(String, String[])
+	 *
+	 * @description Deletes every entry whose <field> holds any of <values>, with
+	 *              one statement per MAX_IN_SIZE values. Returns the amount of
+	 *              entries deleted, or -1 if a command is invalid on the server.
+	 *
+	 */
+	public int deleteWhereIn( String field, String[] values )
+	{
+		return updateWhereIn( "DELETE", field, values, null, null );
+	}
+
+
+	/**
+	 * deleteEntries(String[], String[][], int)
+	 *
+	 * @description Deletes every entry that matches one of the rows of <values>,
+	 *              in batches of <batchSize> rows. Returns the amount of entries
+	 *              deleted for each row, or Statement.EXECUTE_FAILED.
+	 *
+	 */
+	public int[] deleteEntries( String[] fields, String[][] values, int batchSize )
+	{
+		Object[][] rows = new Object[values.length][];
+		for( int i = 0; i < rows.length; ++i )
+		{
+			rows[i] = bindValues( null, null, fields, values[i] );
+		}
+		int[] counts = Database.batch( sqlFor( "DELETE", null, fields ), rows, batchSize );
+		invalidateAll();
+		return counts;
+	}
+
+
+	/**
+	 * editEntry(String[], String[], String[], String[])
+	 *
+	 * @description Edits values in a Table (from the connected Database)
+	 *
+	 */
+	public void editEntry( String[] identifierFields, String[] identifierValues, String[] fieldsToEdit, String[] newValues )
+	{
+		updateWhere( identifierFields, identifierValues, fieldsToEdit, newValues );
+	}
+
+
+	/**
+	 * updateWhere(String[], String[], String[], String[])
+	 *
+	 * @description Sets <fieldsToEdit> to <newValues> on every entry whose
+	 *              <whereFields> hold the corresponding <whereValues>, with a
+	 *              single statement. Returns the amount of entries edited, or -1
+	 *              if the command is invalid on the server.
+	 *
+	 */
+	public int updateWhere( String[] whereFields, String[] whereValues, String[] fieldsToEdit, String[] newValues )
+	{
+		Object[] values = bindValues( fieldsToEdit, newValues, whereFields, whereValues );
+		int count = Database.update( sqlFor( "UPDATE", fieldsToEdit, whereFields ), values );
+		invalidate( whereFields, whereValues );
+		if( keyOf( fieldsToEdit, newValues ) != null )
+		{
+			invalidate( fieldsToEdit, newValues );
+		}
+		return count;
+	}
+
+
+	/**
+	 * updateWhereIn(String, String[], String[], String[])
+	 *
+	 * @description Sets <fieldsToEdit> to <newValues> on every entry whose <field>
+	 *              holds any of <values>, with one statement per MAX_IN_SIZE
+	 *              values. Returns the amount of entries edited, or -1 if a
+	 *              command is invalid on the server.
+	 *
+	 */
+	public int updateWhereIn( String field, String[] values, String[] fieldsToEdit, String[] newValues )
+	{
+		return updateWhereIn( "UPDATE", field, values, fieldsToEdit, newValues );
+	}
+
+
+	/**
+	 * updateWhereIn(String, String, String[], String[], String[])
+	 *
+	 * @description Runs a <kind> ("UPDATE" or "DELETE") statement on every entry
+	 *              whose <field> holds any of <values>. Each chunk of values is
+	 *              padded up to a power of two by repeating its last value, so
+	 *              only a handful of statement shapes are ever prepared.
+	 *
+	 */
+	private int updateWhereIn( String kind, String field, String[] values, String[] fieldsToEdit, String[] newValues )
+	{
+		checkField( field );
+		int total = 0;
+		for( int start = 0; start < values.length; start += MAX_IN_SIZE )
+		{
+			int end = Math.min( start + MAX_IN_SIZE, values.length );
+			int slots = 1;
+			while( slots < end - start )
+			{
+				slots <<= 1;
+			}
+			String[] where = new String[slots];
+			String[] whereValues = new String[slots];
+			for( int i = 0; i < slots; ++i )
+			{
+				where[i] = field;
+				whereValues[i] = values[Math.min( start + i, end - 1 )];
+			}
+			int count = Database.update( sqlFor( kind, fieldsToEdit, where, true ), bindValues( fieldsToEdit, newValues, where, whereValues ) );
+			if( count < 0 )
+			{
+				total = -1;
+				break;
+			}
+			total += count;
+		}
+		if( field.equals( cacheKey ) && keyOf( fieldsToEdit, newValues ) == null )
+		{
+			for( String value : values )
+			{
+				invalidateKey( value );
+			}
+		}
+		else
+		{
+			invalidateAll();
+		}
+		return total;
+	}
+
+
+	/**
+	 * editEntries(String[], String[][], String[], String[][], int)
+	 *
+	 * @description Edits many entries in batches of <batchSize> rows. Row i of
+	 *              <identifierValues> picks the entries that get row i of
+	 *              <newValues>. Returns the amount of entries edited for each row,
+	 *              or Statement.EXECUTE_FAILED.
+	 *
+	 */
+	public int[] editEntries( String[] identifierFields, String[][] identifierValues, String[] fieldsToEdit, String[][] newValues, int batchSize )
+	{
+		Object[][] values = new Object[identifierValues.length][];
+		for( int i = 0; i < values.length; ++i )
+		{
+			values[i] = bindValues( fieldsToEdit, newValues[i], identifierFields, identifierValues[i] );
+		}
+		int[] counts = Database.batch( sqlFor( "UPDATE", fieldsToEdit, identifierFields ), values, batchSize );
+		invalidateAll();
+		return counts;
+	}
+
+
+	/**
+	 * queueInsert(String[])
+	 *
+	 * @description Same as insertEntry(String[]), but the entry goes through the
+	 *              write pipeline and is committed together with the writes of
+	 *              other sessions. Returns a future of the amount of entries
+	 *              inserted, Statement.EXECUTE_FAILED if <entryValues> has the
+	 *              wrong amount of values.
+	 *
+	 */
+	public CompletableFuture<Integer> queueInsert( String[] entryValues )
+	{
+		if( entryValues.length != amountFields )
+		{
+			return CompletableFuture.completedFuture( Statement.EXECUTE_FAILED );
+		}
+		return Database.enqueue( sqlFor( "INSERT", fields, null ), bindValues( fields, entryValues, null, null ) )
+			.whenComplete( ( count, e ) -> invalidate( fields, entryValues ) );
+	}
+
+
+	/**
+	 * queueDelete(String[], String[])
+	 *
+	 * @description Same as deleteEntry(String[], String[]), through the write
+	 *              pipeline. Returns a future of the amount of entries deleted.
+	 *
+	 */
+	public CompletableFuture<Integer> queueDelete( String[] fields, String[] values )
+	{
+		return Database.enqueue( sqlFor( "DELETE", null, fields ), bindValues( null, null, fields, values ) )
+			.whenComplete( ( count, e ) -> invalidate( fields, values ) );
+	}
+
+
+	/**
+	 * queueEdit(String[], String[], String[], String[])
+	 *
+	 * @description Same as editEntry(String[], String[], String[], String[]),
+	 *              through the write pipeline. Returns a future of the amount of
+	 *              entries edited.
+	 *
+	 */
+	public CompletableFuture<Integer> queueEdit( String[] identifierFields, String[] identifierValues, String[] fieldsToEdit, String[] newValues )
+	{
+		Object[] values = bindValues( fieldsToEdit, newValues, identifierFields, identifierValues );
+		return Database.enqueue( sqlFor( "UPDATE", fieldsToEdit, identifierFields ), values )
+			.whenComplete( ( count, e ) ->
+				{
+					invalidate( identifierFields, identifierValues );
+					if( keyOf( fieldsToEdit, newValues ) != null )
+					{
+						invalidate( fieldsToEdit, newValues );
+					}
+				}
+			);
+	}
+
+
+	/**
+	 * getAllForField(String, String)
+	 *
+	 * @description Queries the table in the database for all entries that hold the
+	 *              value of type field. (example: get("title", "DENTIST") -> { {
+	 *              "123456", "johndoe12", "John", "Doe", "DENTIST",
+	 *              "aabbccddeeffffeeddccbbaa11223344" } { "654321", "joemomma69",
+	 *              "Joe", "Momma", "DENTIST", "44332211aabbccddeeffffeeddccbbaa" }
+	 *              }
+	 *
+	 */
+	public String[][] getAllEntriesFor( String field, String value )
+	{
+		if( !this.fieldExists( field ) )
+		{
+			return null;
+		}
+		return getAllEntriesFor( new String[] { field }, new String[] { value } );
+	}
+
+	/**
+	 * getAllForField(String[], String[])
+	 *
+	 * @description Queries the table in the database for all entries that hold the
+	 *              value of type field. (example: get("title", "DENTIST") -> { {
+	 *              "123456", "johndoe12", "John", "Doe", "DENTIST",
+	 *              "aabbccddeeffffeeddccbbaa11223344" } { "654321", "joemomma69",
+	 *              "Joe", "Momma", "DENTIST", "44332211aabbccddeeffffeeddccbbaa" }
+	 *              }
+	 *
+	 */
+	public String[][] getAllEntriesFor( String[] field, String[] value )
+	{
+		return select().where( field, value ).fetch();
+	}
+
+
+	/**
+	 * getEntry(String, String)
+	 *
+	 * @description Queries the database for all values associated with the entry
+	 *              that holds value of type field.
+	 *
+	 */
+	public String[] getEntry( String field, String value )
+	{
+		return getEntry( new String[] { field }, new String[] { value } );
+	}
+
+	/**
+	 * getEntry(String[], String[])
+	 *
+	 * @description Queries the database for all values associated with the entries
+	 *              that holds corresponding values. Lookups by the primary key of
+	 *              a cached table are answered from the row cache when possible.
+	 *
+	 */
+	public String[] getEntry( String[] fields, String[] values )
+	{
+		if( isKeyLookup( fields ) )
+		{
+			return rowCache.get( values[0], key -> select().where( fields, values ).limit( 1 ).fetchFirst() );
+		}
+		return select().where( fields, values ).limit( 1 ).fetchFirst();
+	}
+
+
+	/**
+	 * getValue(String, String, String)
+	 *
+	 * @description Returns a specific value from an entry in this table.
+	 *
+	 */
+	public String getValue( String field, String value, String wantedField )
+	{
+		return getValue( new String[] { field }, new String[] { value }, wantedField );
+	}
+
+	/**
+	* getValue(String[], String[], String)
+	*
+	* @description Queries a value from a SQLTable using multiple fields and multiple values.
+	*
+	*/
+	public String getValue( String fields[], String values[], String wantedField )
+	{
+		if( isKeyLookup( fields ) )
+		{
+			checkField( wantedField );
+			String[] entry = getEntry( fields, values );
+			return entry == null ? null : entry[Arrays.asList( this.fields ).indexOf( wantedField )];
+		}
+		return select( wantedField ).where( fields, values ).limit( 1 ).fetchValue();
+	}
+
+
+	/**
+	 * entryExists(String, String)
+	 *
+	 * @description Checks if the entry <entry> belonging to the field <field>
+	 *              exists in the table.
+	 *
+	 */
+	public boolean entryExists( String field, String value )
+	{
+		return entryExists( new String[] { field }, new String[] { value } );
+	}
+
+
+	/**
+	 * entryExists(String, String)
+	 *
+	 * @description Returns true or false based on whether the entry's values exist
+	 *              in this table or not.
+	 *
+	 */
+	public boolean entryExists( String[] fields, String[] values )
+	{
+		if( isKeyLookup( fields ) && rowCache.contains( values[0] ) )
+		{
+			return true;
+		}
+		return select().where( fields, values ).exists();
+	}
+
+
+	/**
+	 * stream()
+	 *
+	 * @description Lazily streams every entry in the table. See
+	 *              stream(String[], String[], int).
+	 *
+	 */
+	public Stream<String[]> stream()
+	{
+		return stream( new String[0], new String[0], DEFAULT_FETCH_SIZE );
+	}
+
+	/**
+	 * stream(String[], String[], int)
+	 *
+	 * @description Lazily streams every entry that holds the corresponding
+	 *              values, reading <fetchSize> rows from the server at a time
+	 *              instead of loading the whole result like getAllEntriesFor. The
+	 *              stream holds a database connection until it is exhausted or
+	 *              closed, so use it in a try-with-resources block.
+	 *
+	 */
+	public Stream<String[]> stream( String[] fields, String[] values, int fetchSize )
+	{
+		return select().where( fields, values ).stream( fetchSize );
+	}
+
+
+	/**
+	 * select(String...)
+	 *
+	 * @description Starts a query that returns only <columns> of each matching
+	 *              entry, or every field of the table if no columns are given.
+	 *
+	 */
+	public Query select( String ... columns )
+	{
+		return new Query( this, columns.length == 0 ? fields : columns );
+	}
+
+
+	/**
+	 * bindValues(String[], String[], String[], String[])
+	 *
+	 * @description Converts the values set on <columns> followed by the values
+	 *              matched against <where> into the typed values bound to a
+	 *              statement from sqlFor. Either pair may be null.
+	 *
+	 */
+	private Object[] bindValues( String[] columns, String[] columnValues, String[] where, String[] whereValues )
+	{
+		int set = columns == null ? 0 : columns.length;
+		int matched = where == null ? 0 : where.length;
+		Object[] values = new Object[set + matched];
+		for( int i = 0; i < set; ++i )
+		{
+			values[i] = typeOf( columns[i] ).toSQL( columnValues[i] );
+		}
+		for( int i = 0; i < matched; ++i )
+		{
+			values[set + i] = typeOf( where[i] ).toSQL( whereValues[i] );
+		}
+		return values;
+	}
+
+
+	/**
+	 * sqlFor(String, String[], String[])
+	 *
+	 * @description Returns the parameterized SQL for a <kind> of statement
+	 *              ("INSERT", "UPDATE" or "DELETE") that sets or inserts <columns>
+	 *              and filters on <where>. The text is built once per shape and
+	 *              reused, so it also keys the PreparedStatement cache.
+	 *
+	 */
+	private String sqlFor( String kind, String[] columns, String[] where )
+	{
+		return sqlFor( kind, columns, where, false );
+	}
+
+
+	/**
+	 * sqlFor(String, String[], String[], boolean)
+	 *
+	 * @description Same as sqlFor(String, String[], String[]). If <in> is true,
+	 *              every entry of <where> is the same field and the filter is
+	 *              written as "field IN (?, ...)" instead.
+	 *
+	 */
+	private String sqlFor( String kind, String[] columns, String[] where, boolean in )
+	{
+		List<Object> shape = Arrays.asList(
+			kind,
+			columns == null ? null : Arrays.asList( columns ),
+			where == null ? null : Arrays.asList( where ),
+			in
+		);
+		return cachedSQL( shape, k ->
+			{
+				StringBuilder sql = new StringBuilder();
+				if( kind.equals( "INSERT" ) )
+				{
+					sql.append( "INSERT INTO " ).append( tableName ).append( " (" );
+					sql.append( String.join( ", ", columns ) ).append( ") VALUES (" );
+					for( int i = 0; i < columns.length; ++i )
+					{
+						sql.append( i == 0 ? "?" : ", ?" );
+					}
+					return sql.append( ")" ).toString();
+				}
+				if( kind.equals( "UPDATE" ) )
+				{
+					sql.append( "UPDATE " ).append( tableName ).append( " SET " );
+					for( int i = 0; i < columns.length; ++i )
+					{
+						sql.append( i == 0 ? "" : ", " ).append( columns[i] ).append( " = ?" );
+					}
+				}
+				else
+				{
+					sql.append( "DELETE FROM " ).append( tableName );
+				}
+				if( in )
+				{
+					sql.append( " WHERE " ).append( where[0] ).append( " IN (" );
+					for( int i = 0; i < where.length; ++i )
+					{
+						sql.append( i == 0 ? "?" : ", ?" );
+					}
+					return sql.append( ")" ).toString();
+				}
+				for( int i = 0; i < where.length; ++i )
+				{
+					sql.append( i == 0 ? " WHERE " : " AND " ).append( where[i] ).append( " = ?" );
+				}
+				return sql.toString();
+			}
+		);
+	}
+
+
+	/**
+	 * isKeyLookup(String[])
+	 *
+	 * @description Checks if matching on <fields> looks an entry up by the key of
+	 *              the row cache alone. Reads inside a transaction always go to
+	 *              the server, so they see the transaction's own writes and locks.
+	 *
+	 */
+	private boolean isKeyLookup( String[] fields )
+	{
+		return rowCache != null && fields.length == 1 && fields[0].equals( cacheKey ) && !Database.isInTransaction();
+	}
+
+
+	/**
+	 * keyOf(String[], String[])
+	 *
+	 * @description Returns the value <values> holds for the key of the row cache,
+	 *              or null if <fields> does not include it.
+	 *
+	 */
+	private String keyOf( String[] fields, String[] values )
+	{
+		if( rowCache == null || fields == null )
+		{
+			return null;
+		}
+		int idx = Arrays.asList( fields ).indexOf( cacheKey );
+		return idx < 0 ? null : values[idx];
+	}
+
+
+	/**
+	 * invalidate(String[], String[])
+	 *
+	 * @description Drops the cached entry a write matching or setting <fields> to
+	 *              <values> may have changed. Drops every cached entry if the key
+	 *              is not one of <fields>.
+	 *
+	 */
+	private void invalidate( String[] fields, String[] values )
+	{
+		String key = keyOf( fields, values );
+		if( key == null )
+		{
+			invalidateAll();
+		}
+		else
+		{
+			invalidateKey( key );
+		}
+	}
+
+
+	/**
+	 * invalidateKey(String)
+	 *
+	 * @description Drops the entry cached for <key>. Inside a transaction it is
+	 *              dropped again once the transaction commits, as until then a
+	 *              reader outside it still reads, and may cache, the old row.
+	 *
+	 */
+	private void invalidateKey( String key )
+	{
+		rowCache.invalidate( key );
+		Database.onCommit( () -> rowCache.invalidate( key ) );
+	}
+
+
+	/**
+	 * invalidateAll()
+	 *
+	 * @description Drops every entry in the row cache, if this table has one,
+	 *              now and again once the transaction of the calling thread, if
+	 *              any, commits.
+	 *
+	 */
+	void invalidateAll()
+	{
+		if( rowCache != null )
+		{
+			rowCache.invalidateAll();
+			Database.onCommit( rowCache::invalidateAll );
+		}
+	}
+
+
+	/**
+	 * cachedSQL(List, Function)
+	 *
+	 * @description Returns the SQL text cached for <shape>, building it with
+	 *              <build> the first time the shape is seen.
+	 *
+	 */
+	String cachedSQL( List<Object> shape, Function<List<Object>, String> build )
+	{
+		return statements.computeIfAbsent( shape, build );
+	}
+
+
+	/**
+	 * typeOf(String)
+	 *
+	 * @description Returns the SQL type declared for <field> in Constants.TABLES,
+	 *              or VARCHAR if this table is not declared there.
+	 *
+	 */
+	SQL_TYPE typeOf( String field )
+	{
+		return declared == null ? SQL_TYPE.VARCHAR : declared.getType( field );
+	}
+
+
+	/**
+	 * checkField(String)
+	 *
+	 * @description Makes sure <field> is a column of this table before it is
+	 *              written into SQL text.
+	 *
+	 */
+	void checkField( String field )
+	{
+		if( !fieldExists( field ) )
+		{
+			throw new IllegalArgumentException( "Unknown field \"" + field + "\" in table " + tableName );
+		}
+	}
+
+
+	// GETTERS
+	public String getName()
+	{
+		return tableName;
+	}
+
+
+	public String[] getFields()
+	{
+		return fields.clone();
+	}
+
+
+	public RowCache getRowCache()
+	{
+		return rowCache;
+	}
+
+
+	/**
+	 * fieldExists(String)
+	 *
+	 * @description Checks if the field <field> exists in the table.
+	 *
+	 */
+	private boolean fieldExists( String field )
+	{
+		boolean exists = false;
+		for( int i = 0; i < fields.length; ++i )
+		{
+			exists = fields[i].equals( field );
+			if( exists )
+			{
+				break;
+			}
+		}
+		return exists;
+	}
+
+}
@@ -0,0 +1,172 @@
+package sql;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Schema
+ *
+ * @description Immutable snapshot of the tables of a database and their
+ *              columns, in column order, read from DatabaseMetaData in one pass.
+ *              No table is ever scanned to build it, so it costs the same no
+ *              matter how many rows there are. Table names are matched without
+ *              regard to case. After DDL, read a new snapshot rather than
+ *              changing this one.
+ *
+ */
+public final class Schema
+{
+	// Table -> Columns of one table, with their SQL type names (e.g. "VARCHAR").
+	private final static class Table
+	{
+		final String name;
+		final String[] columns, types;
+
+		Table( String name, String[] columns, String[] types )
+		{
+			this.name = name;
+			this.columns = columns;
+			this.types = types;
+		}
+	}
+
+	// EMPTY -> Schema of a database without tables.
+	// tables -> Every table, by upper case name.
+	public final static Schema EMPTY = new Schema( Collections.emptyMap() );
+	private final Map<String, Table> tables;
+
+
+	private Schema( Map<String, Table> tables )
+	{
+		this.tables = tables;
+	}
+
+
+	/**
+	 * read(Connection)
+	 *
+	 * @description Reads the tables of the current catalog and schema of
+	 *              <connection>.
+	 *
+	 */
+	static Schema read( Connection connection ) throws SQLException
+	{
+		DatabaseMetaData meta = connection.getMetaData();
+		String catalog = connection.getCatalog(), schema = connection.getSchema();
+		TreeMap<String, TreeMap<Integer, String[]>> columns = new TreeMap<>();
+		HashMap<String, String> spelled = new HashMap<>();
+		try( ResultSet tableSet = meta.getTables( catalog, schema, "%", new String[] { "TABLE" } ) )
+		{
+			while( tableSet.next() )
+			{
+				String name = tableSet.getString( "TABLE_NAME" );
+				spelled.put( key( name ), name );
+				columns.put( key( name ), new TreeMap<>() );
+			}
+		}
+		try( ResultSet columnSet = meta.getColumns( catalog, schema, "%", "%" ) )
+		{
+			while( columnSet.next() )
+			{
+				TreeMap<Integer, String[]> ofTable = columns.get( key( columnSet.getString( "TABLE_NAME" ) ) );
+				if( ofTable != null )
+				{
+					ofTable.put( columnSet.getInt( "ORDINAL_POSITION" ),
+						new String[] { columnSet.getString( "COLUMN_NAME" ), columnSet.getString( "TYPE_NAME" ) } );
+				}
+			}
+		}
+		HashMap<String, Table> tables = new HashMap<>();
+		for( Map.Entry<String, TreeMap<Integer, String[]>> table : columns.entrySet() )
+		{
+			ArrayList<String[]> ordered = new ArrayList<>( table.getValue().values() );
+			String[] columnNames = new String[ordered.size()], types = new String[ordered.size()];
+			for( int i = 0; i < ordered.size(); ++i )
+			{
+				columnNames[i] = ordered.get( i )[0];
+				types[i] = ordered.get( i )[1];
+			}
+			tables.put( table.getKey(), new Table( spelled.get( table.getKey() ), columnNames, types ) );
+		}
+		return new Schema( Collections.unmodifiableMap( tables ) );
+	}
+
+
+	/**
+	 * hasTable(String)
+	 *
+	 * @description Returns whether the database has a table called <name>.
+	 *
+	 */
+	public boolean hasTable( String name )
+	{
+		return tables.containsKey( key( name ) );
+	}
+
+
+	/**
+	 * getColumns(String)
+	 *
+	 * @description Returns the columns of table <name> in order, or null if there
+	 *              is no such table.
+	 *
+	 */
+	public String[] getColumns( String name )
+	{
+		Table table = tables.get( key( name ) );
+		return table == null ? null : table.columns.clone();
+	}
+
+
+	/**
+	 * getType(String, String)
+	 *
+	 * @description Returns the SQL type name of <column> in table <name>, or null
+	 *              if there is no such column.
+	 *
+	 */
+	public String getType( String name, String column )
+	{
+		Table table = tables.get( key( name ) );
+		for( int i = 0; table != null && i < table.columns.length; ++i )
+		{
+			if( table.columns[i].equalsIgnoreCase( column ) )
+			{
+				return table.types[i];
+			}
+		}
+		return null;
+	}
+
+
+	/**
+	 * getTableNames()
+	 *
+	 * @description Returns the name of every table, as the database spells it.
+	 *
+	 */
+	public String[] getTableNames()
+	{
+		String[] names = new String[tables.size()];
+		int i = 0;
+		for( Table table : tables.values() )
+		{
+			names[i++] = table.name;
+		}
+		return names;
+	}
+
+
+	private static String key( String name )
+	{
+		return name.toUpperCase( Locale.ROOT );
+	}
+}
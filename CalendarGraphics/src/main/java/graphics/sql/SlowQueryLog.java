@@ -0,0 +1,388 @@
+package sql;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSetMetaData;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * SlowQueryLog
+ *
+ * @description Appends every statement that takes at least the threshold to
+ *              LOG_FILE: when it ran, how long it took, the rows it returned or
+ *              affected, the controller method it was run for, its SQL and its
+ *              bind values, with the values of REDACTED_FIELDS masked. The first
+ *              time a statement shape is slow, the server's EXPLAIN plan of it is
+ *              written underneath, flagged when the plan scans a whole table.
+ *              Entries are written by a background thread, so the session that
+ *              ran the statement only pays for queueing it.
+ *
+ */
+public final class SlowQueryLog
+{
+	// Entry -> One slow statement, waiting to be written.
+	private final static class Entry
+	{
+		final LocalDateTime at = LocalDateTime.now();
+		final String command;
+		final Object[] values;
+		final long micros, rows;
+		final String caller;
+
+		Entry( String command, Object[] values, long micros, long rows, String caller )
+		{
+			this.command = command;
+			this.values = values;
+			this.micros = micros;
+			this.rows = rows;
+			this.caller = caller;
+		}
+	}
+
+	// LOG_FILE -> File the slow statements are appended to.
+	// DEFAULT_THRESHOLD_MS -> Threshold until setThreshold is called (database.slow_query_ms).
+	// QUEUE_SIZE -> Most entries waiting to be written; further entries are dropped and counted.
+	// REDACTED_FIELDS -> Columns whose values never reach the log.
+	// EXPLAINABLE -> Statements the servers can EXPLAIN.
+	public final static Path LOG_FILE = Paths.get( "logs", "slow-queries.log" );
+	public final static long DEFAULT_THRESHOLD_MS = 200;
+	public final static int QUEUE_SIZE = 1000;
+	public final static Set<String> REDACTED_FIELDS = Set.of( "pass_hash" );
+	private final static Pattern EXPLAINABLE = Pattern.compile( "(?i)^\\s*(SELECT|UPDATE|DELETE)\\b.*" );
+	private final static Pattern INSERT_COLUMNS = Pattern.compile( "(?i)^\\s*INSERT\\s+INTO\\s+\\w+\\s*\\(([^)]*)\\)" );
+	private final static Pattern COMPARED_COLUMN = Pattern.compile( "(?i)(\\w+)\\s*(?:=|\\bIN\\s*\\()\\s*$" );
+	private final static String REDACTED = "***";
+
+	// thresholdMicros -> Statements at least this slow (us) are logged, negative to log none.
+	// queue -> Entries waiting for the writer thread.
+	// explained -> Shapes whose EXPLAIN plan has been captured.
+	// dropped -> Entries lost because the queue was full.
+	private static volatile long thresholdMicros = DEFAULT_THRESHOLD_MS * 1000;
+	private final static LinkedBlockingQueue<Entry> queue = new LinkedBlockingQueue<>( QUEUE_SIZE );
+	private final static Set<String> explained = ConcurrentHashMap.newKeySet();
+	private final static AtomicLong dropped = new AtomicLong( 0 );
+	private static Thread writer;
+
+
+	private SlowQueryLog()
+	{
+	}
+
+
+	/**
+	 * check(String, Object[], long, long)
+	 *
+	 * @description Logs <command> if it took at least the threshold. Called for
+	 *              every statement, so it returns straight away for fast ones.
+	 *
+	 */
+	static void check( String command, Object[] values, long micros, long rows )
+	{
+		long threshold = thresholdMicros;
+		if( threshold < 0 || micros < threshold || command.startsWith( "EXPLAIN " ) )
+		{
+			return;
+		}
+		start();
+		Entry entry = new Entry( command, values == null ? null : values.clone(), micros, rows, caller() );
+		if( !queue.offer( entry ) )
+		{
+			dropped.incrementAndGet();
+		}
+	}
+
+
+	/**
+	 * redact(String, Object[])
+	 *
+	 * @description Returns <values> as they may be logged: every value bound to
+	 *              one of REDACTED_FIELDS in <command> is replaced by "***".
+	 *
+	 */
+	static Object[] redact( String command, Object[] values )
+	{
+		if( values == null || !mentionsRedacted( command ) )
+		{
+			return values;
+		}
+		Object[] redacted = values.clone();
+		Matcher insert = INSERT_COLUMNS.matcher( command );
+		if( insert.find() )
+		{
+			String[] columns = insert.group( 1 ).split( "," );
+			for( int i = 0; i < columns.length && i < redacted.length; ++i )
+			{
+				if( REDACTED_FIELDS.contains( columns[i].trim().toLowerCase( Locale.ROOT ) ) )
+				{
+					redacted[i] = REDACTED;
+				}
+			}
+			return redacted;
+		}
+		String column = null;
+		for( int i = 0, placeholder = 0; i < command.length() && placeholder < redacted.length; ++i )
+		{
+			if( command.charAt( i ) != '?' )
+			{
+				continue;
+			}
+			Matcher compared = COMPARED_COLUMN.matcher( command.substring( 0, i ) );
+			if( compared.find() )
+			{
+				column = compared.group( 1 ).toLowerCase( Locale.ROOT );
+			}
+			if( column != null && REDACTED_FIELDS.contains( column ) )
+			{
+				redacted[placeholder] = REDACTED;
+			}
+			placeholder++;
+		}
+		return redacted;
+	}
+
+
+	/**
+	 * redact(String)
+	 *
+	 * @description Masks the literals compared to or set on REDACTED_FIELDS in a
+	 *              statement, or plan, that has its values written into the SQL.
+	 *
+	 */
+	static String redact( String command )
+	{
+		if( !mentionsRedacted( command ) )
+		{
+			return command;
+		}
+		for( String field : REDACTED_FIELDS )
+		{
+			command = command.replaceAll( "(?i)(\\b" + field + "[\"`]?\\s*=\\s*)'(?:[^']|'')*'", "$1'" + REDACTED + "'" );
+		}
+		return command;
+	}
+
+
+	/**
+	 * caller()
+	 *
+	 * @description Returns the controller method (Class.method:line) whose work
+	 *              ran the statement, or the first frame outside of the sql
+	 *              package if no controller is on the stack. Lambdas are named
+	 *              after the method they were written in.
+	 *
+	 */
+	static String caller()
+	{
+		Optional<StackWalker.StackFrame> frame = StackWalker.getInstance().walk( frames -> frames
+			.filter( f -> f.getClassName().startsWith( "controllers." ) )
+			.findFirst() );
+		if( !frame.isPresent() )
+		{
+			frame = StackWalker.getInstance().walk( frames -> frames
+				.filter( f -> !f.getClassName().startsWith( "sql." ) && !f.getClassName().startsWith( "java." ) )
+				.findFirst() );
+		}
+		if( !frame.isPresent() )
+		{
+			return "unknown";
+		}
+		StackWalker.StackFrame f = frame.get();
+		String className = f.getClassName().substring( f.getClassName().lastIndexOf( '.' ) + 1 );
+		String method = f.getMethodName();
+		if( method.startsWith( "lambda$" ) )
+		{
+			method = method.split( "\\$" )[1];
+		}
+		return className + "." + method + ":" + f.getLineNumber();
+	}
+
+
+	/**
+	 * start()
+	 *
+	 * @description Starts the writer thread if it is not running yet.
+	 *
+	 */
+	private static synchronized void start()
+	{
+		if( writer != null )
+		{
+			return;
+		}
+		writer = new Thread( SlowQueryLog::run, "slow-query-log" );
+		writer.setDaemon( true );
+		writer.start();
+	}
+
+
+	/**
+	 * run()
+	 *
+	 * @description Body of the writer thread. Writes entries as they arrive, with
+	 *              the EXPLAIN plan of the ones whose shape is new.
+	 *
+	 */
+	private static void run()
+	{
+		while( true )
+		{
+			ArrayList<Entry> entries = new ArrayList<>();
+			try
+			{
+				entries.add( queue.take() );
+			}
+			catch( InterruptedException e )
+			{
+				return;
+			}
+			queue.drainTo( entries );
+			try
+			{
+				Files.createDirectories( LOG_FILE.getParent() );
+				try( BufferedWriter out = Files.newBufferedWriter( LOG_FILE, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND ) )
+				{
+					long lost = dropped.getAndSet( 0 );
+					if( lost > 0 )
+					{
+						out.write( LocalDateTime.now() + " " + lost + " slow statements were not logged, the log queue was full." );
+						out.newLine();
+					}
+					for( Entry entry : entries )
+					{
+						write( out, entry );
+					}
+				}
+			}
+			catch( IOException e )
+			{
+				System.out.println( "Error writing " + LOG_FILE );
+				e.printStackTrace();
+			}
+		}
+	}
+
+
+	/**
+	 * write(BufferedWriter, Entry)
+	 *
+	 * @description Writes <entry>, followed by its EXPLAIN plan if its shape has
+	 *              not been explained yet.
+	 *
+	 */
+	private static void write( BufferedWriter out, Entry entry ) throws IOException
+	{
+		out.write( entry.at + " " + ( entry.micros / 1000 ) + " ms, rows=" + entry.rows + ", at " + entry.caller );
+		out.newLine();
+		out.write( "  " + redact( entry.command ) );
+		out.newLine();
+		if( entry.values != null )
+		{
+			out.write( "  values: " + Arrays.toString( redact( entry.command, entry.values ) ) );
+			out.newLine();
+		}
+		if( EXPLAINABLE.matcher( entry.command ).matches() && explained.add( StatementRegistry.normalize( entry.command ) ) )
+		{
+			String[] plan = explain( entry.command, entry.values );
+			if( plan != null )
+			{
+				boolean fullScan = Database.getDialect().isFullScan( plan );
+				out.write( "  EXPLAIN" + ( fullScan ? " (FULL TABLE SCAN)" : "" ) + ":" );
+				out.newLine();
+				for( String row : plan )
+				{
+					for( String line : redact( row ).split( "\\R" ) )
+					{
+						out.write( "    " + line );
+						out.newLine();
+					}
+				}
+			}
+		}
+		out.flush();
+	}
+
+
+	/**
+	 * explain(String, Object[])
+	 *
+	 * @description Returns the server's plan for <command> with <values> bound to
+	 *              it, one line per row of the EXPLAIN output, or null if the
+	 *              server could not explain it.
+	 *
+	 */
+	private static String[] explain( String command, Object[] values )
+	{
+		return Database.query( "EXPLAIN " + command, values == null ? new Object[0] : values, ( set, read ) ->
+			{
+				ResultSetMetaData meta = set.getMetaData();
+				ArrayList<String> rows = new ArrayList<>();
+				while( Database.next( set, read ) )
+				{
+					StringBuilder row = new StringBuilder();
+					for( int i = 1; i <= meta.getColumnCount(); ++i )
+					{
+						row.append( i > 1 ? ", " : "" ).append( meta.getColumnLabel( i ) ).append( "=" ).append( set.getString( i ) );
+					}
+					rows.add( row.toString() );
+				}
+				return rows.toArray( new String[rows.size()] );
+			}
+		);
+	}
+
+
+	private static boolean mentionsRedacted( String command )
+	{
+		String lower = command.toLowerCase( Locale.ROOT );
+		for( String field : REDACTED_FIELDS )
+		{
+			if( lower.contains( field ) )
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	// GETTERS
+	public static long getThresholdMs()
+	{
+		return thresholdMicros < 0 ? -1 : thresholdMicros / 1000;
+	}
+
+
+	public static long getDropped()
+	{
+		return dropped.get();
+	}
+
+
+	// SETTERS
+	/**
+	 * setThreshold(long)
+	 *
+	 * @description Logs statements that take at least <ms> milliseconds from now
+	 *              on. A negative <ms> turns the log off.
+	 *
+	 */
+	public static void setThreshold( long ms )
+	{
+		thresholdMicros = ms < 0 ? -1 : ms * 1000;
+	}
+}
@@ -0,0 +1,246 @@
+package sql;
+
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * StatementRegistry
+ *
+ * @description Statistics of every statement Database runs, grouped by the
+ *              normalized shape of its SQL: literals become '?' and IN lists
+ *              become "IN (...)", so statements that only differ in their values
+ *              share one StatementStats. The registry and each shape are
+ *              published as MBeans under JMX_DOMAIN, where they can be read
+ *              and reset at runtime (jconsole, VisualVM, ...).
+ *
+ */
+public final class StatementRegistry implements StatementRegistryMBean
+{
+	// JMX_DOMAIN -> Domain of the MBeans.
+	// MAX_SHAPES -> Most shapes tracked; statements of any further shape are counted under OTHER.
+	// MAX_COMMANDS -> Most SQL strings remembered with their shape, so repeated statements skip normalizing.
+	// SLOWEST -> Amount of shapes listed by getSlowestShapes().
+	public final static String JMX_DOMAIN = "CalendarGraphics";
+	public final static int MAX_SHAPES = 1000, MAX_COMMANDS = 5000, SLOWEST = 10;
+	public final static String OTHER = "(other)";
+
+	// STRING, NUMBER, IN_LIST, SPACE -> Patterns replaced while normalizing SQL.
+	private final static Pattern
+		STRING = Pattern.compile( "'(?:[^']|'')*'" ),
+		NUMBER = Pattern.compile( "\\b\\d+(?:\\.\\d+)?\\b" ),
+		IN_LIST = Pattern.compile( "(?i)\\bIN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)" ),
+		SPACE = Pattern.compile( "\\s+" );
+
+	private final static StatementRegistry instance = new StatementRegistry();
+
+	// enabled -> Nothing is recorded while false.
+	// shapes -> Statistics by normalized shape.
+	// commands -> Statistics by exact SQL string, for statements seen before.
+	private volatile boolean enabled = true;
+	private final ConcurrentHashMap<String, StatementStats> shapes = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, StatementStats> commands = new ConcurrentHashMap<>();
+
+
+	private StatementRegistry()
+	{
+		register( JMX_DOMAIN + ":type=Statements", this );
+	}
+
+
+	/**
+	 * record(String, long, long, boolean)
+	 *
+	 * @description Records one execution of <command> that started at
+	 *              System.nanoTime() <startNanos> and returned or affected <rows>
+	 *              rows, or failed.
+	 *
+	 */
+	public static void record( String command, long startNanos, long rows, boolean failed )
+	{
+		record( command, null, startNanos, rows, failed );
+	}
+
+
+	/**
+	 * record(String, Object[], long, long, boolean)
+	 *
+	 * @description Same as record(String, long, long, boolean) for a statement
+	 *              run with <values> bound to it, which SlowQueryLog logs if the
+	 *              statement was slow.
+	 *
+	 */
+	public static void record( String command, Object[] values, long startNanos, long rows, boolean failed )
+	{
+		long micros = ( System.nanoTime() - startNanos ) / 1000;
+		if( !failed )
+		{
+			SlowQueryLog.check( command, values, micros, rows );
+		}
+		if( instance.enabled )
+		{
+			instance.statsFor( command ).record( micros, rows, failed );
+		}
+		ActionScope.record( command );
+	}
+
+
+	/**
+	 * normalize(String)
+	 *
+	 * @description Returns the shape of the SQL <command>.
+	 *
+	 */
+	public static String normalize( String command )
+	{
+		String shape = STRING.matcher( command ).replaceAll( "?" );
+		shape = NUMBER.matcher( shape ).replaceAll( "?" );
+		shape = IN_LIST.matcher( shape ).replaceAll( "IN (...)" );
+		return SPACE.matcher( shape ).replaceAll( " " ).trim();
+	}
+
+
+	/**
+	 * get(String)
+	 *
+	 * @description Returns the statistics of the shape of <command>, or null if
+	 *              no statement of that shape has run.
+	 *
+	 */
+	public static StatementStats get( String command )
+	{
+		return instance.shapes.get( normalize( command ) );
+	}
+
+
+	public static StatementRegistry getInstance()
+	{
+		return instance;
+	}
+
+
+	/**
+	 * statsFor(String)
+	 *
+	 * @description Returns the statistics <command> is recorded in, creating and
+	 *              publishing them for a new shape.
+	 *
+	 */
+	private StatementStats statsFor( String command )
+	{
+		StatementStats stats = commands.get( command );
+		if( stats != null )
+		{
+			return stats;
+		}
+		String shape = normalize( command );
+		stats = shapes.get( shape );
+		if( stats == null )
+		{
+			stats = shapes.computeIfAbsent( shapes.size() < MAX_SHAPES ? shape : OTHER, this::publish );
+		}
+		if( commands.size() < MAX_COMMANDS )
+		{
+			commands.put( command, stats );
+		}
+		return stats;
+	}
+
+
+	/**
+	 * publish(String)
+	 *
+	 * @description Creates the statistics of <shape> and registers their MBean.
+	 *
+	 */
+	private StatementStats publish( String shape )
+	{
+		StatementStats stats = new StatementStats( shape );
+		register( JMX_DOMAIN + ":type=Statement,sql=" + ObjectName.quote( shape ), stats );
+		return stats;
+	}
+
+
+	/**
+	 * register(String, Object)
+	 *
+	 * @description Registers <mbean> as <name> with the platform MBean server,
+	 *              replacing whatever was registered under that name.
+	 *
+	 */
+	private static void register( String name, Object mbean )
+	{
+		try
+		{
+			ObjectName objectName = new ObjectName( name );
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if( server.isRegistered( objectName ) )
+			{
+				server.unregisterMBean( objectName );
+			}
+			server.registerMBean( mbean, objectName );
+		}
+		catch( JMException e )
+		{
+			System.out.println( "Error registering MBean " + name );
+			e.printStackTrace();
+		}
+	}
+
+
+	/**
+	 * reset()
+	 *
+	 * @description Resets the statistics of every shape. The shapes stay
+	 *              published.
+	 *
+	 */
+	public void reset()
+	{
+		for( StatementStats stats : shapes.values() )
+		{
+			stats.reset();
+		}
+	}
+
+
+	// GETTERS
+	public boolean isEnabled()
+	{
+		return enabled;
+	}
+
+
+	public int getShapeCount()
+	{
+		return shapes.size();
+	}
+
+
+	/**
+	 * getSlowestShapes()
+	 *
+	 * @description Returns the SLOWEST shapes that took the most time in total,
+	 *              as "total us | calls | p99 us | sql".
+	 *
+	 */
+	public String[] getSlowestShapes()
+	{
+		return shapes.values().stream()
+			.sorted( Comparator.comparingLong( StatementStats::getTotalMicros ).reversed() )
+			.limit( SLOWEST )
+			.map( s -> s.getTotalMicros() + " | " + s.getCalls() + " | " + s.getP99Micros() + " | " + s.getSql() )
+			.toArray( String[]::new );
+	}
+
+
+	// SETTERS
+	public void setEnabled( boolean enabled )
+	{
+		this.enabled = enabled;
+	}
+}
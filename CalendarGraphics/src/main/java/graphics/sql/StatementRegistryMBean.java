@@ -0,0 +1,20 @@
+package sql;
+
+/**
+ * StatementRegistryMBean
+ *
+ * @description JMX controls of the StatementRegistry.
+ *
+ */
+public interface StatementRegistryMBean
+{
+	boolean isEnabled();
+
+	void setEnabled( boolean enabled );
+
+	int getShapeCount();
+
+	String[] getSlowestShapes();
+
+	void reset();
+}
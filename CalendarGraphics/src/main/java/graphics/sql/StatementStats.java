@@ -0,0 +1,129 @@
+package sql;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * StatementStats
+ *
+ * @description Calls, rows, errors and latency of every statement that shares
+ *              one normalized SQL shape (see StatementRegistry).
+ *
+ */
+public final class StatementStats implements StatementStatsMBean
+{
+	// sql -> Normalized SQL shape these statistics are kept for.
+	// rows -> Rows returned by queries, or affected by writes.
+	// errors -> Executions that failed on the server.
+	// latency -> Time (us) from sending the statement to having its result.
+	private final String sql;
+	private final LongAdder rows = new LongAdder(), errors = new LongAdder();
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+
+	/**
+	 * CONSTRUCTOR (String)
+	 *
+	 * @description Creates empty statistics for the shape <sql>.
+	 *
+	 */
+	StatementStats( String sql )
+	{
+		this.sql = sql;
+	}
+
+
+	/**
+	 * record(long, long, boolean)
+	 *
+	 * @description Records one execution that took <micros> and returned or
+	 *              affected <rows> rows, or failed.
+	 *
+	 */
+	void record( long micros, long rows, boolean failed )
+	{
+		latency.record( micros );
+		if( failed )
+		{
+			errors.increment();
+		}
+		else
+		{
+			this.rows.add( rows );
+		}
+	}
+
+
+	public void reset()
+	{
+		rows.reset();
+		errors.reset();
+		latency.reset();
+	}
+
+
+	// GETTERS
+	public String getSql()
+	{
+		return sql;
+	}
+
+
+	public long getCalls()
+	{
+		return latency.getCount();
+	}
+
+
+	public long getRows()
+	{
+		return rows.sum();
+	}
+
+
+	public long getErrors()
+	{
+		return errors.sum();
+	}
+
+
+	public long getTotalMicros()
+	{
+		return latency.getTotal();
+	}
+
+
+	public long getMeanMicros()
+	{
+		return latency.getMean();
+	}
+
+
+	public long getP50Micros()
+	{
+		return latency.percentile( 50 );
+	}
+
+
+	public long getP90Micros()
+	{
+		return latency.percentile( 90 );
+	}
+
+
+	public long getP99Micros()
+	{
+		return latency.percentile( 99 );
+	}
+
+
+	public long getP999Micros()
+	{
+		return latency.percentile( 99.9 );
+	}
+
+
+	public long getMaxMicros()
+	{
+		return latency.getMax();
+	}
+}
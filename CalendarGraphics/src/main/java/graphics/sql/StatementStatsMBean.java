@@ -0,0 +1,35 @@
+package sql;
+
+/**
+ * StatementStatsMBean
+ *
+ * @description JMX view of the StatementStats of one statement shape. Latencies
+ *              are in microseconds.
+ *
+ */
+public interface StatementStatsMBean
+{
+	String getSql();
+
+	long getCalls();
+
+	long getRows();
+
+	long getErrors();
+
+	long getTotalMicros();
+
+	long getMeanMicros();
+
+	long getP50Micros();
+
+	long getP90Micros();
+
+	long getP99Micros();
+
+	long getP999Micros();
+
+	long getMaxMicros();
+
+	void reset();
+}
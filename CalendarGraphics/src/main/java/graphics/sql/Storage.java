@@ -0,0 +1,267 @@
+package sql;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Storage
+ *
+ * @description Operations the application runs on one table, independent of
+ *              where the table is kept. SQLTable keeps it on the SQL server
+ *              through JDBC, MemoryTable keeps it in the heap of this process.
+ *              Every value is passed around as the String the screens use
+ *              ("0800" for times, "11/5/2019" for dates), and both
+ *              implementations read values back in the same form.
+ *
+ */
+public interface Storage
+{
+	/**
+	 * getName()
+	 *
+	 * @description Returns the name of the table.
+	 *
+	 */
+	String getName();
+
+
+	/**
+	 * getFields()
+	 *
+	 * @description Returns the column names of the table, in order.
+	 *
+	 */
+	String[] getFields();
+
+
+	/**
+	 * insertEntry(String[])
+	 *
+	 * @description Adds a new entry into the table. Entries with the wrong amount
+	 *              of values are ignored.
+	 *
+	 */
+	void insertEntry( String[] entryValues );
+
+
+	/**
+	 * insertEntries(String[][])
+	 *
+	 * @description Adds many new entries into the table. Returns the result of
+	 *              each entry in order, Statement.EXECUTE_FAILED for the entries
+	 *              that could not be inserted.
+	 *
+	 */
+	int[] insertEntries( String[][] entries );
+
+
+	/**
+	 * deleteEntry(String[], String[])
+	 *
+	 * @description Deletes every entry whose <fields> hold the corresponding
+	 *              <values>.
+	 *
+	 */
+	void deleteEntry( String[] fields, String[] values );
+
+
+	/**
+	 * deleteWhere(String[], String[])
+	 *
+	 * @description Same as deleteEntry(String[], String[]), but returns the amount
+	 *              of entries deleted, or -1 if the delete failed.
+	 *
+	 */
+	int deleteWhere( String[] fields, String[] values );
+
+
+	/**
+	 * deleteWhereIn(String, String[])
+	 *
+	 * @description Deletes every entry whose <field> holds any of <values>.
+	 *              Returns the amount of entries deleted, or -1 if the delete
+	 *              failed.
+	 *
+	 */
+	int deleteWhereIn( String field, String[] values );
+
+
+	/**
+	 * deleteEntries(String[], String[][], int)
+	 *
+	 * @description Deletes every entry that matches one of the rows of <values>.
+	 *              Returns the amount of entries deleted for each row, or
+	 *              Statement.EXECUTE_FAILED. <batchSize> bounds the rows sent per
+	 *              round trip, where there is one.
+	 *
+	 */
+	int[] deleteEntries( String[] fields, String[][] values, int batchSize );
+
+
+	/**
+	 * editEntry(String[], String[], String[], String[])
+	 *
+	 * @description Sets <fieldsToEdit> to <newValues> on every entry whose
+	 *              <identifierFields> hold the corresponding <identifierValues>.
+	 *
+	 */
+	void editEntry( String[] identifierFields, String[] identifierValues, String[] fieldsToEdit, String[] newValues );
+
+
+	/**
+	 * updateWhere(String[], String[], String[], String[])
+	 *
+	 * @description Same as editEntry(String[], String[], String[], String[]), but
+	 *              returns the amount of entries edited, or -1 if the edit failed.
+	 *
+	 */
+	int updateWhere( String[] whereFields, String[] whereValues, String[] fieldsToEdit, String[] newValues );
+
+
+	/**
+	 * updateWhereIn(String, String[], String[], String[])
+	 *
+	 * @description Sets <fieldsToEdit> to <newValues> on every entry whose <field>
+	 *              holds any of <values>. Returns the amount of entries edited, or
+	 *              -1 if the edit failed.
+	 *
+	 */
+	int updateWhereIn( String field, String[] values, String[] fieldsToEdit, String[] newValues );
+
+
+	/**
+	 * editEntries(String[], String[][], String[], String[][], int)
+	 *
+	 * @description Row i of <identifierValues> picks the entries that get row i
+	 *              of <newValues>. Returns the amount of entries edited for each
+	 *              row, or Statement.EXECUTE_FAILED.
+	 *
+	 */
+	int[] editEntries( String[] identifierFields, String[][] identifierValues, String[] fieldsToEdit, String[][] newValues, int batchSize );
+
+
+	/**
+	 * queueInsert(String[])
+	 *
+	 * @description Same as insertEntry(String[]), but may be committed together
+	 *              with the writes of other sessions. Returns a future of the
+	 *              amount of entries inserted, which fails if the insert fails.
+	 *
+	 */
+	CompletableFuture<Integer> queueInsert( String[] entryValues );
+
+
+	/**
+	 * queueDelete(String[], String[])
+	 *
+	 * @description Queued deleteEntry(String[], String[]). See queueInsert.
+	 *
+	 */
+	CompletableFuture<Integer> queueDelete( String[] fields, String[] values );
+
+
+	/**
+	 * queueEdit(String[], String[], String[], String[])
+	 *
+	 * @description Queued editEntry(String[], String[], String[], String[]). See
+	 *              queueInsert.
+	 *
+	 */
+	CompletableFuture<Integer> queueEdit( String[] identifierFields, String[] identifierValues, String[] fieldsToEdit, String[] newValues );
+
+
+	/**
+	 * getAllEntriesFor(String, String)
+	 *
+	 * @description Returns every entry whose <field> holds <value>.
+	 *
+	 */
+	String[][] getAllEntriesFor( String field, String value );
+
+
+	/**
+	 * getAllEntriesFor(String[], String[])
+	 *
+	 * @description Returns every entry whose <fields> hold the corresponding
+	 *              <values>, or null if the lookup failed.
+	 *
+	 */
+	String[][] getAllEntriesFor( String[] fields, String[] values );
+
+
+	/**
+	 * getEntry(String, String)
+	 *
+	 * @description Returns the first entry whose <field> holds <value>, or null.
+	 *
+	 */
+	String[] getEntry( String field, String value );
+
+
+	/**
+	 * getEntry(String[], String[])
+	 *
+	 * @description Returns the first entry whose <fields> hold the corresponding
+	 *              <values>, or null.
+	 *
+	 */
+	String[] getEntry( String[] fields, String[] values );
+
+
+	/**
+	 * getValue(String, String, String)
+	 *
+	 * @description Returns <wantedField> of the first entry whose <field> holds
+	 *              <value>, or null.
+	 *
+	 */
+	String getValue( String field, String value, String wantedField );
+
+
+	/**
+	 * getValue(String[], String[], String)
+	 *
+	 * @description Returns <wantedField> of the first entry whose <fields> hold
+	 *              the corresponding <values>, or null.
+	 *
+	 */
+	String getValue( String[] fields, String[] values, String wantedField );
+
+
+	/**
+	 * entryExists(String, String)
+	 *
+	 * @description Checks if any entry's <field> holds <value>.
+	 *
+	 */
+	boolean entryExists( String field, String value );
+
+
+	/**
+	 * entryExists(String[], String[])
+	 *
+	 * @description Checks if any entry's <fields> hold the corresponding <values>.
+	 *
+	 */
+	boolean entryExists( String[] fields, String[] values );
+
+
+	/**
+	 * stream()
+	 *
+	 * @description Streams every entry in the table. Close the stream when done.
+	 *
+	 */
+	Stream<String[]> stream();
+
+
+	/**
+	 * stream(String[], String[], int)
+	 *
+	 * @description Streams every entry whose <fields> hold the corresponding
+	 *              <values>, reading up to <fetchSize> entries at a time where the
+	 *              entries are not already in memory. Close the stream when done.
+	 *
+	 */
+	Stream<String[]> stream( String[] fields, String[] values, int fetchSize );
+}
@@ -0,0 +1,298 @@
+package sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WritePipeline
+ *
+ * @description Group commit for INSERT, UPDATE and DELETE statements. Callers
+ *              from any session enqueue a write and get a future of its row
+ *              count back. A single writer thread drains the queue into one
+ *              transaction of at most <maxBatchSize> writes, waiting up to
+ *              <lingerMs> for more writes to join a batch that is not full.
+ *              Consecutive writes with the same SQL are sent as one JDBC batch.
+ *              The futures complete only after the transaction has committed.
+ *
+ */
+final class WritePipeline
+{
+	// Write -> One queued statement, its bound values and the future of its row count.
+	private final static class Write
+	{
+		final String command;
+		final Object[] values;
+		final CompletableFuture<Integer> result = new CompletableFuture<>();
+
+		Write( String command, Object[] values )
+		{
+			this.command = command;
+			this.values = values;
+		}
+	}
+
+	// maxBatchSize -> Most writes committed in one transaction.
+	// lingerMs -> Most time (ms) the writer waits for more writes before committing a batch that is not full.
+	// queue -> Writes waiting for the writer, bounded so a stalled server cannot exhaust memory.
+	// writer -> Thread that commits the batches, started on the first write.
+	private final int maxBatchSize;
+	private final long lingerMs;
+	private final LinkedBlockingQueue<Write> queue;
+	private Thread writer;
+
+
+	/**
+	 * CONSTRUCTOR (int, long, int)
+	 *
+	 * @description Creates a pipeline that commits up to <maxBatchSize> writes per
+	 *              transaction and holds at most <queueSize> waiting writes.
+	 *
+	 */
+	WritePipeline( int maxBatchSize, long lingerMs, int queueSize )
+	{
+		this.maxBatchSize = maxBatchSize;
+		this.lingerMs = lingerMs;
+		this.queue = new LinkedBlockingQueue<>( queueSize );
+	}
+
+
+	/**
+	 * submit(String, Object[])
+	 *
+	 * @description Queues the parameterized <command> with <values> bound to it.
+	 *              The future fails straight away if the queue is full, and with
+	 *              the server's SQLException if the write itself fails.
+	 *
+	 */
+	CompletableFuture<Integer> submit( String command, Object[] values )
+	{
+		start();
+		Write write = new Write( command, values );
+		if( !queue.offer( write ) )
+		{
+			write.result.completeExceptionally( new SQLException( "Write queue is full." ) );
+		}
+		return write.result;
+	}
+
+
+	/**
+	 * getQueued()
+	 *
+	 * @description Returns the amount of writes waiting for the writer.
+	 *
+	 */
+	int getQueued()
+	{
+		return queue.size();
+	}
+
+
+	/**
+	 * start()
+	 *
+	 * @description Starts the writer thread if it is not running yet.
+	 *
+	 */
+	private synchronized void start()
+	{
+		if( writer != null )
+		{
+			return;
+		}
+		writer = new Thread( this::run, "database-writer" );
+		writer.setDaemon( true );
+		writer.start();
+	}
+
+
+	/**
+	 * run()
+	 *
+	 * @description Body of the writer thread. Waits for a write, gathers every
+	 *              write that arrives within <lingerMs> (up to <maxBatchSize>),
+	 *              then commits them together.
+	 *
+	 */
+	private void run()
+	{
+		while( true )
+		{
+			ArrayList<Write> batch = new ArrayList<>();
+			try
+			{
+				batch.add( queue.take() );
+				long deadline = System.currentTimeMillis() + lingerMs;
+				while( batch.size() < maxBatchSize )
+				{
+					long wait = deadline - System.currentTimeMillis();
+					Write next = wait > 0 ? queue.poll( wait, TimeUnit.MILLISECONDS ) : queue.poll();
+					if( next == null )
+					{
+						break;
+					}
+					batch.add( next );
+				}
+				commit( batch );
+			}
+			catch( InterruptedException e )
+			{
+				fail( batch, e );
+				return;
+			}
+			catch( RuntimeException e )
+			{
+				fail( batch, e );
+			}
+		}
+	}
+
+
+	/**
+	 * commit(List)
+	 *
+	 * @description Runs <batch> in one transaction. If the transaction fails, it
+	 *              is rolled back and each write is retried in its own
+	 *              transaction, so only the writes that are actually invalid fail.
+	 *
+	 */
+	private void commit( List<Write> batch )
+	{
+		try( PooledConnection pc = Database.lease() )
+		{
+			Connection connection = pc.connection();
+			connection.setAutoCommit( false );
+			int[] counts = new int[batch.size()];
+			try
+			{
+				execute( pc, batch, counts );
+				connection.commit();
+			}
+			catch( SQLException e )
+			{
+				connection.rollback();
+				retryEach( pc, batch );
+				return;
+			}
+			for( int i = 0; i < counts.length; ++i )
+			{
+				batch.get( i ).result.complete( counts[i] );
+			}
+		}
+		catch( SQLException e )
+		{
+			System.out.println( "Error committing " + batch.size() + " queued writes." );
+			e.printStackTrace();
+			fail( batch, e );
+		}
+	}
+
+
+	/**
+	 * execute(PooledConnection, List, int[])
+	 *
+	 * @description Runs every write of <batch> on <pc>, sending each run of writes
+	 *              that share their SQL as one JDBC batch, and stores their row
+	 *              counts in <counts>. Does not commit.
+	 *
+	 */
+	private void execute( PooledConnection pc, List<Write> batch, int[] counts ) throws SQLException
+	{
+		int start = 0;
+		while( start < batch.size() )
+		{
+			String command = batch.get( start ).command;
+			int end = start + 1;
+			while( end < batch.size() && batch.get( end ).command.equals( command ) )
+			{
+				end++;
+			}
+			PreparedStatement ps = pc.prepare( command );
+			long began = System.nanoTime();
+			try
+			{
+				if( end - start == 1 )
+				{
+					Database.bind( ps, batch.get( start ).values );
+					counts[start] = ps.executeUpdate();
+				}
+				else
+				{
+					ps.clearBatch();
+					for( int i = start; i < end; ++i )
+					{
+						Database.bind( ps, batch.get( i ).values );
+						ps.addBatch();
+					}
+					int[] runCounts = ps.executeBatch();
+					for( int i = start; i < end; ++i )
+					{
+						counts[i] = runCounts[i - start];
+					}
+				}
+			}
+			catch( SQLException e )
+			{
+				StatementRegistry.record( command, began, 0, true );
+				throw e;
+			}
+			Object[] values = end - start == 1 ? batch.get( start ).values : null;
+			StatementRegistry.record( command, values, began, Database.affected( Arrays.copyOfRange( counts, start, end ) ), false );
+			start = end;
+		}
+	}
+
+
+	/**
+	 * retryEach(PooledConnection, List)
+	 *
+	 * @description Runs each write of a failed <batch> in its own transaction and
+	 *              completes its future with the outcome.
+	 *
+	 */
+	private void retryEach( PooledConnection pc, List<Write> batch ) throws SQLException
+	{
+		Connection connection = pc.connection();
+		for( Write write : batch )
+		{
+			try
+			{
+				PreparedStatement ps = pc.prepare( write.command );
+				ps.clearBatch();
+				Database.bind( ps, write.values );
+				int count = ps.executeUpdate();
+				connection.commit();
+				write.result.complete( count );
+			}
+			catch( SQLException e )
+			{
+				connection.rollback();
+				System.out.println( "Error executing queued write: " + write.command );
+				System.out.println( e.getMessage() );
+				write.result.completeExceptionally( e );
+			}
+		}
+	}
+
+
+	/**
+	 * fail(List, Throwable)
+	 *
+	 * @description Fails every write of <batch> that has not completed yet.
+	 *
+	 */
+	private static void fail( List<Write> batch, Throwable e )
+	{
+		for( Write write : batch )
+		{
+			write.result.completeExceptionally( e );
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package utils;
+
+import javafx.event.ActionEvent;
+import javafx.event.Event;
+import javafx.event.EventDispatchChain;
+import javafx.event.EventDispatcher;
+import javafx.event.EventType;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.control.Labeled;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseEvent;
+
+import java.util.Set;
+
+import sql.ActionScope;
+
+/**
+ * ActionDispatcher
+ *
+ * @description Event dispatcher of a Scene that opens an ActionScope around
+ *              every click, key press and action event, so each statement the
+ *              event handlers run is attributed to the event that caused it.
+ *              Events fired while another one is being handled (a button's
+ *              ActionEvent inside its mouse release) join the outer action.
+ *
+ */
+public final class ActionDispatcher implements EventDispatcher
+{
+	// ACTIONS -> Event types that start an action. Mouse moves and the like are passed straight through.
+	// parent -> Dispatcher the Scene had before, which does the actual dispatching.
+	private final static Set<EventType<?>> ACTIONS = Set.of(
+		ActionEvent.ACTION,
+		MouseEvent.MOUSE_PRESSED, MouseEvent.MOUSE_RELEASED, MouseEvent.MOUSE_CLICKED,
+		KeyEvent.KEY_PRESSED, KeyEvent.KEY_RELEASED, KeyEvent.KEY_TYPED
+	);
+	private final EventDispatcher parent;
+
+
+	private ActionDispatcher( EventDispatcher parent )
+	{
+		this.parent = parent;
+	}
+
+
+	/**
+	 * install(Scene)
+	 *
+	 * @description Tracks the actions of every event dispatched in <scene>.
+	 *
+	 */
+	public static void install( Scene scene )
+	{
+		if( !( scene.getEventDispatcher() instanceof ActionDispatcher ) )
+		{
+			scene.setEventDispatcher( new ActionDispatcher( scene.getEventDispatcher() ) );
+		}
+	}
+
+
+	@ Override
+	public Event dispatchEvent( Event event, EventDispatchChain tail )
+	{
+		if( !ACTIONS.contains( event.getEventType() ) || ActionScope.current() != null )
+		{
+			return parent.dispatchEvent( event, tail );
+		}
+		ActionScope scope = ActionScope.begin( describe( event ) );
+		try
+		{
+			return parent.dispatchEvent( event, tail );
+		}
+		finally
+		{
+			scope.end();
+		}
+	}
+
+
+	/**
+	 * describe(Event)
+	 *
+	 * @description Returns the type and target of <event>, naming the target by
+	 *              its id or text when it has one. (example: MOUSE_PRESSED on
+	 *              Button "Confirm")
+	 *
+	 */
+	private static String describe( Event event )
+	{
+		Object target = event.getTarget();
+		String description = event.getEventType() + " on " + target.getClass().getSimpleName();
+		if( target instanceof Node && ( (Node) target ).getId() != null )
+		{
+			description += "#" + ( (Node) target ).getId();
+		}
+		if( target instanceof Labeled && ( (Labeled) target ).getText() != null )
+		{
+			description += " \"" + ( (Labeled) target ).getText() + "\"";
+		}
+		return description;
+	}
+}
@@ -1,175 +1,447 @@
-package utils;
-
-import sql.Database;
-import sql.SQLTable;
-
-/**
- * Constants
- *
- * @description Owns all of the enums that are associated with the Dentist
- *              Office application.
- *
- * @lastedited Nov. 19, 2019
- * @author Travis Zuleger
- * @date Nov 19, 2019
- */
-public final class Constants
-{
-	// JFX QUICK STYLING
-	public final static String
-		JFX_CSS_RED_BTN_IDLE = "-fx-background-color: #ff0000; -fx-border-color: #000000; -fx-border-width: 1; -fx-border-style: solid; -fx-cursor: hand;",
-		JFX_CSS_RED_BTN_HOVER = "-fx-background-color: #dd0000; -fx-border-color: #000000; -fx-border-width: 2; -fx-border-style: solid; -fx-cursor: hand;",
-		JFX_CSS_GRN_BTN_IDLE = "-fx-background-color: #00ff00; -fx-border-color: #000000; -fx-border-width: 1; -fx-border-style: solid; -fx-cursor: hand;",
-		JFX_CSS_GRN_BTN_HOVER = "-fx-background-color: #00dd00; -fx-border-color: #000000; -fx-border-width: 2; -fx-border-style: solid; -fx-cursor: hand;",
-		JFX_CSS_YEL_BTN_IDLE = "-fx-background-color: #fff000; -fx-border-color: #000000; -fx-border-width: 1; -fx-border-style: solid; -fx-cursor: hand;",
-		JFX_CSS_YEL_BTN_HOVER = "-fx-background-color: #ddd000; -fx-border-color: #000000; -fx-border-width: 2; -fx-border-style: solid; -fx-cursor: hand;",
-		JFX_CSS_LGRY_BTN_IDLE = "-fx-background-color: #cccccc; -fx-border-color: #000000; -fx-border-width: 1; -fx-border-style: solid;",
-		JFX_CSS_LGRY_BTN_HOVER = "-fx-background-color: #cccccc; -fx-border-color: #000000; -fx-border-width: 2; -fx-border-style: solid;",
-		JFX_CSS_DGRY_BTN_IDLE = "-fx-background-color: #aaaaaa; -fx-border-color: #000000; -fx-border-width: 1; -fx-border-style: solid;",
-		JFX_CSS_DGRY_BTN_HOVER = "-fx-background-color: #888888; -fx-border-color: #000000; -fx-border-width: 2; -fx-border-style: solid;",
-		JFX_CSS_BLU_BTN_IDLE = "-fx-background-color: #0000ff; -fx-border-color: #000000; -fx-border-width: 1; -fx-border-style: solid;",
-		JFX_CSS_BLU_BTN_HOVER = "-fx-background-color: #0000dd; -fx-border-color: #000000; -fx-border-width: 2; -fx-border-style: solid;";
-
-	// Titles held by employees at the Dentist Office.
-	public enum TITLES
-	{
-		PATIENT, HYGIENIST, DENTIST, ADMIN;
-	}
-
-	// Tables associated with the SQL database.
-	public enum TABLES
-	{
-		USERS(
-			new String[] { "user_id", "first_name", "last_name", "partner_id", "email", "phone_number", "title", "pass_hash", "status" },
-			new int[] { 10, 20, 20, 10, 50, 14, 10, 32, 8 },
-			new boolean[] { false, false, false, true, true, true, false, false, false }
-		),
-		APPOINTMENTS(
-			new String[] { "patient_id", "employee_id", "description", "block_start", "block_end", "MM_DD_YYYY"},
-			new int[] { 10, 10, 50, 4, 4, 11 },
-			new boolean[] { false, false, false, false, false, false }
-		);
-
-		private String fields[];
-		private int varCharSizes[];
-		private boolean canHoldNull[];
-
-
-		TABLES( String[] fields, int[] varCharSizes, boolean[] canHoldNull )
-		{
-			this.fields = fields;
-			this.varCharSizes = varCharSizes;
-			this.canHoldNull = canHoldNull;
-		}
-
-
-		public SQLTable table()
-		{
-			return Database.getTable( this.name() );
-		}
-
-
-		public String getField( int idx )
-		{
-			return fields[idx];
-		}
-
-
-		public int getFieldIdx( String field )
-		{
-			for(int i = 0; i < fields.length; ++i)
-			{
-				if( field.equals(fields[i]) ) return i;
-			}
-			return -1;
-		}
-
-
-		public String getAllFields()
-		{
-			String s = "";
-			for( int i = 0; i < fields.length - 1; ++i )
-			{
-				s += fields[i] + ", ";
-			}
-			s += fields[fields.length - 1];
-			return s;
-		}
-
-
-		public String[] fields()
-		{
-			return fields;
-		}
-
-
-		public int[] varCharSizes()
-		{
-			return varCharSizes;
-		}
-
-
-		public boolean[] canHoldNull()
-		{
-			return canHoldNull;
-		}
-	}
-
-	// Screens that the application switches between.
-	public enum SCREEN
-	{
-		USER_SCREEN, LOGIN_SCREEN, ADMIN_SCREEN;
-	}
-
-	// FXML pages that go hand in hand with the SCREEN enum.
-	public enum PAGE
-	{
-		ADMIN_EMPLOYEE_ROSTER( "/graphics/fxml/admin_employee_roster.fxml" ),
-		LOGIN( "/graphics/fxml/loginPage.fxml" ),
-		USER_SCREEN( "/graphics/fxml/basePage.fxml" );
-
-		private String dir;
-
-
-		PAGE( String dir )
-		{
-			this.dir = dir;
-		}
-
-
-		public String getDir()
-		{
-			return dir;
-		}
-	}
-
-	// Authentication Messages that manage the Authenticity of a user's login
-	// credentials.
-	public enum AUTH_MSG
-	{
-		USER_DOES_NOT_EXIST, INVALID_CREDENTIALS, VALID_CREDENTIALS, VOID_FIELD, DISABLED_ACCOUNT;
-	}
-
-
-	/**
-	 * getTable(String)
-	 *
-	 * @description Returns a TABLE enum based on the name given.
-	 *
-	 * @param name -> Name of the TABLE.
-	 * @return TABLE enum that holds all of the metadata associated with the SQL
-	 *         table.
-	 */
-	public static TABLES getTable( String name )
-	{
-		for( TABLES t : TABLES.values() )
-		{
-			if( t.name().equals( name ) )
-			{
-				return t;
-			}
-		}
-		return null;
-	}
-
-}
+package utils;
+
+import sql.Database;
+import sql.Dialect;
+import sql.Storage;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Constants
+ *
+ * @description Owns all of the enums that are associated with the Dentist
+ *              Office application.
+ *
+ * @lastedited Nov. 19, 2019
+ * @author Travis Zuleger
+ * @date Nov 19, 2019
+ */
+public final class Constants
+{
+	// JFX QUICK STYLING
+	public final static String
+		JFX_CSS_RED_BTN_IDLE = "-fx-background-color: #ff0000; -fx-border-color: #000000; -fx-border-width: 1; -fx-border-style: solid; -fx-cursor: hand;",
+		JFX_CSS_RED_BTN_HOVER = "-fx-background-color: #dd0000; -fx-border-color: #000000; -fx-border-width: 2; -fx-border-style: solid; -fx-cursor: hand;",
+		JFX_CSS_GRN_BTN_IDLE = "-fx-background-color: #00ff00; -fx-border-color: #000000; -fx-border-width: 1; -fx-border-style: solid; -fx-cursor: hand;",
+		JFX_CSS_GRN_BTN_HOVER = "-fx-background-color: #00dd00; -fx-border-color: #000000; -fx-border-width: 2; -fx-border-style: solid; -fx-cursor: hand;",
+		JFX_CSS_YEL_BTN_IDLE = "-fx-background-color: #fff000; -fx-border-color: #000000; -fx-border-width: 1; -fx-border-style: solid; -fx-cursor: hand;",
+		JFX_CSS_YEL_BTN_HOVER = "-fx-background-color: #ddd000; -fx-border-color: #000000; -fx-border-width: 2; -fx-border-style: solid; -fx-cursor: hand;",
+		JFX_CSS_LGRY_BTN_IDLE = "-fx-background-color: #cccccc; -fx-border-color: #000000; -fx-border-width: 1; -fx-border-style: solid;",
+		JFX_CSS_LGRY_BTN_HOVER = "-fx-background-color: #cccccc; -fx-border-color: #000000; -fx-border-width: 2; -fx-border-style: solid;",
+		JFX_CSS_DGRY_BTN_IDLE = "-fx-background-color: #aaaaaa; -fx-border-color: #000000; -fx-border-width: 1; -fx-border-style: solid;",
+		JFX_CSS_DGRY_BTN_HOVER = "-fx-background-color: #888888; -fx-border-color: #000000; -fx-border-width: 2; -fx-border-style: solid;",
+		JFX_CSS_BLU_BTN_IDLE = "-fx-background-color: #0000ff; -fx-border-color: #000000; -fx-border-width: 1; -fx-border-style: solid;",
+		JFX_CSS_BLU_BTN_HOVER = "-fx-background-color: #0000dd; -fx-border-color: #000000; -fx-border-width: 2; -fx-border-style: solid;";
+
+	// Titles held by employees at the Dentist Office.
+	public enum TITLES
+	{
+		PATIENT, HYGIENIST, DENTIST, ADMIN;
+	}
+
+	// Status of a user's account.
+	public enum STATUSES
+	{
+		ENABLED, DISABLED;
+	}
+
+	// SQL types of the columns in the database. The application passes every
+	// value around as a String ("0800" for times, "11/5/2019" for dates), so
+	// each type knows how to turn that String into the value bound to the
+	// server and how to turn a column back into the String the screens expect.
+	public enum SQL_TYPE
+	{
+		ID, VARCHAR, CHAR, MINUTE_OF_DAY, DATE, TITLE_ENUM, STATUS_ENUM;
+
+		// APP_DATE_IN -> Accepts "1/5/2020" as well as "01/05/2020".
+		// APP_DATE_OUT -> Matches the dates built by UserController.setCalendar.
+		private final static DateTimeFormatter
+			APP_DATE_IN = DateTimeFormatter.ofPattern( "M/d/yyyy" ),
+			APP_DATE_OUT = DateTimeFormatter.ofPattern( "MM/d/yyyy" );
+
+
+		/**
+		 * ddl(int)
+		 *
+		 * @description Returns the SQL type used when creating a column of this
+		 *              type. <size> is only used by VARCHAR and CHAR.
+		 *
+		 */
+		public String ddl( int size )
+		{
+			switch( this )
+			{
+				case ID: return "INT";
+				case CHAR: return "CHAR(" + size + ")";
+				case MINUTE_OF_DAY: return "SMALLINT";
+				case DATE: return "DATE";
+				case TITLE_ENUM: return enumDDL( TITLES.values() );
+				case STATUS_ENUM: return enumDDL( STATUSES.values() );
+				default: return "VARCHAR(" + size + ")";
+			}
+		}
+
+
+		/**
+		 * toSQL(String)
+		 *
+		 * @description Converts a value as the application holds it into the value
+		 *              bound to a statement. Values that do not parse are passed
+		 *              through unchanged and left for the server to reject.
+		 *
+		 */
+		public Object toSQL( String value )
+		{
+			if( value == null )
+			{
+				return null;
+			}
+			try
+			{
+				switch( this )
+				{
+					case ID:
+						return Integer.valueOf( value.trim() );
+					case MINUTE_OF_DAY:
+						int hhmm = Integer.parseInt( value.trim() );
+						return ( hhmm / 100 ) * 60 + hhmm % 100;
+					case DATE:
+						return LocalDate.parse( value.trim(), APP_DATE_IN );
+					default:
+						return value;
+				}
+			}
+			catch( NumberFormatException | DateTimeParseException e )
+			{
+				return value;
+			}
+		}
+
+
+		/**
+		 * fromSQL(ResultSet, int)
+		 *
+		 * @description Reads column <idx> of the current row of <set> as the String
+		 *              the application expects ("0800", "11/5/2019", ...).
+		 *
+		 */
+		public String fromSQL( ResultSet set, int idx ) throws SQLException
+		{
+			switch( this )
+			{
+				case MINUTE_OF_DAY:
+					int minutes = set.getInt( idx );
+					return set.wasNull() ? null : String.format( "%02d%02d", minutes / 60, minutes % 60 );
+				case DATE:
+					LocalDate date = set.getObject( idx, LocalDate.class );
+					return date == null ? null : date.format( APP_DATE_OUT );
+				default:
+					return set.getString( idx );
+			}
+		}
+
+
+		/**
+		 * normalize(String)
+		 *
+		 * @description Returns <value> the way fromSQL reads it back after it has
+		 *              been stored in a column of this type ("800" -> "0800",
+		 *              "1/5/2020" -> "01/5/2020"). Throws IllegalArgumentException
+		 *              for values the server would reject.
+		 *
+		 */
+		public String normalize( String value )
+		{
+			if( value == null )
+			{
+				return null;
+			}
+			Object sql = toSQL( value );
+			switch( this )
+			{
+				case ID:
+				case MINUTE_OF_DAY:
+					if( !( sql instanceof Integer ) )
+					{
+						throw new IllegalArgumentException( "Incorrect integer value: '" + value + "'" );
+					}
+					int n = (Integer) sql;
+					return this == ID ? String.valueOf( n ) : String.format( "%02d%02d", n / 60, n % 60 );
+				case DATE:
+					if( !( sql instanceof LocalDate ) )
+					{
+						throw new IllegalArgumentException( "Incorrect date value: '" + value + "'" );
+					}
+					return ( (LocalDate) sql ).format( APP_DATE_OUT );
+				case TITLE_ENUM:
+					return enumValue( TITLES.values(), value );
+				case STATUS_ENUM:
+					return enumValue( STATUSES.values(), value );
+				default:
+					return value;
+			}
+		}
+
+
+		/**
+		 * fromLegacy(String, boolean, Dialect)
+		 *
+		 * @description Returns the SQL expression, in <dialect>, that converts the
+		 *              VARCHAR column <column> of an old table into this type. The
+		 *              old insertEntry wrote a missing value as '' or as the text
+		 *              'null', so in a <nullable> column both become NULL.
+		 *
+		 */
+		public String fromLegacy( String column, boolean nullable, Dialect dialect )
+		{
+			String converted;
+			switch( this )
+			{
+				case ID:
+					converted = dialect.castToInt( column );
+					break;
+				case MINUTE_OF_DAY:
+					String hhmm = dialect.castToInt( column );
+					converted = dialect.divide( hhmm, 100 ) + " * 60 + MOD(" + hhmm + ", 100)";
+					break;
+				case DATE:
+					converted = dialect.parseDate( column );
+					break;
+				default:
+					converted = column;
+			}
+			return nullable ? "CASE WHEN " + column + " IN ('', 'null') THEN NULL ELSE " + converted + " END" : converted;
+		}
+
+
+		private static String enumValue( Enum<?>[] values, String value )
+		{
+			for( Enum<?> e : values )
+			{
+				if( e.name().equalsIgnoreCase( value ) )
+				{
+					return e.name();
+				}
+			}
+			throw new IllegalArgumentException( "Data truncated for enum value: '" + value + "'" );
+		}
+
+
+		private static String enumDDL( Enum<?>[] values )
+		{
+			String s = "ENUM(";
+			for( int i = 0; i < values.length; ++i )
+			{
+				s += "'" + values[i].name() + "'" + ( i < values.length - 1 ? ", " : "" );
+			}
+			return s + ")";
+		}
+	}
+
+	// Tables associated with the SQL database.
+	// Each table declares its columns, its primary key, its unique keys and its
+	// secondary indexes. Database.init creates whichever keys are missing.
+	public enum TABLES
+	{
+		USERS(
+			new String[] { "user_id", "first_name", "last_name", "partner_id", "email", "phone_number", "title", "pass_hash", "status" },
+			new SQL_TYPE[] { SQL_TYPE.ID, SQL_TYPE.VARCHAR, SQL_TYPE.VARCHAR, SQL_TYPE.ID, SQL_TYPE.VARCHAR, SQL_TYPE.VARCHAR, SQL_TYPE.TITLE_ENUM, SQL_TYPE.CHAR, SQL_TYPE.STATUS_ENUM },
+			new int[] { 10, 20, 20, 10, 50, 14, 10, 32, 8 },
+			new boolean[] { false, false, false, true, true, true, false, false, false },
+			new String[] { "user_id" },
+			new String[][] { },
+			new String[][] { { "title" }, { "first_name", "last_name" } }
+		),
+		APPOINTMENTS(
+			new String[] { "patient_id", "employee_id", "description", "block_start", "block_end", "MM_DD_YYYY"},
+			new SQL_TYPE[] { SQL_TYPE.ID, SQL_TYPE.ID, SQL_TYPE.VARCHAR, SQL_TYPE.MINUTE_OF_DAY, SQL_TYPE.MINUTE_OF_DAY, SQL_TYPE.DATE },
+			new int[] { 10, 10, 50, 4, 4, 11 },
+			new boolean[] { false, false, false, false, false, false },
+			new String[] { },
+			new String[][] { { "employee_id", "MM_DD_YYYY", "block_start" } },
+			new String[][] { { "patient_id", "MM_DD_YYYY", "block_start" }, { "MM_DD_YYYY" } }
+		);
+
+		private String fields[];
+		private SQL_TYPE types[];
+		private int varCharSizes[];
+		private boolean canHoldNull[];
+		private String primaryKey[];
+		private String uniqueKeys[][];
+		private String indexes[][];
+
+
+		TABLES( String[] fields, SQL_TYPE[] types, int[] varCharSizes, boolean[] canHoldNull, String[] primaryKey, String[][] uniqueKeys, String[][] indexes )
+		{
+			this.fields = fields;
+			this.types = types;
+			this.varCharSizes = varCharSizes;
+			this.canHoldNull = canHoldNull;
+			this.primaryKey = primaryKey;
+			this.uniqueKeys = uniqueKeys;
+			this.indexes = indexes;
+		}
+
+
+		public Storage table()
+		{
+			return Database.getTable( this.name() );
+		}
+
+
+		public String getField( int idx )
+		{
+			return fields[idx];
+		}
+
+
+		public int getFieldIdx( String field )
+		{
+			for(int i = 0; i < fields.length; ++i)
+			{
+				if( field.equals(fields[i]) ) return i;
+			}
+			return -1;
+		}
+
+
+		public String getAllFields()
+		{
+			String s = "";
+			for( int i = 0; i < fields.length - 1; ++i )
+			{
+				s += fields[i] + ", ";
+			}
+			s += fields[fields.length - 1];
+			return s;
+		}
+
+
+		public String[] fields()
+		{
+			return fields;
+		}
+
+
+		public SQL_TYPE[] types()
+		{
+			return types;
+		}
+
+
+		public SQL_TYPE getType( String field )
+		{
+			int idx = getFieldIdx( field );
+			return idx == -1 ? SQL_TYPE.VARCHAR : types[idx];
+		}
+
+
+		public String[] columnDDL()
+		{
+			String[] ddl = new String[fields.length];
+			for( int i = 0; i < fields.length; ++i )
+			{
+				ddl[i] = types[i].ddl( varCharSizes[i] );
+			}
+			return ddl;
+		}
+
+
+		public int[] varCharSizes()
+		{
+			return varCharSizes;
+		}
+
+
+		public boolean[] canHoldNull()
+		{
+			return canHoldNull;
+		}
+
+
+		public String[] primaryKey()
+		{
+			return primaryKey;
+		}
+
+
+		public String[][] uniqueKeys()
+		{
+			return uniqueKeys;
+		}
+
+
+		public String[][] indexes()
+		{
+			return indexes;
+		}
+
+
+		public String indexName( String prefix, String[] columns )
+		{
+			return prefix + "_" + this.name() + "_" + String.join( "_", columns );
+		}
+	}
+
+	// Screens that the application switches between.
+	public enum SCREEN
+	{
+		USER_SCREEN, LOGIN_SCREEN, ADMIN_SCREEN;
+	}
+
+	// FXML pages that go hand in hand with the SCREEN enum.
+	public enum PAGE
+	{
+		ADMIN_EMPLOYEE_ROSTER( "/graphics/fxml/admin_employee_roster.fxml" ),
+		LOGIN( "/graphics/fxml/loginPage.fxml" ),
+		USER_SCREEN( "/graphics/fxml/basePage.fxml" );
+
+		private String dir;
+
+
+		PAGE( String dir )
+		{
+			this.dir = dir;
+		}
+
+
+		public String getDir()
+		{
+			return dir;
+		}
+	}
+
+	// Authentication Messages that manage the Authenticity of a user's login
+	// credentials.
+	public enum AUTH_MSG
+	{
+		USER_DOES_NOT_EXIST, INVALID_CREDENTIALS, VALID_CREDENTIALS, VOID_FIELD, DISABLED_ACCOUNT;
+	}
+
+
+	/**
+	 * getTable(String)
+	 *
+	 * @description Returns a TABLE enum based on the name given.
+	 *
+	 * @param name -> Name of the TABLE.
+	 * @return TABLE enum that holds all of the metadata associated with the SQL
+	 *         table.
+	 */
+	public static TABLES getTable( String name )
+	{
+		for( TABLES t : TABLES.values() )
+		{
+			if( t.name().equals( name ) )
+			{
+				return t;
+			}
+		}
+		return null;
+	}
+
+}
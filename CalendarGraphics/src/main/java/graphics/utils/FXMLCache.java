@@ -0,0 +1,143 @@
+package utils;
+
+import javafx.fxml.FXMLLoader;
+import javafx.util.Callback;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import utils.Constants.PAGE;
+
+/**
+ * FXMLCache
+ *
+ * @description Everything about the FXML pages that is the same for every
+ *              session, kept once per JVM: the location and source of each page,
+ *              and the classes its elements name. Every session still gets its
+ *              own scene graph and controller from load(), but no longer reads
+ *              the page out of the jar or looks up its classes again. Looking up
+ *              classes is most of the cost: every element of a page with
+ *              wildcard imports is tried against each imported package, and
+ *              each miss used to throw a ClassNotFoundException. Stylesheets
+ *              need no cache of their own, since the pages now always resolve
+ *              them to the same URL and JavaFX parses each URL only once.
+ *
+ */
+public final class FXMLCache
+{
+	// Classes -> Class loader that remembers what it found, and what it did not find.
+	private final static class Classes extends ClassLoader
+	{
+		// Missing -> Thrown for a class already known to be missing; too common to fill in a stack trace.
+		private final static class Missing extends ClassNotFoundException
+		{
+			private final static long serialVersionUID = 1L;
+
+			Missing( String name )
+			{
+				super( name );
+			}
+
+			@ Override
+			public synchronized Throwable fillInStackTrace()
+			{
+				return this;
+			}
+		}
+
+		private final ConcurrentHashMap<String, Optional<Class<?>>> found = new ConcurrentHashMap<>();
+
+		Classes( ClassLoader parent )
+		{
+			super( parent );
+		}
+
+		@ Override
+		protected Class<?> loadClass( String name, boolean resolve ) throws ClassNotFoundException
+		{
+			Optional<Class<?>> known = found.get( name );
+			if( known == null )
+			{
+				try
+				{
+					known = Optional.of( getParent().loadClass( name ) );
+				}
+				catch( ClassNotFoundException e )
+				{
+					known = Optional.empty();
+				}
+				found.put( name, known );
+			}
+			if( !known.isPresent() )
+			{
+				throw new Missing( name );
+			}
+			return known.get();
+		}
+	}
+
+	// CLASSES -> Class lookups shared by every loader.
+	// locations, sources -> URL and contents of every page loaded so far.
+	private final static Classes CLASSES = new Classes( FXMLCache.class.getClassLoader() );
+	private final static ConcurrentHashMap<PAGE, URL> locations = new ConcurrentHashMap<>();
+	private final static ConcurrentHashMap<PAGE, byte[]> sources = new ConcurrentHashMap<>();
+
+
+	private FXMLCache()
+	{
+	}
+
+
+	/**
+	 * load(PAGE, Callback)
+	 *
+	 * @description Builds a new scene graph of <page>, with its controller made
+	 *              by <controllerFactory>, and returns the loader holding them.
+	 *              May run on any thread, as long as the scene graph is not shown
+	 *              yet.
+	 *
+	 */
+	public static FXMLLoader load( PAGE page, Callback<Class<?>, Object> controllerFactory ) throws IOException
+	{
+		FXMLLoader loader = new FXMLLoader( location( page ) );
+		loader.setClassLoader( CLASSES );
+		loader.setControllerFactory( controllerFactory );
+		loader.load( new ByteArrayInputStream( source( page ) ) );
+		return loader;
+	}
+
+
+	private static URL location( PAGE page ) throws IOException
+	{
+		URL location = locations.get( page );
+		if( location == null )
+		{
+			location = FXMLCache.class.getResource( page.getDir() );
+			if( location == null )
+			{
+				throw new IOException( "Missing FXML resource " + page.getDir() );
+			}
+			locations.put( page, location );
+		}
+		return location;
+	}
+
+
+	private static byte[] source( PAGE page ) throws IOException
+	{
+		byte[] source = sources.get( page );
+		if( source == null )
+		{
+			try( InputStream in = location( page ).openStream() )
+			{
+				source = in.readAllBytes();
+			}
+			sources.put( page, source );
+		}
+		return source;
+	}
+}